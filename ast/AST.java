@@ -1,16 +1,45 @@
 package ast;
 
+import java.util.function.IntSupplier;
+
 public class AST {
     private Computation computation;
+    private IntSupplier symbolCount;    // symbol ids in [0, symbolCount) are taken
+    private boolean deferredBodies;
 
     public AST(Computation computation) {
+        this(computation, 0);
+    }
+
+    public AST(Computation computation, int symbolCount) {
+        this.computation = computation;
+        this.symbolCount = () -> symbolCount;
+    }
+
+    // for trees whose function bodies still take symbol ids as they are parsed
+    public AST(Computation computation, IntSupplier symbolCount) {
         this.computation = computation;
+        this.symbolCount = symbolCount;
+        this.deferredBodies = true;
     }
 
     public Computation computation() {
         return computation;
     }
 
+    public int symbolCount() {
+        return symbolCount.getAsInt();
+    }
+
+    // parses every function body that is still deferred
+    public void parseFunctionBodies() {
+        if (deferredBodies && computation != null) {
+            for (FunctionDeclaration function : computation.functions()) {
+                function.body();
+            }
+        }
+    }
+
     public String printPreOrder(){
         if (computation == null) {
             return "";
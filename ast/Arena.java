@@ -0,0 +1,521 @@
+package ast;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import mocha.Symbol;
+import mocha.Token;
+import types.Type;
+
+/**
+ * Compact form of an AST: one arena per compilation holding every node as a
+ * row of primitive arrays (kind, position, first child, next sibling and a
+ * payload). Symbols, types and lexemes are shared through a constant pool,
+ * so a node costs about 30 bytes instead of a node object plus its Token.
+ *
+ * Consumers read it either through the cursor methods (kind, firstChild,
+ * nextSibling, ...) or as ordinary Node objects materialized on demand by
+ * node(int) and toAST(). toAST() materializes a function when it is asked
+ * for and keeps it only while something else refers to it, so a NodeVisitor
+ * walking the whole program holds one function's nodes at a time.
+ * Types set on materialized nodes are not written back, and a node shared
+ * by two parents (the destination of x += e) comes back as two equal nodes.
+ */
+public final class Arena {
+
+    public enum Kind {
+        COMPUTATION,
+        DECLARATION_LIST,
+        VARIABLE_DECLARATION,
+        DECLARED_SYMBOL,
+        FUNCTION_DECLARATION,
+        FUNCTION_BODY,
+        STATEMENT_SEQUENCE,
+        ASSIGNMENT,
+        FUNCTION_CALL,
+        ARGUMENT_LIST,
+        IF_STATEMENT,
+        WHILE_STATEMENT,
+        REPEAT_STATEMENT,
+        RETURN_STATEMENT,
+        ADDITION,
+        SUBTRACTION,
+        MULTIPLICATION,
+        DIVISION,
+        MODULO,
+        POWER,
+        LOGICAL_AND,
+        LOGICAL_OR,
+        RELATION,
+        LOGICAL_NOT,
+        ARRAY_INDEX,
+        DESIGNATOR,
+        ADDRESS_OF,
+        DEREFERENCE,
+        INTEGER_LITERAL,
+        FLOAT_LITERAL,
+        BOOL_LITERAL,
+        ABSENT,         // stands in for a null child
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    public static final int NONE = -1;
+
+    // one row per node
+    private byte[] kinds;
+    private int[] lines;
+    private int[] columns;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] payload;      // pool index: symbol, type, or token lexeme
+    private long[] data;        // token position (line << 32 | column), or a second pool index
+    private int size;
+
+    // only needed while children are being appended
+    private int[] lastChild;
+
+    private final List<Object> pool = new ArrayList<>();
+    private final Map<Object, Integer> identityIndex = new IdentityHashMap<>();
+    private final Map<String, Integer> lexemeIndex = new HashMap<>();
+
+    private int root = NONE;
+    private int symbolCount;
+
+    public Arena () {
+        this(1024);
+    }
+
+    public Arena (int capacity) {
+        kinds = new byte[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        payload = new int[capacity];
+        data = new long[capacity];
+        lastChild = new int[capacity];
+    }
+
+    // Cursor API =================================================================
+
+    public int size () {
+        return size;
+    }
+
+    public int root () {
+        return root;
+    }
+
+    public int symbolCount () {
+        return symbolCount;
+    }
+
+    public Kind kind (int node) {
+        return KINDS[kinds[node]];
+    }
+
+    public int lineNumber (int node) {
+        return lines[node];
+    }
+
+    public int charPosition (int node) {
+        return columns[node];
+    }
+
+    public int firstChild (int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling (int node) {
+        return nextSibling[node];
+    }
+
+    // child number i of node, or NONE
+    public int child (int node, int i) {
+        int c = firstChild[node];
+        while (c != NONE && i-- > 0) {
+            c = nextSibling[c];
+        }
+        return c;
+    }
+
+    // symbol of a DESIGNATOR, DECLARED_SYMBOL, FUNCTION_CALL, FUNCTION_DECLARATION or COMPUTATION
+    public Symbol symbol (int node) {
+        return (Symbol) pool.get(payload[node]);
+    }
+
+    // declared type of a VARIABLE_DECLARATION, return type of a FUNCTION_DECLARATION
+    public Type declaredType (int node) {
+        int index = kind(node) == Kind.FUNCTION_DECLARATION ? (int) data[node] : payload[node];
+        return (Type) pool.get(index);
+    }
+
+    // operator or literal token of the node, null if it has none
+    public Token token (int node) {
+        if (payload[node] == NONE) {
+            return null;
+        }
+        return new Token((String) pool.get(payload[node]), (int) (data[node] >>> 32), (int) data[node]);
+    }
+
+    // Building ===================================================================
+
+    private int add (Kind kind, int line, int column, int value, long extra) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            payload = Arrays.copyOf(payload, capacity);
+            data = Arrays.copyOf(data, capacity);
+            lastChild = Arrays.copyOf(lastChild, capacity);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        lines[size] = line;
+        columns[size] = column;
+        firstChild[size] = NONE;
+        nextSibling[size] = NONE;
+        lastChild[size] = NONE;
+        payload[size] = value;
+        data[size] = extra;
+        return size++;
+    }
+
+    private int add (Kind kind, Node node, int value, long extra) {
+        return add(kind, node.lineNumber(), node.charPosition(), value, extra);
+    }
+
+    private void appendChild (int parent, int child) {
+        if (lastChild[parent] == NONE) {
+            firstChild[parent] = child;
+        } else {
+            nextSibling[lastChild[parent]] = child;
+        }
+        lastChild[parent] = child;
+    }
+
+    private int intern (Object constant) {
+        Integer index = identityIndex.get(constant);
+        if (index == null) {
+            index = pool.size();
+            pool.add(constant);
+            identityIndex.put(constant, index);
+        }
+        return index;
+    }
+
+    private int lexeme (Token token) {
+        String lexeme = token.lexeme();
+        Integer index = lexemeIndex.get(lexeme);
+        if (index == null) {
+            index = pool.size();
+            pool.add(lexeme);
+            lexemeIndex.put(lexeme, index);
+        }
+        return index;
+    }
+
+    private int addToken (Kind kind, Node node, Token token) {
+        if (token == null) {
+            return add(kind, node, NONE, 0);
+        }
+        long position = ((long) token.lineNumber() << 32) | (token.charPosition() & 0xFFFFFFFFL);
+        return add(kind, node, lexeme(token), position);
+    }
+
+    // starts a program: the computation node and its global declarations
+    public void beginComputation (Symbol main, DeclarationList variables) {
+        root = add(Kind.COMPUTATION, 0, 0, intern(main), 0);
+        appendChild(root, pack(variables));
+    }
+
+    // packs a parsed function so its node objects can be dropped
+    public void addFunction (FunctionDeclaration function) {
+        appendChild(root, pack(function));
+    }
+
+    // the computation takes its position from where parsing ended
+    public void endComputation (int line, int column, StatementSequence mainSequence, int symbolCount) {
+        lines[root] = line;
+        columns[root] = column;
+        appendChild(root, pack(mainSequence));
+        lastChild = null;
+        this.symbolCount = symbolCount;
+    }
+
+    // the whole tree at once
+    public static Arena pack (AST ast) {
+        Arena arena = new Arena();
+        Computation computation = ast.computation();
+        if (computation != null) {
+            arena.beginComputation(computation.main(), computation.variables());
+            for (FunctionDeclaration function : computation.functions()) {
+                arena.addFunction(function);
+            }
+            arena.endComputation(computation.lineNumber(), computation.charPosition(),
+                    computation.mainStatementSequence(), ast.symbolCount());
+        } else {
+            arena.symbolCount = ast.symbolCount();
+        }
+        return arena;
+    }
+
+    private int packAll (int parent, List<? extends Node> nodes) {
+        for (Node node : nodes) {
+            appendChild(parent, pack(node));
+        }
+        return parent;
+    }
+
+    private int packChildren (int parent, Object... nodes) {
+        for (Object node : nodes) {
+            appendChild(parent, pack((Node) node));
+        }
+        return parent;
+    }
+
+    private int pack (Node node) {
+        if (node == null) {
+            return add(Kind.ABSENT, 0, 0, NONE, 0);
+        }
+        if (node instanceof DeclarationList n) {
+            return packAll(add(Kind.DECLARATION_LIST, n, NONE, 0), n.declarations());
+        } else if (node instanceof VariableDeclaration n) {
+            int decl = add(Kind.VARIABLE_DECLARATION, n, intern(n.type()), 0);
+            for (Symbol symbol : n.variables()) {
+                appendChild(decl, add(Kind.DECLARED_SYMBOL, 0, 0, intern(symbol), 0));
+            }
+            return decl;
+        } else if (node instanceof FunctionDeclaration n) {
+            int decl = add(Kind.FUNCTION_DECLARATION, n, intern(n.function()), intern(n.returnType()));
+            for (Symbol parameter : n.parameters()) {
+                appendChild(decl, add(Kind.DECLARED_SYMBOL, 0, 0, intern(parameter), 0));
+            }
+            return packChildren(decl, n.body());
+        } else if (node instanceof FunctionBody n) {
+            int body = packAll(add(Kind.FUNCTION_BODY, n, NONE, 0), n.variables());
+            return packChildren(body, n.statements());
+        } else if (node instanceof StatementSequence n) {
+            return packAll(add(Kind.STATEMENT_SEQUENCE, n, NONE, 0), n.statements().stream().map(s -> (Node) s).toList());
+        } else if (node instanceof Assignment n) {
+            return packChildren(addToken(Kind.ASSIGNMENT, n, n.operator()), n.destination(), n.source());
+        } else if (node instanceof FunctionCall n) {
+            return packChildren(add(Kind.FUNCTION_CALL, n, intern(n.function()), 0), n.arguments());
+        } else if (node instanceof ArgumentList n) {
+            return packAll(add(Kind.ARGUMENT_LIST, n, NONE, 0), n.arguments().stream().map(a -> (Node) a).toList());
+        } else if (node instanceof IfStatement n) {
+            return packChildren(add(Kind.IF_STATEMENT, n, NONE, 0), n.condition(), n.thenBranch(), n.elseBranch());
+        } else if (node instanceof WhileStatement n) {
+            return packChildren(add(Kind.WHILE_STATEMENT, n, NONE, 0), n.condition(), n.body());
+        } else if (node instanceof RepeatStatement n) {
+            return packChildren(add(Kind.REPEAT_STATEMENT, n, NONE, 0), n.body(), n.condition());
+        } else if (node instanceof ReturnStatement n) {
+            return packChildren(add(Kind.RETURN_STATEMENT, n, NONE, 0), n.expression());
+        } else if (node instanceof Addition n) {
+            return packChildren(addToken(Kind.ADDITION, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof Subtraction n) {
+            return packChildren(addToken(Kind.SUBTRACTION, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof Multiplication n) {
+            return packChildren(addToken(Kind.MULTIPLICATION, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof Division n) {
+            return packChildren(addToken(Kind.DIVISION, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof Modulo n) {
+            return packChildren(addToken(Kind.MODULO, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof Power n) {
+            return packChildren(addToken(Kind.POWER, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof LogicalAnd n) {
+            return packChildren(addToken(Kind.LOGICAL_AND, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof LogicalOr n) {
+            return packChildren(addToken(Kind.LOGICAL_OR, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof Relation n) {
+            return packChildren(addToken(Kind.RELATION, n, n.operator()), n.left(), n.right());
+        } else if (node instanceof LogicalNot n) {
+            return packChildren(addToken(Kind.LOGICAL_NOT, n, n.operator()), n.operand());
+        } else if (node instanceof ArrayIndex n) {
+            return packChildren(add(Kind.ARRAY_INDEX, n, NONE, 0), n.array(), n.index());
+        } else if (node instanceof Designator n) {
+            return add(Kind.DESIGNATOR, n, intern(n.symbol()), 0);
+        } else if (node instanceof AddressOf n) {
+            return packChildren(add(Kind.ADDRESS_OF, n, NONE, 0), n.operand());
+        } else if (node instanceof Dereference n) {
+            return packChildren(add(Kind.DEREFERENCE, n, NONE, 0), n.operand());
+        } else if (node instanceof IntegerLiteral n) {
+            return addToken(Kind.INTEGER_LITERAL, n, n.token());
+        } else if (node instanceof FloatLiteral n) {
+            return addToken(Kind.FLOAT_LITERAL, n, n.token());
+        } else if (node instanceof BoolLiteral n) {
+            return addToken(Kind.BOOL_LITERAL, n, n.token());
+        }
+        throw new IllegalArgumentException("Cannot pack " + node.getClass().getSimpleName());
+    }
+
+    // Adapter ====================================================================
+
+    // the program as ordinary nodes; a function is materialized when it is
+    // asked for, and the same node is returned for as long as anybody holds it,
+    // so nodes can still be compared and used as keys
+    public AST toAST () {
+        if (root == NONE) {
+            return new AST(null, symbolCount);
+        }
+        int variables = firstChild[root];
+        int[] functions = new int[countChildren(root) - 2];
+        int c = nextSibling[variables];
+        for (int i = 0; i < functions.length; i++, c = nextSibling[c]) {
+            functions[i] = c;
+        }
+        int mainSequence = c;
+        @SuppressWarnings("unchecked")
+        WeakReference<FunctionDeclaration>[] materialized = new WeakReference[functions.length];
+        List<FunctionDeclaration> lazyFunctions = new AbstractList<>() {
+            @Override
+            public FunctionDeclaration get (int i) {
+                FunctionDeclaration function = materialized[i] == null ? null : materialized[i].get();
+                if (function == null) {
+                    function = (FunctionDeclaration) node(functions[i]);
+                    materialized[i] = new WeakReference<>(function);
+                }
+                return function;
+            }
+
+            @Override
+            public int size () {
+                return functions.length;
+            }
+        };
+        Computation computation = new Computation(lines[root], columns[root], symbol(root),
+                (DeclarationList) node(variables), lazyFunctions, (StatementSequence) node(mainSequence));
+        return new AST(computation, symbolCount);
+    }
+
+    private int countChildren (int node) {
+        int count = 0;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            count++;
+        }
+        return count;
+    }
+
+    private Expression expression (int node) {
+        return (Expression) node(node);
+    }
+
+    // materializes the subtree rooted at node as fresh Node objects
+    public Node node (int node) {
+        int line = lines[node];
+        int column = columns[node];
+        int first = firstChild[node];
+        int second = first == NONE ? NONE : nextSibling[first];
+        switch (kind(node)) {
+            case ABSENT:
+                return null;
+            case DECLARATION_LIST: {
+                DeclarationList list = new DeclarationList(line, column);
+                for (int c = first; c != NONE; c = nextSibling[c]) {
+                    list.addDeclaration((VariableDeclaration) node(c));
+                }
+                return list;
+            }
+            case VARIABLE_DECLARATION: {
+                List<Symbol> variables = new ArrayList<>();
+                for (int c = first; c != NONE; c = nextSibling[c]) {
+                    variables.add(symbol(c));
+                }
+                return new VariableDeclaration(line, column, declaredType(node), variables);
+            }
+            case FUNCTION_DECLARATION: {
+                // parameters come first, as DECLARED_SYMBOL children
+                List<Symbol> parameters = new ArrayList<>();
+                int c = first;
+                for (; kind(c) == Kind.DECLARED_SYMBOL; c = nextSibling[c]) {
+                    parameters.add(symbol(c));
+                }
+                int body = c;   // materialized when the body is asked for
+                return new FunctionDeclaration(line, column, symbol(node), parameters, declaredType(node),
+                        () -> (FunctionBody) node(body));
+            }
+            case FUNCTION_BODY: {
+                FunctionBody body = new FunctionBody(line, column);
+                int c = first;
+                for (; kind(c) == Kind.VARIABLE_DECLARATION; c = nextSibling[c]) {
+                    body.addVariable((VariableDeclaration) node(c));
+                }
+                for (int s = firstChild[c]; s != NONE; s = nextSibling[s]) {
+                    body.statements().addStatement((Statement) node(s));
+                }
+                return body;
+            }
+            case STATEMENT_SEQUENCE: {
+                StatementSequence sequence = new StatementSequence(line, column);
+                for (int c = first; c != NONE; c = nextSibling[c]) {
+                    sequence.addStatement((Statement) node(c));
+                }
+                return sequence;
+            }
+            case ASSIGNMENT:
+                return new Assignment(line, column, expression(first), token(node), expression(second));
+            case FUNCTION_CALL:
+                return new FunctionCall(line, column, symbol(node), (ArgumentList) node(first));
+            case ARGUMENT_LIST: {
+                ArgumentList arguments = new ArgumentList(line, column);
+                for (int c = first; c != NONE; c = nextSibling[c]) {
+                    arguments.addArgument(expression(c));
+                }
+                return arguments;
+            }
+            case IF_STATEMENT:
+                return new IfStatement(line, column, expression(first),
+                        (StatementSequence) node(second), (StatementSequence) node(nextSibling[second]));
+            case WHILE_STATEMENT:
+                return new WhileStatement(line, column, expression(first), (StatementSequence) node(second));
+            case REPEAT_STATEMENT:
+                return new RepeatStatement(line, column, (StatementSequence) node(first), expression(second));
+            case RETURN_STATEMENT:
+                return new ReturnStatement(line, column, expression(first));
+            case ADDITION:
+                return new Addition(line, column, expression(first), token(node), expression(second));
+            case SUBTRACTION:
+                return new Subtraction(line, column, expression(first), token(node), expression(second));
+            case MULTIPLICATION:
+                return new Multiplication(line, column, expression(first), token(node), expression(second));
+            case DIVISION:
+                return new Division(line, column, expression(first), token(node), expression(second));
+            case MODULO:
+                return new Modulo(line, column, expression(first), token(node), expression(second));
+            case POWER:
+                return new Power(line, column, expression(first), token(node), expression(second));
+            case LOGICAL_AND:
+                return new LogicalAnd(line, column, expression(first), token(node), expression(second));
+            case LOGICAL_OR:
+                return new LogicalOr(line, column, expression(first), token(node), expression(second));
+            case RELATION:
+                return new Relation(line, column, expression(first), token(node), expression(second));
+            case LOGICAL_NOT:
+                return new LogicalNot(line, column, token(node), expression(first));
+            case ARRAY_INDEX:
+                return new ArrayIndex(line, column, expression(first), expression(second));
+            case DESIGNATOR:
+                return new Designator(line, column, symbol(node));
+            case ADDRESS_OF:
+                return new AddressOf(line, column, expression(first));
+            case DEREFERENCE:
+                return new Dereference(line, column, expression(first));
+            case INTEGER_LITERAL:
+                return new IntegerLiteral(line, column, token(node));
+            case FLOAT_LITERAL:
+                return new FloatLiteral(line, column, token(node));
+            case BOOL_LITERAL:
+                return new BoolLiteral(line, column, token(node));
+            default:
+                throw new IllegalStateException("Cannot materialize " + kind(node) + " as a single node");
+        }
+    }
+}
@@ -1,32 +1,91 @@
 package ast;
 
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 import mocha.Symbol;
 import types.Type;
 
 public class FunctionDeclaration extends Node {
     private Symbol function;
+    private List<Symbol> parameters;
     private FunctionBody body;
     private Type returnType;
 
-    public FunctionDeclaration(int lineNum, int charPos, Symbol function, Type returnType, FunctionBody body) {
+    // set while the body is still unparsed source; see Compiler.genLazyAST
+    private Supplier<FunctionBody> deferredBody;
+    private Consumer<FunctionDeclaration> onParse;
+
+    // computed on first use; null when the tree did not come from source
+    private Supplier<FunctionFingerprint> fingerprintSource;
+    private FunctionFingerprint fingerprint;
+
+    public FunctionDeclaration(int lineNum, int charPos, Symbol function, List<Symbol> parameters, Type returnType, FunctionBody body) {
         super(lineNum, charPos);
         this.function = function;
+        this.parameters = parameters;
         this.returnType = returnType;
         this.body = body;
     }
 
+    // body is produced by deferredBody the first time somebody asks for it
+    public FunctionDeclaration(int lineNum, int charPos, Symbol function, List<Symbol> parameters, Type returnType, Supplier<FunctionBody> deferredBody) {
+        super(lineNum, charPos);
+        this.function = function;
+        this.parameters = parameters;
+        this.returnType = returnType;
+        this.deferredBody = deferredBody;
+    }
+
     public Symbol function() {
         return function;
     }
 
+    // in declaration order
+    public List<Symbol> parameters() {
+        return parameters;
+    }
+
     public Type returnType() {
         return returnType;
     }
 
-    public FunctionBody body() {
+    public synchronized FunctionBody body() {
+        if (deferredBody != null) {
+            body = deferredBody.get();
+            deferredBody = null;
+            if (onParse != null) {
+                Consumer<FunctionDeclaration> action = onParse;
+                onParse = null;
+                action.accept(this);
+            }
+        }
         return body;
     }
 
+    public synchronized FunctionFingerprint fingerprint() {
+        if (fingerprint == null && fingerprintSource != null) {
+            fingerprint = fingerprintSource.get();
+            fingerprintSource = null;
+        }
+        return fingerprint;
+    }
+
+    public synchronized void setFingerprint(Supplier<FunctionFingerprint> source) {
+        fingerprint = null;
+        fingerprintSource = source;
+    }
+
+    // runs action once the body exists: now, or right after it is parsed
+    public synchronized void whenParsed(Consumer<FunctionDeclaration> action) {
+        if (deferredBody == null) {
+            action.accept(this);
+        } else {
+            onParse = onParse == null ? action : onParse.andThen(action);
+        }
+    }
+
     @Override
     public void accept(NodeVisitor visitor) {
         visitor.visit(this);
@@ -0,0 +1,10 @@
+package ast;
+
+/**
+ * What a function's type check depends on, as far as its own source goes:
+ * a hash of its tokens and of the global declarations, the line its text
+ * starts on (positions inside the hash are relative to it), and the
+ * String.hashCode() of every function name it calls, sorted.
+ */
+public record FunctionFingerprint(long hash, int lineNumber, int[] calls) {
+}
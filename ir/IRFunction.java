@@ -16,6 +16,7 @@ public class IRFunction {
     private final ControlFlowGraph cfg;
     private BasicBlock entry;
     private BasicBlock exit;
+    private List<Symbol> parameters = List.of();
 
     public IRFunction(Symbol symbol) {
         this(symbol, new ControlFlowGraph());
@@ -34,6 +35,18 @@ public class IRFunction {
         return symbol;
     }
 
+    /**
+     * The function's parameters in declaration order; calls bind their
+     * arguments to these.
+     */
+    public List<Symbol> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(List<Symbol> parameters) {
+        this.parameters = List.copyOf(Objects.requireNonNull(parameters, "Parameters cannot be null"));
+    }
+
     public ControlFlowGraph getControlFlowGraph() {
         return cfg;
     }
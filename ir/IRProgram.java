@@ -17,6 +17,7 @@ public class IRProgram {
     private final List<IRFunction> functions = new ArrayList<>();
     private IRFunction entryFunction;
     private final Set<mocha.Symbol> globals = new HashSet<>();
+    private int symbolCount;
 
     public void addFunction(IRFunction function) {
         Objects.requireNonNull(function, "IRFunction cannot be null");
@@ -49,6 +50,18 @@ public class IRProgram {
         return Collections.unmodifiableSet(globals);
     }
 
+    /**
+     * Every Variable's symbol id is below this, so per-symbol data can live
+     * in arrays or bitsets of this size.
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    public void setSymbolCount(int symbolCount) {
+        this.symbolCount = symbolCount;
+    }
+
     /**
      * Emit a combined DOT string for every function CFG.
      */
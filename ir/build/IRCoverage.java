@@ -0,0 +1,264 @@
+package ir.build;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import ast.Addition;
+import ast.Assignment;
+import ast.BoolLiteral;
+import ast.Computation;
+import ast.Designator;
+import ast.Division;
+import ast.Expression;
+import ast.FloatLiteral;
+import ast.FunctionCall;
+import ast.FunctionDeclaration;
+import ast.IfStatement;
+import ast.IntegerLiteral;
+import ast.Multiplication;
+import ast.Power;
+import ast.Relation;
+import ast.RepeatStatement;
+import ast.ReturnStatement;
+import ast.Statement;
+import ast.StatementSequence;
+import ast.Subtraction;
+import ast.VariableDeclaration;
+import ast.WhileStatement;
+import mocha.Symbol;
+import types.ArrayType;
+import types.CallTargets;
+
+/**
+ * Which parts of a program the IRGenerator lowers exactly. It handles
+ * scalar variables, arithmetic, relations as branch conditions, and calls
+ * of user functions and of the read and print functions; anything else
+ * (arrays, %, logical operators, relations as values, arrcpy) it lowers
+ * to 0, so IR made from code using it does not compute what the program
+ * does and must not be run in its place.
+ *
+ * Each function is checked once, and a function is only as exact as the
+ * functions it calls.
+ */
+public final class IRCoverage {
+
+    private final Computation computation;
+    private final CallTargets targets;
+    private final Map<FunctionDeclaration, String> reasons = new HashMap<>();     // "" if none
+    private final Map<FunctionDeclaration, Set<FunctionDeclaration>> callees = new HashMap<>();
+
+    public IRCoverage(Computation computation) {
+        this.computation = computation;
+        this.targets = new CallTargets(computation);
+    }
+
+    /**
+     * Why the IR of the program, main and every function it can call, does
+     * not compute what the program does, or "" if it does.
+     */
+    public String unsupported() {
+        if (computation == null) {
+            return "";
+        }
+        Set<FunctionDeclaration> calls = new LinkedHashSet<>();
+        String reason = statements(computation.mainStatementSequence(), calls);
+        if (!reason.isEmpty()) {
+            return "main " + reason;
+        }
+        for (FunctionDeclaration function : calls) {
+            reason = unsupported(function);
+            if (!reason.isEmpty()) {
+                return reason;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Why the IR of function, or of a function it can call, does not compute
+     * what the program does, or "" if it does.
+     */
+    public String unsupported(FunctionDeclaration function) {
+        for (FunctionDeclaration f : closure(function)) {
+            String reason = check(f);
+            if (!reason.isEmpty()) {
+                return f.function().name() + " " + reason;
+            }
+        }
+        return "";
+    }
+
+    /** function and every user function it can call, function first. */
+    public Set<FunctionDeclaration> closure(FunctionDeclaration function) {
+        Set<FunctionDeclaration> closure = new LinkedHashSet<>();
+        Deque<FunctionDeclaration> work = new ArrayDeque<>();
+        work.push(function);
+        while (!work.isEmpty()) {
+            FunctionDeclaration f = work.pop();
+            if (closure.add(f)) {
+                check(f);
+                work.addAll(callees.get(f));
+            }
+        }
+        return closure;
+    }
+
+    // why function itself is not lowered exactly, or ""; notes what it calls in callees
+    private String check(FunctionDeclaration function) {
+        String reason = reasons.get(function);
+        if (reason == null) {
+            Set<FunctionDeclaration> calls = new LinkedHashSet<>();
+            callees.put(function, calls);
+            reason = declarations(function);
+            if (reason.isEmpty()) {
+                reason = statements(function.body().statements(), calls);
+            }
+            reasons.put(function, reason);
+        }
+        return reason;
+    }
+
+    private static String declarations(FunctionDeclaration function) {
+        if (function.returnType() instanceof ArrayType) {
+            return "returns an array";
+        }
+        if (function.parameters() != null) {
+            for (Symbol parameter : function.parameters()) {
+                if (parameter.type() instanceof ArrayType) {
+                    return "takes an array";
+                }
+            }
+        }
+        for (VariableDeclaration declaration : function.body().variables()) {
+            for (Symbol variable : declaration.variables()) {
+                if (variable.type() instanceof ArrayType) {
+                    return "has an array";
+                }
+            }
+        }
+        return "";
+    }
+
+    private String statements(StatementSequence sequence, Set<FunctionDeclaration> calls) {
+        if (sequence == null) {
+            return "";
+        }
+        for (Statement statement : sequence.statements()) {
+            String reason;
+            if (statement instanceof Assignment assignment) {
+                reason = assignment.destination() instanceof Designator destination
+                        ? variable(destination) : "stores into an array";
+                if (reason.isEmpty()) {
+                    reason = expression(assignment.source(), calls);
+                }
+            } else if (statement instanceof FunctionCall call) {
+                reason = call(call, calls);
+            } else if (statement instanceof IfStatement branch) {
+                reason = condition(branch.condition(), calls);
+                if (reason.isEmpty()) {
+                    reason = statements(branch.thenBranch(), calls);
+                }
+                if (reason.isEmpty()) {
+                    reason = statements(branch.elseBranch(), calls);
+                }
+            } else if (statement instanceof WhileStatement loop) {
+                reason = condition(loop.condition(), calls);
+                if (reason.isEmpty()) {
+                    reason = statements(loop.body(), calls);
+                }
+            } else if (statement instanceof RepeatStatement loop) {
+                reason = statements(loop.body(), calls);
+                if (reason.isEmpty()) {
+                    reason = condition(loop.condition(), calls);
+                }
+            } else if (statement instanceof ReturnStatement ret) {
+                reason = ret.expression() == null ? "" : expression(ret.expression(), calls);
+            } else {
+                reason = "has a " + statement.getClass().getSimpleName();
+            }
+            if (!reason.isEmpty()) {
+                return reason;
+            }
+        }
+        return "";
+    }
+
+    // a relation is only lowered where it decides a branch
+    private String condition(Expression condition, Set<FunctionDeclaration> calls) {
+        if (condition instanceof Relation relation) {
+            String reason = expression(relation.left(), calls);
+            return reason.isEmpty() ? expression(relation.right(), calls) : reason;
+        }
+        return expression(condition, calls);
+    }
+
+    private String expression(Expression expression, Set<FunctionDeclaration> calls) {
+        if (expression instanceof IntegerLiteral || expression instanceof FloatLiteral
+                || expression instanceof BoolLiteral) {
+            return "";
+        }
+        if (expression instanceof Designator designator) {
+            return variable(designator);
+        }
+        if (expression instanceof FunctionCall call) {
+            return call(call, calls);
+        }
+        Expression left;
+        Expression right;
+        if (expression instanceof Addition e) {
+            left = e.left();
+            right = e.right();
+        } else if (expression instanceof Subtraction e) {
+            left = e.left();
+            right = e.right();
+        } else if (expression instanceof Multiplication e) {
+            left = e.left();
+            right = e.right();
+        } else if (expression instanceof Division e) {
+            left = e.left();
+            right = e.right();
+        } else if (expression instanceof Power e) {
+            left = e.left();
+            right = e.right();
+        } else {
+            return "uses a " + expression.getClass().getSimpleName();
+        }
+        String reason = expression(left, calls);
+        return reason.isEmpty() ? expression(right, calls) : reason;
+    }
+
+    private static String variable(Designator designator) {
+        return designator.symbol().type() instanceof ArrayType ? "uses an array" : "";
+    }
+
+    private String call(FunctionCall call, Set<FunctionDeclaration> calls) {
+        FunctionDeclaration target = targets.resolve(call);
+        if (target != null) {
+            calls.add(target);
+        } else {
+            switch (call.function().name()) {
+                case "readInt":
+                case "readFloat":
+                case "readBool":
+                case "printInt":
+                case "printFloat":
+                case "printBool":
+                case "println":
+                    break;
+                default:
+                    return "calls " + call.function().name();
+            }
+        }
+        for (Expression argument : call.arguments().arguments()) {
+            String reason = expression(argument, calls);
+            if (!reason.isEmpty()) {
+                return reason;
+            }
+        }
+        return "";
+    }
+}
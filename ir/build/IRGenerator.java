@@ -30,16 +30,20 @@ import ir.tac.Copy;
 import ir.tac.Div;
 import ir.tac.Literal;
 import ir.tac.Mul;
+import ir.tac.Pow;
 import ir.tac.Return;
 import ir.tac.Sub;
 import ir.tac.Value;
 import ir.tac.Variable;
 import mocha.Symbol;
+import types.CallTargets;
 
 public class IRGenerator {
 
     private final AtomicInteger id = new AtomicInteger();
+    private int nextSymbolId;   // temporaries are numbered after the front end's symbols
     private final Map<Symbol, Variable> globals = new HashMap<>();
+    private CallTargets targets;
 
     private Map<Symbol, Variable> locals;
     private IRFunction currentFunction;
@@ -49,9 +53,13 @@ public class IRGenerator {
     public IRProgram generate(ast.AST astRoot) {
         Computation comp = astRoot.computation();
         IRProgram program = new IRProgram();
+        // bodies that are still unparsed take their symbol ids before the temporaries do
+        astRoot.parseFunctionBodies();
+        nextSymbolId = astRoot.symbolCount();
         if (comp == null) {
             return program;
         }
+        targets = new CallTargets(comp);
         // collect globals
         emitGlobals(comp.variables());
         // main
@@ -62,11 +70,16 @@ public class IRGenerator {
         // other functions
         for (FunctionDeclaration fnDecl : comp.functions()) {
             IRFunction fn = newFunction(fnDecl.function());
+            if (fnDecl.parameters() != null) {
+                fn.setParameters(fnDecl.parameters());
+                fnDecl.parameters().forEach(param -> locals.put(param, new Variable(param)));
+            }
             emitLocals(fnDecl.body().variables());
             buildFunctionBody(fnDecl.body().statements(), null);
             program.addFunction(fn);
         }
         program.setGlobalSymbols(globals.keySet());
+        program.setSymbolCount(nextSymbolId);
         return program;
     }
 
@@ -111,13 +124,13 @@ public class IRGenerator {
         BasicBlock entry = currentFunction.getEntry();
         BasicBlock exit = exitBlock;
         BasicBlock start = entry;
-        BasicBlock end = buildStatements(body, start, exit);
+        BasicBlock end = buildStatements(body, start);
         if (end != null && end != exit) {
             end.addSuccessor(exit);
         }
     }
 
-    private BasicBlock buildStatements(StatementSequence seq, BasicBlock current, BasicBlock follow) {
+    private BasicBlock buildStatements(StatementSequence seq, BasicBlock current) {
         BasicBlock cursor = current;
         if (seq == null) return cursor;
         for (Statement stmt : seq.statements()) {
@@ -127,11 +140,11 @@ public class IRGenerator {
             } else if (stmt instanceof ast.FunctionCall call) {
                 emitCall(call, cursor);
             } else if (stmt instanceof ast.IfStatement ifs) {
-                cursor = emitIf(ifs, cursor, follow);
+                cursor = emitIf(ifs, cursor);
             } else if (stmt instanceof ast.WhileStatement ws) {
-                cursor = emitWhile(ws, cursor, follow);
+                cursor = emitWhile(ws, cursor);
             } else if (stmt instanceof ast.RepeatStatement rs) {
-                cursor = emitRepeat(rs, cursor, follow);
+                cursor = emitRepeat(rs, cursor);
             } else if (stmt instanceof ast.ReturnStatement ret) {
                 emitReturn(ret, cursor);
                 cursor = null; // terminate block
@@ -151,7 +164,7 @@ public class IRGenerator {
         if (call.arguments() != null) {
             call.arguments().arguments().forEach(arg -> args.add(materializeExpression(arg, block)));
         }
-        block.addInstruction(new Call(id.incrementAndGet(), call.function(), args));
+        block.addInstruction(new Call(id.incrementAndGet(), callee(call), args));
     }
 
     private void emitReturn(ast.ReturnStatement ret, BasicBlock block) {
@@ -163,59 +176,62 @@ public class IRGenerator {
         block.addSuccessor(exitBlock);
     }
 
-    private BasicBlock emitIf(ast.IfStatement ifs, BasicBlock current, BasicBlock follow) {
+    // the declared function a call runs (overloads share a name), or the
+    // predefined function it names
+    private Symbol callee(ast.FunctionCall call) {
+        FunctionDeclaration target = targets.resolve(call);
+        return target != null ? target.function() : call.function();
+    }
+
+    private BasicBlock emitIf(ast.IfStatement ifs, BasicBlock current) {
         BasicBlock thenBlock = new BasicBlock(newBlockId());
-        BasicBlock elseBlock = ifs.elseBranch() != null ? new BasicBlock(newBlockId()) : follow;
-        BasicBlock after = follow != null ? follow : new BasicBlock(newBlockId());
+        BasicBlock elseBlock = ifs.elseBranch() != null ? new BasicBlock(newBlockId()) : null;
+        BasicBlock after = new BasicBlock(newBlockId());
         // condition jump
         emitCondition(ifs.condition(), current, thenBlock, elseBlock != null ? elseBlock : after);
         currentFunction.addBlock(thenBlock);
-        BasicBlock endThen = buildStatements(ifs.thenBranch(), thenBlock, after);
+        BasicBlock endThen = buildStatements(ifs.thenBranch(), thenBlock);
         if (endThen != null) {
             endThen.addSuccessor(after);
         }
         if (ifs.elseBranch() != null) {
             currentFunction.addBlock(elseBlock);
-            BasicBlock endElse = buildStatements(ifs.elseBranch(), elseBlock, after);
+            BasicBlock endElse = buildStatements(ifs.elseBranch(), elseBlock);
             if (endElse != null) {
                 endElse.addSuccessor(after);
             }
         }
-        if (follow == null) {
-            currentFunction.addBlock(after);
-        }
+        currentFunction.addBlock(after);
         return after;
     }
 
-    private BasicBlock emitWhile(ast.WhileStatement ws, BasicBlock current, BasicBlock follow) {
+    private BasicBlock emitWhile(ast.WhileStatement ws, BasicBlock current) {
         BasicBlock condBlock = new BasicBlock(newBlockId());
         current.addSuccessor(condBlock);
         currentFunction.addBlock(condBlock);
         BasicBlock body = new BasicBlock(newBlockId());
-        BasicBlock after = follow != null ? follow : new BasicBlock(newBlockId());
+        BasicBlock after = new BasicBlock(newBlockId());
         emitCondition(ws.condition(), condBlock, body, after);
         currentFunction.addBlock(body);
-        BasicBlock endBody = buildStatements(ws.body(), body, condBlock);
+        BasicBlock endBody = buildStatements(ws.body(), body);
         if (endBody != null) {
             endBody.addSuccessor(condBlock);
         }
-        if (follow == null) {
-            currentFunction.addBlock(after);
-        }
+        currentFunction.addBlock(after);
         return after;
     }
 
-    private BasicBlock emitRepeat(ast.RepeatStatement rs, BasicBlock current, BasicBlock follow) {
+    private BasicBlock emitRepeat(ast.RepeatStatement rs, BasicBlock current) {
         BasicBlock body = new BasicBlock(newBlockId());
         current.addSuccessor(body);
         currentFunction.addBlock(body);
-        BasicBlock after = follow != null ? follow : new BasicBlock(newBlockId());
-        BasicBlock endBody = buildStatements(rs.body(), body, null);
-        BasicBlock condBlock = endBody != null ? endBody : body;
-        emitCondition(rs.condition(), condBlock, condBlock, after);
-        if (follow == null) {
-            currentFunction.addBlock(after);
+        BasicBlock after = new BasicBlock(newBlockId());
+        BasicBlock endBody = buildStatements(rs.body(), body);
+        if (endBody != null) {
+            // the body runs again from its top while the condition holds
+            emitCondition(rs.condition(), endBody, body, after);
         }
+        currentFunction.addBlock(after);
         return after;
     }
 
@@ -257,7 +273,7 @@ public class IRGenerator {
             globals.put(des.symbol(), v);
             return v;
         }
-        Symbol tempSym = new Symbol("tmp" + locals.size(), null, false);
+        Symbol tempSym = new Symbol(nextSymbolId++, "tmp" + locals.size(), null, false);
         return locals.computeIfAbsent(tempSym, s -> new Variable(s));
     }
 
@@ -282,19 +298,22 @@ public class IRGenerator {
         if (expr instanceof Division div) {
             return materializeBinary(div.left(), div.right(), block, Op.DIV);
         }
+        if (expr instanceof ast.Power pow) {
+            return materializeBinary(pow.left(), pow.right(), block, Op.POW);
+        }
         if (expr instanceof ast.FunctionCall call) {
             ir.tac.ValueList args = new ir.tac.ValueList();
             if (call.arguments() != null) {
                 call.arguments().arguments().forEach(arg -> args.add(materializeExpression(arg, block)));
             }
             Variable tmp = newTemp();
-            block.addInstruction(new Call(id.incrementAndGet(), tmp, call.function(), args));
+            block.addInstruction(new Call(id.incrementAndGet(), tmp, callee(call), args));
             return tmp;
         }
         return new Literal(new ast.IntegerLiteral(0, 0, new mocha.Token("0", 0, 0)));
     }
 
-    private enum Op { ADD, SUB, MUL, DIV }
+    private enum Op { ADD, SUB, MUL, DIV, POW }
 
     private Value materializeBinary(Expression l, Expression r, BasicBlock block, Op op) {
         Value left = materializeExpression(l, block);
@@ -305,6 +324,7 @@ public class IRGenerator {
             case SUB -> block.addInstruction(new Sub(id.incrementAndGet(), tmp, left, right));
             case MUL -> block.addInstruction(new Mul(id.incrementAndGet(), tmp, left, right));
             case DIV -> block.addInstruction(new Div(id.incrementAndGet(), tmp, left, right));
+            case POW -> block.addInstruction(new Pow(id.incrementAndGet(), tmp, left, right));
         }
         return tmp;
     }
@@ -314,7 +334,7 @@ public class IRGenerator {
     }
 
     private Variable newTemp() {
-        Symbol sym = new Symbol("t" + id.getAndIncrement(), null, false);
+        Symbol sym = new Symbol(nextSymbolId++, "t" + id.getAndIncrement(), null, false);
         return new Variable(sym);
     }
 }
@@ -0,0 +1,573 @@
+package ir.exec;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ast.BoolLiteral;
+import ast.FloatLiteral;
+import ast.IntegerLiteral;
+import ir.IRFunction;
+import ir.IRProgram;
+import ir.cfg.BasicBlock;
+import ir.tac.Add;
+import ir.tac.Assign;
+import ir.tac.Branch;
+import ir.tac.Call;
+import ir.tac.ConditionalBranch;
+import ir.tac.Copy;
+import ir.tac.Div;
+import ir.tac.Literal;
+import ir.tac.Load;
+import ir.tac.Mul;
+import ir.tac.Neg;
+import ir.tac.Phi;
+import ir.tac.Pow;
+import ir.tac.Read;
+import ir.tac.Return;
+import ir.tac.Store;
+import ir.tac.Sub;
+import ir.tac.TAC;
+import ir.tac.Value;
+import ir.tac.Variable;
+import ir.tac.Write;
+import mocha.DataReader;
+import mocha.DataWriter;
+import mocha.Symbol;
+import types.BoolType;
+import types.FloatType;
+
+/**
+ * Runs an IRProgram as it stands, so the effect of the optimizations can be
+ * measured. Each function's blocks run instruction by instruction, skipping
+ * the ones a pass turned off (TAC.shouldEmit); a block that does not end in
+ * a branch goes on to its only successor. Read, Write and calls of the
+ * predefined functions use the program's input and output the way the
+ * Interpreter does. Every instruction run is counted against its function.
+ *
+ * Temporaries carry no type, so every value is tagged with its kind as it
+ * is computed; an operation is done in floating point if either operand is
+ * a float. Load and Store have no memory to work on and act as copies.
+ */
+public class IRExecutor {
+
+    private static final byte INT = 0;
+    private static final byte FLOAT = 1;
+    private static final byte BOOL = 2;
+
+    private final IRProgram program;
+    private final DataReader input;
+    private final DataWriter output;
+    private final Map<Symbol, Code> functions = new HashMap<>();
+    private final Frame globals;
+    private final long[] counts;     // instructions run, per function in program order
+
+    // the operand last fetched, or the value last returned
+    private long word;
+    private double real;
+    private byte kind;
+
+    public IRExecutor(IRProgram program, InputStream input) {
+        this(program, new DataReader(input));
+    }
+
+    public IRExecutor(IRProgram program, DataReader input) {
+        this.program = program;
+        this.input = input;
+        this.output = new DataWriter();
+        input.setOutput(output);
+        this.globals = new Frame(program.getSymbolCount(), null);
+        this.counts = new long[program.getFunctions().size()];
+    }
+
+    public static IRExecutor run(IRProgram program, DataReader input) {
+        IRExecutor executor = new IRExecutor(program, input);
+        executor.run();
+        return executor;
+    }
+
+    public void run() {
+        IRFunction entry = program.getEntryFunction();
+        try {
+            if (entry != null) {
+                Code code = code(entry.getSymbol());
+                execute(code, new Frame(code.frameSize, code.slots));
+            }
+        } finally {
+            output.flush();
+        }
+    }
+
+    public long count(IRFunction function) {
+        int index = program.getFunctions().indexOf(function);
+        return index < 0 ? 0 : counts[index];
+    }
+
+    public long total() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * A table of the instructions each function ran here and in optimized,
+     * a run of the same program after optimization on the same input.
+     */
+    public String compare(IRExecutor optimized) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s %12s %12s %8s%n", "function", "before", "after", "change"));
+        List<IRFunction> before = program.getFunctions();
+        List<IRFunction> after = optimized.program.getFunctions();
+        for (int i = 0; i < before.size() && i < after.size(); i++) {
+            row(report, before.get(i).getName(), counts[i], optimized.counts[i]);
+        }
+        row(report, "total", total(), optimized.total());
+        return report.toString();
+    }
+
+    private static void row(StringBuilder report, String name, long before, long after) {
+        String change = before == 0 ? "-" : String.format("%+.1f%%", 100.0 * (after - before) / before);
+        report.append(String.format("%-20s %12d %12d %8s%n", name, before, after, change));
+    }
+
+    // Functions =================================================================
+
+    // a function's blocks by number, with their live instructions
+    private static final class Code {
+
+        final int index;                // into counts
+        final List<Symbol> parameters;
+        final int[] slots;              // frame slot by symbol id, -1 for a global
+        final int frameSize;
+        final int entry;
+        final BasicBlock[] blocks;
+        final TAC[][] instructions;
+        final int[] next;               // the only successor, or -1
+
+        Code(int index, IRFunction function, Set<Symbol> globals, int symbolCount) {
+            this.index = index;
+            this.parameters = function.getParameters();
+            this.entry = function.getEntry().getNumber();
+
+            // every block control can reach, branch targets included
+            List<BasicBlock> reached = new ArrayList<>();
+            Set<BasicBlock> seen = new HashSet<>();
+            Deque<BasicBlock> work = new ArrayDeque<>();
+            work.push(function.getEntry());
+            int last = 0;
+            while (!work.isEmpty()) {
+                BasicBlock block = work.pop();
+                if (!seen.add(block)) {
+                    continue;
+                }
+                reached.add(block);
+                last = Math.max(last, block.getNumber());
+                work.addAll(block.getSuccessors());
+                for (TAC tac : block.getInstructions()) {
+                    if (tac instanceof Branch branch) {
+                        work.add(branch.target());
+                    } else if (tac instanceof ConditionalBranch cb) {
+                        work.add(cb.trueTarget());
+                        if (cb.falseTarget() != null) {
+                            work.add(cb.falseTarget());
+                        }
+                    }
+                }
+            }
+
+            blocks = new BasicBlock[last + 1];
+            instructions = new TAC[last + 1][];
+            next = new int[last + 1];
+            slots = new int[symbolCount];
+            Arrays.fill(slots, -1);
+            int size = 0;
+            for (Symbol parameter : parameters) {
+                slots[parameter.id()] = size++;
+            }
+            for (BasicBlock block : reached) {
+                int number = block.getNumber();
+                List<TAC> live = new ArrayList<>();
+                for (TAC tac : block.getInstructions()) {
+                    if (tac.shouldEmit()) {
+                        live.add(tac);
+                    }
+                }
+                blocks[number] = block;
+                instructions[number] = live.toArray(new TAC[0]);
+                next[number] = block.getSuccessors().size() == 1 ? block.getSuccessors().get(0).getNumber() : -1;
+                for (TAC tac : live) {
+                    for (Variable variable : variables(tac)) {
+                        int id = variable.id();
+                        if (slots[id] < 0 && !globals.contains(variable.symbol())) {
+                            slots[id] = size++;
+                        }
+                    }
+                }
+            }
+            frameSize = size;
+        }
+    }
+
+    // the values of one function run, or of the globals (by symbol id)
+    private static final class Frame {
+
+        final int[] slots;              // of the function, null for the globals
+        final long[] words;
+        final double[] reals;
+        final byte[] kinds;
+
+        Frame(int size, int[] slots) {
+            this.slots = slots;
+            words = new long[size];
+            reals = new double[size];
+            kinds = new byte[size];
+        }
+    }
+
+    private Code code(Symbol function) {
+        Code code = functions.get(function);
+        if (code == null && !functions.containsKey(function)) {
+            List<IRFunction> all = program.getFunctions();
+            for (int i = 0; i < all.size(); i++) {
+                if (all.get(i).getSymbol() == function) {
+                    code = new Code(i, all.get(i), program.getGlobalSymbols(), program.getSymbolCount());
+                }
+            }
+            functions.put(function, code);
+        }
+        return code;
+    }
+
+    // the variables an instruction reads or writes
+    private static List<Variable> variables(TAC tac) {
+        List<Value> values = new ArrayList<>();
+        if (tac instanceof Assign assign) {
+            values.add(assign.destination());
+            values.add(assign.leftOperand());
+            values.add(assign.rightOperand());
+        } else if (tac instanceof Call call) {
+            values.add(call.destination());
+            values.addAll(call.arguments().asList());
+        } else if (tac instanceof ConditionalBranch cb) {
+            values.add(cb.left());
+            values.add(cb.right());
+        } else if (tac instanceof Return ret) {
+            values.add(ret.value());
+        } else if (tac instanceof Read read) {
+            values.add(read.destination());
+        } else if (tac instanceof Write write) {
+            values.add(write.value());
+        } else if (tac instanceof Store store) {
+            values.add(store.address());
+            values.add(store.value());
+        } else if (tac instanceof Phi phi) {
+            values.add(phi.destination());
+            values.addAll(phi.incoming().values());
+        }
+        List<Variable> variables = new ArrayList<>();
+        for (Value value : values) {
+            if (value instanceof Variable variable) {
+                variables.add(variable);
+            }
+        }
+        return variables;
+    }
+
+    // Execution =================================================================
+
+    // runs code in frame; a value returned is left in word, real and kind
+    private void execute(Code code, Frame frame) {
+        long executed = 0;
+        int previous = -1;
+        int block = code.entry;
+        word = 0;
+        real = 0;
+        kind = INT;
+        run:
+        while (true) {
+            int next = code.next[block];
+            for (TAC tac : code.instructions[block]) {
+                executed++;
+                if (tac instanceof Assign assign) {
+                    assign(assign, frame);
+                } else if (tac instanceof ConditionalBranch cb) {
+                    if (test(cb, frame)) {
+                        next = cb.trueTarget().getNumber();
+                    } else if (cb.falseTarget() != null) {
+                        next = cb.falseTarget().getNumber();
+                    }
+                    break;
+                } else if (tac instanceof Branch branch) {
+                    next = branch.target().getNumber();
+                    break;
+                } else if (tac instanceof Call call) {
+                    call(call, frame);
+                } else if (tac instanceof Return ret) {
+                    if (ret.value() != null) {
+                        fetch(ret.value(), frame);
+                    } else {
+                        word = 0;
+                        kind = INT;
+                    }
+                    break run;
+                } else if (tac instanceof Read read) {
+                    read(read.destination(), frame);
+                } else if (tac instanceof Write write) {
+                    fetch(write.value(), frame);
+                    print(kind);
+                } else if (tac instanceof Store store) {
+                    fetch(store.value(), frame);
+                    if (store.address() instanceof Variable address) {
+                        store(address, frame);
+                    }
+                } else if (tac instanceof Phi phi) {
+                    Value incoming = previous < 0 ? null : phi.incoming().get(code.blocks[previous]);
+                    if (incoming != null) {
+                        fetch(incoming, frame);
+                        store(phi.destination(), frame);
+                    }
+                }
+            }
+            if (next < 0 || code.instructions[next] == null) {
+                word = 0;
+                kind = INT;
+                break;
+            }
+            previous = block;
+            block = next;
+        }
+        counts[code.index] += executed;
+    }
+
+    private void assign(Assign assign, Frame frame) {
+        fetch(assign.leftOperand(), frame);
+        if (assign instanceof Copy || assign instanceof Load) {
+            store(assign.destination(), frame);
+            return;
+        }
+        if (assign instanceof Neg) {
+            if (kind == FLOAT) {
+                real = -real;
+            } else {
+                word = -(int) word;
+                kind = INT;
+            }
+            store(assign.destination(), frame);
+            return;
+        }
+        long l = word;
+        double lr = real;
+        byte lk = kind;
+        fetch(assign.rightOperand(), frame);
+        if (lk == FLOAT || kind == FLOAT) {
+            double a = lk == FLOAT ? lr : l;
+            double b = kind == FLOAT ? real : word;
+            if (assign instanceof Add) {
+                real = a + b;
+            } else if (assign instanceof Sub) {
+                real = a - b;
+            } else if (assign instanceof Mul) {
+                real = a * b;
+            } else if (assign instanceof Div) {
+                real = a / b;
+            } else if (assign instanceof Pow) {
+                real = Math.pow(a, b);
+            }
+            kind = FLOAT;
+        } else {
+            int a = (int) l;
+            int b = (int) word;
+            if (assign instanceof Add) {
+                word = a + b;
+            } else if (assign instanceof Sub) {
+                word = a - b;
+            } else if (assign instanceof Mul) {
+                word = a * b;
+            } else if (assign instanceof Div) {
+                word = b == 0 ? 0 : a / b;  // as the Interpreter does
+            } else if (assign instanceof Pow) {
+                word = power(a, b);
+            }
+            kind = INT;
+        }
+        store(assign.destination(), frame);
+    }
+
+    private boolean test(ConditionalBranch cb, Frame frame) {
+        fetch(cb.left(), frame);
+        switch (cb.condition()) {
+            case ZERO:
+                return kind == FLOAT ? real == 0 : word == 0;
+            case NON_ZERO:
+                return kind == FLOAT ? real != 0 : word != 0;
+            default:
+                break;
+        }
+        long l = word;
+        double lr = real;
+        byte lk = kind;
+        fetch(cb.right(), frame);
+        int order = lk == FLOAT || kind == FLOAT
+                ? Double.compare(lk == FLOAT ? lr : l, kind == FLOAT ? real : word)
+                : Long.compare(l, word);
+        switch (cb.condition()) {
+            case EQUAL:
+                return order == 0;
+            case NOT_EQUAL:
+                return order != 0;
+            case LESS:
+                return order < 0;
+            case LESS_EQUAL:
+                return order <= 0;
+            case GREATER:
+                return order > 0;
+            default:
+                return order >= 0;
+        }
+    }
+
+    private void call(Call call, Frame frame) {
+        Symbol function = call.function();
+        Code callee = code(function);
+        if (callee != null) {
+            Frame calleeFrame = new Frame(callee.frameSize, callee.slots);
+            List<Value> arguments = call.arguments().asList();
+            for (int i = 0; i < arguments.size() && i < callee.parameters.size(); i++) {
+                fetch(arguments.get(i), frame);
+                int slot = callee.slots[callee.parameters.get(i).id()];
+                calleeFrame.words[slot] = word;
+                calleeFrame.reals[slot] = real;
+                calleeFrame.kinds[slot] = kind;
+            }
+            execute(callee, calleeFrame);
+        } else {
+            predefined(function.name(), call, frame);
+        }
+        if (call.hasDestination()) {
+            store(call.destination(), frame);
+        }
+    }
+
+    // readInt, printInt and the rest; the value of a read is left in word, real and kind
+    private void predefined(String name, Call call, Frame frame) {
+        List<Value> arguments = call.arguments().asList();
+        switch (name) {
+            case "readInt":
+                word = input.readInt();
+                kind = INT;
+                return;
+            case "readFloat":
+                real = input.readFloat();
+                kind = FLOAT;
+                return;
+            case "readBool":
+                word = input.readBool() ? 1 : 0;
+                kind = BOOL;
+                return;
+            case "printInt":
+            case "printFloat":
+            case "printBool":
+                if (!arguments.isEmpty()) {
+                    fetch(arguments.get(0), frame);
+                    print(name.equals("printInt") ? INT : name.equals("printFloat") ? FLOAT : BOOL);
+                }
+                break;
+            case "println":
+                output.println();
+                break;
+            default:
+                break;              // arrcpy: no arrays in the IR
+        }
+        word = 0;
+        kind = INT;
+    }
+
+    private void read(Variable destination, Frame frame) {
+        if (destination.symbol().type() instanceof FloatType) {
+            real = input.readFloat();
+            kind = FLOAT;
+        } else if (destination.symbol().type() instanceof BoolType) {
+            word = input.readBool() ? 1 : 0;
+            kind = BOOL;
+        } else {
+            word = input.readInt();
+            kind = INT;
+        }
+        store(destination, frame);
+    }
+
+    // prints the fetched value as as, formatted as the Interpreter does
+    private void print(byte as) {
+        if (as == FLOAT) {
+            output.printFloat(kind == FLOAT ? real : (double) word);
+        } else if (as == BOOL) {
+            output.printBool(kind == FLOAT ? real != 0 : word != 0);
+        } else {
+            output.printInt(kind == FLOAT ? (int) real : (int) word);
+        }
+    }
+
+    // Values ====================================================================
+
+    private void fetch(Value value, Frame frame) {
+        if (value instanceof Variable variable) {
+            Frame in = holder(variable, frame);
+            int at = in == frame ? frame.slots[variable.id()] : variable.id();
+            word = in.words[at];
+            real = in.reals[at];
+            kind = in.kinds[at];
+        } else if (value instanceof Literal literal) {
+            if (literal.value() instanceof IntegerLiteral i) {
+                word = i.value();
+                kind = INT;
+            } else if (literal.value() instanceof FloatLiteral f) {
+                real = f.value();
+                kind = FLOAT;
+            } else if (literal.value() instanceof BoolLiteral b) {
+                word = b.value() ? 1 : 0;
+                kind = BOOL;
+            } else {
+                word = 0;
+                kind = INT;
+            }
+        } else {
+            word = 0;
+            kind = INT;
+        }
+    }
+
+    private void store(Variable destination, Frame frame) {
+        Frame in = holder(destination, frame);
+        int at = in == frame ? frame.slots[destination.id()] : destination.id();
+        in.words[at] = word;
+        in.reals[at] = real;
+        in.kinds[at] = kind;
+    }
+
+    // frame if variable is one of its function's, else the globals
+    private Frame holder(Variable variable, Frame frame) {
+        return frame.slots[variable.id()] >= 0 ? frame : globals;
+    }
+
+    // base to the power exp with int wrap-around, as the Interpreter does
+    private static int power(int base, int exp) {
+        int result = 1;
+        while (exp > 0) {
+            if ((exp & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exp >>= 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,420 @@
+package ir.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A class file written by hand, just big enough for what the JITCompiler
+ * makes: a constant pool, static fields and static methods, for Java 17.
+ *
+ * Method code comes from a Code, which resolves its branch labels and
+ * writes the StackMapTable the verifier wants. That is kept simple by how
+ * the JIT uses it: every local is set before the first label, keeps one
+ * type throughout, and the operand stack is empty at every label, so one
+ * frame describes all of them.
+ */
+final class ClassWriter {
+
+    // opcodes used by the JIT
+    static final int ICONST_0 = 0x03, DCONST_0 = 0x0e, DCONST_1 = 0x0f;
+    static final int BIPUSH = 0x10, SIPUSH = 0x11, LDC = 0x12, LDC_W = 0x13, LDC2_W = 0x14;
+    static final int ILOAD = 0x15, DLOAD = 0x18, ALOAD = 0x19;
+    static final int LALOAD = 0x2f, DALOAD = 0x31;
+    static final int ISTORE = 0x36, DSTORE = 0x39;
+    static final int LASTORE = 0x50, DASTORE = 0x52;
+    static final int POP = 0x57, POP2 = 0x58, DUP = 0x59;
+    static final int IADD = 0x60, DADD = 0x63, ISUB = 0x64, DSUB = 0x67, IMUL = 0x68, DMUL = 0x6b;
+    static final int DDIV = 0x6f, INEG = 0x74, DNEG = 0x77, IUSHR = 0x7c, IOR = 0x80;
+    static final int I2L = 0x85, I2D = 0x87, L2I = 0x88, D2I = 0x8e;
+    static final int DCMPL = 0x97;
+    static final int IFEQ = 0x99, IFNE = 0x9a, IFLT = 0x9b, IFGE = 0x9c, IFGT = 0x9d, IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0, IF_ICMPLT = 0xa1, IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3, IF_ICMPLE = 0xa4, GOTO = 0xa7;
+    static final int IRETURN = 0xac, LRETURN = 0xad, DRETURN = 0xaf;
+    static final int GETSTATIC = 0xb2, INVOKEVIRTUAL = 0xb6, INVOKESTATIC = 0xb8;
+
+    static final int ACC_PUBLIC = 0x0001, ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    private static final int MAJOR_VERSION = 61;        // Java 17
+
+    private final String name;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolCount = 1;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    // name is internal, with slashes
+    ClassWriter(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void field(int access, String fieldName, String descriptor) {
+        Bytes out = new Bytes();
+        out.u2(access);
+        out.u2(utf8(fieldName));
+        out.u2(utf8(descriptor));
+        out.u2(0);
+        fields.add(out.toArray());
+    }
+
+    void method(int access, String methodName, String descriptor, Code code) {
+        byte[] body = code.toArray(this);
+        Bytes out = new Bytes();
+        out.u2(access);
+        out.u2(utf8(methodName));
+        out.u2(utf8(descriptor));
+        out.u2(1);
+        out.u2(utf8("Code"));
+        out.u4(body.length);
+        out.bytes(body);
+        methods.add(out.toArray());
+    }
+
+    byte[] toByteArray() {
+        int thisClass = classRef(name);
+        int superClass = classRef("java/lang/Object");
+        Bytes out = new Bytes();
+        out.u4(0xCAFEBABE);
+        out.u2(0);
+        out.u2(MAJOR_VERSION);
+        out.u2(poolCount);
+        out.bytes(pool.toByteArray());
+        out.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.u2(thisClass);
+        out.u2(superClass);
+        out.u2(0);
+        out.u2(fields.size());
+        for (byte[] field : fields) {
+            out.bytes(field);
+        }
+        out.u2(methods.size());
+        for (byte[] method : methods) {
+            out.bytes(method);
+        }
+        out.u2(0);
+        return out.toArray();
+    }
+
+    // Constant pool =============================================================
+
+    int utf8(String text) {
+        Integer index = constants.get("U" + text);
+        if (index != null) {
+            return index;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            new DataOutputStream(bytes).writeUTF(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return add("U" + text, 1, bytes.toByteArray(), 1);
+    }
+
+    int classRef(String internalName) {
+        Integer index = constants.get("C" + internalName);
+        return index != null ? index : add("C" + internalName, 7, u2(utf8(internalName)), 1);
+    }
+
+    int fieldRef(String owner, String fieldName, String descriptor) {
+        return member("F", 9, owner, fieldName, descriptor);
+    }
+
+    int methodRef(String owner, String methodName, String descriptor) {
+        return member("M", 10, owner, methodName, descriptor);
+    }
+
+    int integer(int value) {
+        Integer index = constants.get("I" + value);
+        return index != null ? index : add("I" + value, 3, u4(value), 1);
+    }
+
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = constants.get("D" + bits);
+        if (index != null) {
+            return index;
+        }
+        byte[] data = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            data[i] = (byte) (bits >>> (56 - 8 * i));
+        }
+        return add("D" + bits, 6, data, 2);
+    }
+
+    private int member(String kind, int tag, String owner, String memberName, String descriptor) {
+        String key = kind + owner + "." + memberName + ":" + descriptor;
+        Integer index = constants.get(key);
+        if (index != null) {
+            return index;
+        }
+        int owning = classRef(owner);
+        int nameAndType = nameAndType(memberName, descriptor);
+        byte[] data = {(byte) (owning >> 8), (byte) owning, (byte) (nameAndType >> 8), (byte) nameAndType};
+        return add(key, tag, data, 1);
+    }
+
+    private int nameAndType(String memberName, String descriptor) {
+        String key = "N" + memberName + ":" + descriptor;
+        Integer index = constants.get(key);
+        if (index != null) {
+            return index;
+        }
+        int n = utf8(memberName);
+        int d = utf8(descriptor);
+        return add(key, 12, new byte[] {(byte) (n >> 8), (byte) n, (byte) (d >> 8), (byte) d}, 1);
+    }
+
+    private int add(String key, int tag, byte[] data, int slots) {
+        int index = poolCount;
+        pool.write(tag);
+        pool.write(data, 0, data.length);
+        poolCount += slots;
+        if (poolCount > 0xFFFF) {
+            throw new UnsupportedOperationException("constant pool overflow");
+        }
+        constants.put(key, index);
+        return index;
+    }
+
+    private static byte[] u2(int value) {
+        return new byte[] {(byte) (value >> 8), (byte) value};
+    }
+
+    private static byte[] u4(int value) {
+        return new byte[] {(byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value};
+    }
+
+    // Code ======================================================================
+
+    /**
+     * The code of one method. The stack depth is kept as instructions are
+     * added, each saying how it changes it; labels are numbers, bound to the
+     * next instruction and patched into the branches when the code is done.
+     */
+    static final class Code {
+
+        private final Bytes code = new Bytes();
+        private int stack;
+        private int maxStack;
+        private int maxLocals;
+
+        private int[] labels = new int[16];     // offset by label, -1 until bound
+        private int labelCount;
+        private final List<int[]> branches = new ArrayList<>();      // {opcode offset, label}
+        private final TreeSet<Integer> frames = new TreeSet<>();
+
+        private char[] frameLocals = new char[0];   // 'I' or 'D' by local, for every frame
+
+        Code(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        // the locals every labelled point has: 'I' for an int, 'D' for a double (two slots)
+        void frameLocals(char[] types) {
+            frameLocals = types.clone();
+        }
+
+        int length() {
+            return code.size();
+        }
+
+        int newLabel() {
+            if (labelCount == labels.length) {
+                labels = Arrays.copyOf(labels, labelCount * 2);
+            }
+            labels[labelCount] = -1;
+            return labelCount++;
+        }
+
+        // a branch target, where the stack is empty
+        void bind(int label) {
+            labels[label] = code.size();
+            frames.add(code.size());
+        }
+
+        void op(int opcode, int delta) {
+            code.u1(opcode);
+            adjust(delta);
+        }
+
+        void op1(int opcode, int operand, int delta) {
+            code.u1(opcode);
+            code.u1(operand);
+            adjust(delta);
+        }
+
+        void op2(int opcode, int operand, int delta) {
+            code.u1(opcode);
+            code.u2(operand);
+            adjust(delta);
+        }
+
+        // iload, dload, aload, istore or dstore of any local, in its shortest form
+        void local(int opcode, int slot, int delta) {
+            if (slot <= 3) {
+                int base = opcode < ISTORE ? 0x1a + (opcode - ILOAD) * 4 : 0x3b + (opcode - ISTORE) * 4;
+                op(base + slot, delta);
+            } else if (slot < 256) {
+                op1(opcode, slot, delta);
+            } else {
+                code.u1(0xc4);      // wide
+                op2(opcode, slot, delta);
+            }
+        }
+
+        void jump(int opcode, int label, int delta) {
+            branches.add(new int[] {code.size(), label});
+            code.u1(opcode);
+            code.u2(0);
+            adjust(delta);
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        void pushInt(ClassWriter cw, int value) {
+            if (value >= -1 && value <= 5) {
+                op(ICONST_0 + value, 1);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op1(BIPUSH, value & 0xFF, 1);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op2(SIPUSH, value & 0xFFFF, 1);
+            } else {
+                constant(cw.integer(value), 1);
+            }
+        }
+
+        void pushDouble(ClassWriter cw, double value) {
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                op(DCONST_0, 2);
+            } else if (value == 1.0) {
+                op(DCONST_1, 2);
+            } else {
+                op2(LDC2_W, cw.doubleConstant(value), 2);
+            }
+        }
+
+        private void constant(int index, int delta) {
+            if (index < 256) {
+                op1(LDC, index, delta);
+            } else {
+                op2(LDC_W, index, delta);
+            }
+        }
+
+        // Code attribute body, from max_stack on
+        byte[] toArray(ClassWriter cw) {
+            byte[] bytecode = code.toArray();
+            for (int[] branch : branches) {
+                int at = branch[0];
+                int target = labels[branch[1]];
+                if (target < 0) {
+                    throw new IllegalStateException("unbound label " + branch[1]);
+                }
+                int offset = target - at;
+                if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                    throw new UnsupportedOperationException("method too large to compile");
+                }
+                bytecode[at + 1] = (byte) (offset >> 8);
+                bytecode[at + 2] = (byte) offset;
+            }
+            if (bytecode.length > 0xFFFF) {
+                throw new UnsupportedOperationException("method too large to compile");
+            }
+
+            Bytes out = new Bytes();
+            out.u2(maxStack);
+            out.u2(maxLocals);
+            out.u4(bytecode.length);
+            out.bytes(bytecode);
+            out.u2(0);          // no exception table
+            if (frames.isEmpty()) {
+                out.u2(0);
+                return out.toArray();
+            }
+            Bytes table = new Bytes();
+            table.u2(frames.size());
+            int previous = -1;
+            for (int offset : frames) {
+                if (previous < 0) {
+                    table.u1(255);      // full_frame
+                    table.u2(offset);
+                    table.u2(frameLocals.length);
+                    for (char type : frameLocals) {
+                        table.u1(type == 'D' ? 3 : 1);
+                    }
+                    table.u2(0);
+                } else {
+                    int delta = offset - previous - 1;
+                    if (delta <= 63) {
+                        table.u1(delta);        // same_frame
+                    } else {
+                        table.u1(251);          // same_frame_extended
+                        table.u2(delta);
+                    }
+                }
+                previous = offset;
+            }
+            byte[] frameBytes = table.toArray();
+            out.u2(1);
+            out.u2(cw.utf8("StackMapTable"));
+            out.u4(frameBytes.length);
+            out.bytes(frameBytes);
+            return out.toArray();
+        }
+    }
+
+    // a growable big-endian byte buffer
+    static final class Bytes {
+
+        private byte[] data = new byte[256];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void u1(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = (byte) value;
+        }
+
+        void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        void u4(int value) {
+            u2(value >> 16);
+            u2(value);
+        }
+
+        void bytes(byte[] values) {
+            for (byte b : values) {
+                u1(b);
+            }
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ir.jit;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ir.IRFunction;
+import mocha.DataReader;
+import mocha.DataWriter;
+
+/**
+ * What the JITCompiler made of some functions: a hidden class holding a
+ * static method for each, and the bridges to call them through.
+ *
+ * The code reads, prints and keeps its globals wherever it was last bound:
+ * run binds it to a run of its own, and anything running the rest of the
+ * program some other way can bind it to that run's input, output and
+ * globals instead.
+ */
+public final class CompiledCode {
+
+    private static final MethodType BRIDGE = MethodType.methodType(long.class, long[].class, double[].class);
+
+    private final Map<IRFunction, MethodHandle> entries = new HashMap<>();
+    private final MethodHandle setWords;
+    private final MethodHandle setReals;
+    private final MethodHandle setInput;
+    private final MethodHandle setOutput;
+    private final int globalCount;
+
+    CompiledCode(MethodHandles.Lookup lookup, List<IRFunction> functions, int globalCount)
+            throws IllegalAccessException {
+        Class<?> compiled = lookup.lookupClass();
+        this.globalCount = globalCount;
+        try {
+            for (int i = 0; i < functions.size(); i++) {
+                entries.put(functions.get(i), lookup.findStatic(compiled, "b" + i, BRIDGE));
+            }
+            setWords = lookup.findStaticSetter(compiled, "words", long[].class);
+            setReals = lookup.findStaticSetter(compiled, "reals", double[].class);
+            setInput = lookup.findStaticSetter(compiled, "input", DataReader.class);
+            setOutput = lookup.findStaticSetter(compiled, "output", DataWriter.class);
+        } catch (NoSuchMethodException | NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The bridge into function, (long[] arguments, double[] arguments) -> long,
+     * or null if it was not compiled here.
+     */
+    public MethodHandle entry(IRFunction function) {
+        return entries.get(function);
+    }
+
+    /** Where the code reads, prints and keeps its globals from now on. */
+    public void bind(DataReader input, DataWriter output, long[] words, double[] reals) {
+        try {
+            setInput.invokeExact(input);
+            setOutput.invokeExact(output);
+            setWords.invokeExact(words);
+            setReals.invokeExact(reals);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Runs main, which must have been compiled, with fresh globals. */
+    public void run(IRFunction main, DataReader input) {
+        MethodHandle entry = entries.get(main);
+        if (entry == null) {
+            throw new IllegalArgumentException(main.getName() + " was not compiled");
+        }
+        DataWriter output = new DataWriter();
+        input.setOutput(output);
+        bind(input, output, new long[globalCount], new double[globalCount]);
+        try {
+            long ignored = (long) entry.invokeExact(new long[0], new double[0]);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        } finally {
+            output.flush();
+        }
+    }
+}
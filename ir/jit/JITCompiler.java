@@ -0,0 +1,813 @@
+package ir.jit;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import ast.BoolLiteral;
+import ast.FloatLiteral;
+import ast.IntegerLiteral;
+import ir.IRFunction;
+import ir.IRProgram;
+import ir.cfg.BasicBlock;
+import ir.jit.ClassWriter.Code;
+import ir.tac.Add;
+import ir.tac.Assign;
+import ir.tac.Branch;
+import ir.tac.Call;
+import ir.tac.ConditionalBranch;
+import ir.tac.Copy;
+import ir.tac.Div;
+import ir.tac.Literal;
+import ir.tac.Load;
+import ir.tac.Mul;
+import ir.tac.Neg;
+import ir.tac.Phi;
+import ir.tac.Pow;
+import ir.tac.Read;
+import ir.tac.Return;
+import ir.tac.Store;
+import ir.tac.Sub;
+import ir.tac.TAC;
+import ir.tac.Value;
+import ir.tac.Variable;
+import ir.tac.Write;
+import mocha.Symbol;
+import types.BoolType;
+import types.FloatType;
+import types.FuncType;
+import types.Type;
+
+import static ir.jit.ClassWriter.*;
+
+/**
+ * Compiles IRFunctions, as the Optimizer leaves them, to JVM bytecode: one
+ * static method per function in a hidden class defined in-process with
+ * Lookup.defineHiddenClass, so HotSpot compiles mocha code as it does Java.
+ * The code does what the IRExecutor does with the same IR, and prints and
+ * reads through the DataWriter and DataReader the run is bound to.
+ *
+ * The IRExecutor tags every value with its kind as it goes; here each
+ * variable's kind is worked out before any code is written, from its
+ * declared type or, for a temporary, from the values assigned to it. An int
+ * or bool is a JVM int and a float a double. Locals live in JVM locals and
+ * globals in the words and reals arrays of the run, at the slot globalSlot
+ * gives, so whoever runs the code can share its globals with it.
+ *
+ * Each function also gets a bridge, (long[] words, double[] reals) -> long,
+ * taking parameter i from slot i of one array or the other by its type and
+ * returning an int as is and a float as its raw bits.
+ */
+public final class JITCompiler {
+
+    private static final byte INT = 0;
+    private static final byte FLOAT = 1;
+    private static final byte BOOL = 2;
+
+    private static final String CLASS = "ir/jit/Compiled";
+    private static final String SELF = "ir/jit/JITCompiler";
+    private static final String READER = "mocha/DataReader";
+    private static final String WRITER = "mocha/DataWriter";
+
+    private final IRProgram program;
+    private final List<IRFunction> functions;
+    private final Map<Symbol, Integer> indices = new HashMap<>();
+    private final ToIntFunction<Symbol> globalSlot;
+    private final ClassWriter cw = new ClassWriter(CLASS);
+
+    private JITCompiler(IRProgram program, List<IRFunction> functions, ToIntFunction<Symbol> globalSlot) {
+        this.program = program;
+        this.functions = List.copyOf(functions);
+        this.globalSlot = globalSlot;
+        for (int i = 0; i < this.functions.size(); i++) {
+            indices.put(this.functions.get(i).getSymbol(), i);
+        }
+    }
+
+    /**
+     * The whole program, with its globals numbered densely; run it with
+     * CompiledCode.run.
+     */
+    public static CompiledCode compile(IRProgram program) {
+        Map<Symbol, Integer> slots = new HashMap<>();
+        for (Symbol global : program.getGlobalSymbols()) {
+            slots.put(global, slots.size());
+        }
+        return compile(program, program.getFunctions(), slots::get, slots.size());
+    }
+
+    /**
+     * Some of the program's functions, which may only call each other and
+     * the predefined functions. Throws UnsupportedOperationException if a
+     * function cannot be compiled.
+     */
+    public static CompiledCode compile(IRProgram program, List<IRFunction> functions,
+            ToIntFunction<Symbol> globalSlot, int globalCount) {
+        JITCompiler compiler = new JITCompiler(program, functions, globalSlot);
+        byte[] bytes = compiler.generate();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return new CompiledCode(lookup, compiler.functions, globalCount);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] generate() {
+        cw.field(ACC_STATIC, "words", "[J");
+        cw.field(ACC_STATIC, "reals", "[D");
+        cw.field(ACC_STATIC, "input", "L" + READER + ";");
+        cw.field(ACC_STATIC, "output", "L" + WRITER + ";");
+        for (int i = 0; i < functions.size(); i++) {
+            IRFunction function = functions.get(i);
+            cw.method(ACC_STATIC, "f" + i, descriptor(function), new Method(function).compile());
+            cw.method(ACC_STATIC, "b" + i, "([J[D)J", bridge(i, function));
+        }
+        return cw.toByteArray();
+    }
+
+    // Kinds =====================================================================
+
+    private static byte kindOf(Type type) {
+        if (type instanceof FloatType) {
+            return FLOAT;
+        }
+        return type instanceof BoolType ? BOOL : INT;
+    }
+
+    private static byte join(byte a, byte b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0 || a == b) {
+            return a;
+        }
+        return a == FLOAT || b == FLOAT ? FLOAT : INT;
+    }
+
+    private static String jvm(byte kind) {
+        return kind == FLOAT ? "D" : "I";
+    }
+
+    private static byte returnKind(IRFunction function) {
+        Type type = function.getSymbol().type();
+        return type instanceof FuncType ? kindOf(((FuncType) type).returnType()) : INT;
+    }
+
+    private static String descriptor(IRFunction function) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Symbol parameter : function.getParameters()) {
+            descriptor.append(jvm(kindOf(parameter.type())));
+        }
+        return descriptor.append(')').append(jvm(returnKind(function))).toString();
+    }
+
+    private Code bridge(int index, IRFunction function) {
+        Code code = new Code(2);
+        List<Symbol> parameters = function.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (kindOf(parameters.get(i).type()) == FLOAT) {
+                code.local(ALOAD, 1, 1);
+                code.pushInt(cw, i);
+                code.op(DALOAD, 0);
+            } else {
+                code.local(ALOAD, 0, 1);
+                code.pushInt(cw, i);
+                code.op(LALOAD, 0);
+                code.op(L2I, -1);
+            }
+        }
+        byte returns = returnKind(function);
+        invoke(code, INVOKESTATIC, CLASS, "f" + index, descriptor(function));
+        if (returns == FLOAT) {
+            invoke(code, INVOKESTATIC, "java/lang/Double", "doubleToRawLongBits", "(D)J");
+        } else {
+            code.op(I2L, 1);
+        }
+        code.op(LRETURN, -2);
+        return code;
+    }
+
+    // a call, with the stack change its descriptor gives
+    private void invoke(Code code, int opcode, String owner, String name, String descriptor) {
+        int delta = opcode == INVOKESTATIC ? 0 : -1;
+        int close = descriptor.indexOf(')');
+        for (int i = 1; i < close; i++) {
+            char c = descriptor.charAt(i);
+            delta -= c == 'D' || c == 'J' ? 2 : 1;
+            if (c == '[') {
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+        }
+        char result = descriptor.charAt(close + 1);
+        delta += result == 'V' ? 0 : result == 'D' || result == 'J' ? 2 : 1;
+        code.op2(opcode, cw.methodRef(owner, name, descriptor), delta);
+    }
+
+    // int division by zero gives 0, as in the Interpreter
+    static int quotient(int left, int right) {
+        return right == 0 ? 0 : left / right;
+    }
+
+    // base to the power exp with int wrap-around, as the Interpreter does
+    static int power(int base, int exp) {
+        int result = 1;
+        while (exp > 0) {
+            if ((exp & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exp >>= 1;
+        }
+        return result;
+    }
+
+    // Functions =================================================================
+
+    // one function's method: its blocks in order, each at a label
+    private final class Method {
+
+        private final IRFunction function;
+        private final byte returns;
+        private final List<BasicBlock> blocks = new ArrayList<>();
+        private final Map<BasicBlock, TAC[]> instructions = new HashMap<>();
+        private final Map<BasicBlock, Integer> labels = new HashMap<>();
+        private final Map<Symbol, Integer> slots = new HashMap<>();     // JVM local of each local
+        private final Map<Symbol, Byte> kinds = new HashMap<>();
+        private final Set<Symbol> parameters = new HashSet<>();
+        private Code code;
+        private int end = -1;       // where control leaves without a return: the function gives 0
+
+        Method(IRFunction function) {
+            this.function = function;
+            this.returns = returnKind(function);
+        }
+
+        Code compile() {
+            // every block control can reach, branch targets included, in number order
+            Set<BasicBlock> seen = new HashSet<>();
+            Deque<BasicBlock> work = new ArrayDeque<>();
+            work.push(function.getEntry());
+            while (!work.isEmpty()) {
+                BasicBlock block = work.pop();
+                if (!seen.add(block)) {
+                    continue;
+                }
+                blocks.add(block);
+                work.addAll(block.getSuccessors());
+                List<TAC> live = new ArrayList<>();
+                for (TAC tac : block.getInstructions()) {
+                    if (!tac.shouldEmit()) {
+                        continue;
+                    }
+                    live.add(tac);
+                    if (tac instanceof Branch branch) {
+                        work.add(branch.target());
+                    } else if (tac instanceof ConditionalBranch cb) {
+                        work.add(cb.trueTarget());
+                        if (cb.falseTarget() != null) {
+                            work.add(cb.falseTarget());
+                        }
+                    } else if (tac instanceof Phi) {
+                        throw new UnsupportedOperationException("phi in " + function.getName());
+                    }
+                }
+                instructions.put(block, live.toArray(new TAC[0]));
+            }
+            blocks.sort(Comparator.comparingInt(BasicBlock::getNumber));
+
+            List<Character> types = new ArrayList<>();
+            int size = 0;
+            for (Symbol parameter : function.getParameters()) {
+                parameters.add(parameter);
+                kinds.put(parameter, kindOf(parameter.type()));
+                slots.put(parameter, size);
+                size += kinds.get(parameter) == FLOAT ? 2 : 1;
+                types.add(kinds.get(parameter) == FLOAT ? 'D' : 'I');
+            }
+            List<Symbol> locals = new ArrayList<>();
+            for (BasicBlock block : blocks) {
+                for (TAC tac : instructions.get(block)) {
+                    for (Variable variable : variables(tac)) {
+                        Symbol symbol = variable.symbol();
+                        if (!kinds.containsKey(symbol) && !program.getGlobalSymbols().contains(symbol)) {
+                            kinds.put(symbol, symbol.type() == null ? -1 : kindOf(symbol.type()));
+                            locals.add(symbol);
+                        }
+                    }
+                }
+            }
+            inferKinds();
+            for (Symbol local : locals) {
+                slots.put(local, size);
+                size += kinds.get(local) == FLOAT ? 2 : 1;
+            }
+
+            code = new Code(size);
+            for (Symbol local : locals) {
+                if (kinds.get(local) == FLOAT) {
+                    code.op(DCONST_0, 2);
+                    code.local(DSTORE, slots.get(local), -2);
+                    types.add('D');
+                } else {
+                    code.op(ICONST_0, 1);
+                    code.local(ISTORE, slots.get(local), -1);
+                    types.add('I');
+                }
+            }
+            char[] frame = new char[types.size()];
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = types.get(i);
+            }
+            code.frameLocals(frame);
+
+            for (BasicBlock block : blocks) {
+                labels.put(block, code.newLabel());
+            }
+            for (int i = 0; i < blocks.size(); i++) {
+                block(blocks.get(i), i + 1 < blocks.size() ? blocks.get(i + 1) : null);
+            }
+            if (end >= 0) {
+                code.bind(end);
+                pushZero(returns);
+                code.op(returns == FLOAT ? DRETURN : IRETURN, returns == FLOAT ? -2 : -1);
+            }
+            return code;
+        }
+
+        // a temporary takes the kind of what is assigned to it, floats winning
+        private void inferKinds() {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (BasicBlock block : blocks) {
+                    for (TAC tac : instructions.get(block)) {
+                        Variable destination = null;
+                        byte kind = -1;
+                        if (tac instanceof Assign assign) {
+                            destination = assign.destination();
+                            kind = result(assign);
+                        } else if (tac instanceof Call call && call.hasDestination()) {
+                            destination = call.destination();
+                            kind = result(call);
+                        } else if (tac instanceof Store store && store.address() instanceof Variable address) {
+                            destination = address;
+                            kind = kind(store.value());
+                        }
+                        if (destination != null && destination.symbol().type() == null
+                                && kinds.containsKey(destination.symbol())) {
+                            byte old = kinds.get(destination.symbol());
+                            byte joined = join(old, kind);
+                            if (joined != old) {
+                                kinds.put(destination.symbol(), joined);
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+            }
+            kinds.replaceAll((symbol, kind) -> kind < 0 ? INT : kind);
+        }
+
+        // Blocks ================================================================
+
+        private void block(BasicBlock block, BasicBlock following) {
+            code.bind(labels.get(block));
+            for (TAC tac : instructions.get(block)) {
+                if (tac instanceof Assign assign) {
+                    assign(assign);
+                } else if (tac instanceof ConditionalBranch cb) {
+                    branch(cb, labels.get(cb.trueTarget()));
+                    jumpTo(cb.falseTarget() != null ? cb.falseTarget() : next(block), following);
+                    return;
+                } else if (tac instanceof Branch branch) {
+                    jumpTo(branch.target(), following);
+                    return;
+                } else if (tac instanceof Call call) {
+                    call(call);
+                } else if (tac instanceof Return ret) {
+                    if (ret.value() != null) {
+                        load(ret.value(), returns);
+                    } else {
+                        pushZero(returns);
+                    }
+                    code.op(returns == FLOAT ? DRETURN : IRETURN, returns == FLOAT ? -2 : -1);
+                    return;
+                } else if (tac instanceof Read read) {
+                    read(read.destination());
+                } else if (tac instanceof Write write) {
+                    print(kind(write.value()), write.value());
+                } else if (tac instanceof Store store) {
+                    if (store.address() instanceof Variable address) {
+                        storeStart(address);
+                        push(store.value());
+                        storeEnd(address, kind(store.value()));
+                    }
+                }
+            }
+            jumpTo(next(block), following);
+        }
+
+        // the only successor, or null
+        private BasicBlock next(BasicBlock block) {
+            return block.getSuccessors().size() == 1 ? block.getSuccessors().get(0) : null;
+        }
+
+        // goes on to target, or to the end if it is null
+        private void jumpTo(BasicBlock target, BasicBlock following) {
+            if (target == null) {
+                if (end < 0) {
+                    end = code.newLabel();
+                }
+                code.jump(GOTO, end, 0);
+            } else if (target != following) {
+                code.jump(GOTO, labels.get(target), 0);
+            }
+        }
+
+        // jumps to label if the branch's condition holds
+        private void branch(ConditionalBranch cb, int label) {
+            byte left = kind(cb.left());
+            switch (cb.condition()) {
+                case ZERO:
+                case NON_ZERO:
+                    push(cb.left());
+                    if (left == FLOAT) {
+                        code.op(DCONST_0, 2);
+                        code.op(DCMPL, -3);
+                    }
+                    code.jump(cb.condition() == ConditionalBranch.Condition.ZERO ? IFEQ : IFNE, label, -1);
+                    return;
+                default:
+                    break;
+            }
+            boolean real = left == FLOAT || kind(cb.right()) == FLOAT;
+            if (real) {
+                load(cb.left(), FLOAT);
+                load(cb.right(), FLOAT);
+                invoke(code, INVOKESTATIC, "java/lang/Double", "compare", "(DD)I");
+            } else {
+                load(cb.left(), INT);
+                load(cb.right(), INT);
+            }
+            int opcode;
+            switch (cb.condition()) {
+                case EQUAL:
+                    opcode = real ? IFEQ : IF_ICMPEQ;
+                    break;
+                case NOT_EQUAL:
+                    opcode = real ? IFNE : IF_ICMPNE;
+                    break;
+                case LESS:
+                    opcode = real ? IFLT : IF_ICMPLT;
+                    break;
+                case LESS_EQUAL:
+                    opcode = real ? IFLE : IF_ICMPLE;
+                    break;
+                case GREATER:
+                    opcode = real ? IFGT : IF_ICMPGT;
+                    break;
+                default:
+                    opcode = real ? IFGE : IF_ICMPGE;
+                    break;
+            }
+            code.jump(opcode, label, real ? -1 : -2);
+        }
+
+        // Instructions ==========================================================
+
+        private void assign(Assign assign) {
+            Variable destination = assign.destination();
+            storeStart(destination);
+            if (assign instanceof Copy || assign instanceof Load) {
+                push(assign.leftOperand());
+                storeEnd(destination, kind(assign.leftOperand()));
+                return;
+            }
+            byte kind = result(assign);
+            if (assign instanceof Neg) {
+                load(assign.leftOperand(), kind);
+                code.op(kind == FLOAT ? DNEG : INEG, 0);
+                storeEnd(destination, kind);
+                return;
+            }
+            load(assign.leftOperand(), kind);
+            load(assign.rightOperand(), kind);
+            if (kind == FLOAT) {
+                if (assign instanceof Add) {
+                    code.op(DADD, -2);
+                } else if (assign instanceof Sub) {
+                    code.op(DSUB, -2);
+                } else if (assign instanceof Mul) {
+                    code.op(DMUL, -2);
+                } else if (assign instanceof Div) {
+                    code.op(DDIV, -2);
+                } else if (assign instanceof Pow) {
+                    invoke(code, INVOKESTATIC, "java/lang/Math", "pow", "(DD)D");
+                } else {
+                    throw new UnsupportedOperationException(assign.toString());
+                }
+            } else {
+                if (assign instanceof Add) {
+                    code.op(IADD, -1);
+                } else if (assign instanceof Sub) {
+                    code.op(ISUB, -1);
+                } else if (assign instanceof Mul) {
+                    code.op(IMUL, -1);
+                } else if (assign instanceof Div) {
+                    invoke(code, INVOKESTATIC, SELF, "quotient", "(II)I");
+                } else if (assign instanceof Pow) {
+                    invoke(code, INVOKESTATIC, SELF, "power", "(II)I");
+                } else {
+                    throw new UnsupportedOperationException(assign.toString());
+                }
+            }
+            storeEnd(destination, kind);
+        }
+
+        private void call(Call call) {
+            Integer index = indices.get(call.function());
+            if (index == null) {
+                predefined(call);
+                return;
+            }
+            IRFunction callee = functions.get(index);
+            if (call.hasDestination()) {
+                storeStart(call.destination());
+            }
+            List<Value> arguments = call.arguments().asList();
+            List<Symbol> parameters = callee.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                byte kind = kindOf(parameters.get(i).type());
+                if (i < arguments.size()) {
+                    load(arguments.get(i), kind);
+                } else {
+                    pushZero(kind);
+                }
+            }
+            invoke(code, INVOKESTATIC, CLASS, "f" + index, descriptor(callee));
+            byte returned = returnKind(callee);
+            if (call.hasDestination()) {
+                storeEnd(call.destination(), returned);
+            } else {
+                code.op(returned == FLOAT ? POP2 : POP, returned == FLOAT ? -2 : -1);
+            }
+        }
+
+        // readInt, printInt and the rest; anything else does nothing and gives 0
+        private void predefined(Call call) {
+            if (program.getFunctions().stream().anyMatch(f -> f.getSymbol() == call.function())) {
+                throw new UnsupportedOperationException("calls " + call.function().name() + ", which is not compiled");
+            }
+            List<Value> arguments = call.arguments().asList();
+            String name = call.function().name();
+            switch (name) {
+                case "readInt":
+                case "readFloat":
+                case "readBool": {
+                    byte kind = name.equals("readInt") ? INT : name.equals("readFloat") ? FLOAT : BOOL;
+                    if (call.hasDestination()) {
+                        storeStart(call.destination());
+                    }
+                    input(kind);
+                    if (call.hasDestination()) {
+                        storeEnd(call.destination(), kind);
+                    } else {
+                        code.op(kind == FLOAT ? POP2 : POP, kind == FLOAT ? -2 : -1);
+                    }
+                    return;
+                }
+                case "printInt":
+                case "printFloat":
+                case "printBool":
+                    if (!arguments.isEmpty()) {
+                        print(name.equals("printInt") ? INT : name.equals("printFloat") ? FLOAT : BOOL, arguments.get(0));
+                    }
+                    break;
+                case "println":
+                    code.op2(GETSTATIC, cw.fieldRef(CLASS, "output", "L" + WRITER + ";"), 1);
+                    invoke(code, INVOKEVIRTUAL, WRITER, "println", "()V");
+                    break;
+                default:
+                    break;
+            }
+            if (call.hasDestination()) {
+                storeStart(call.destination());
+                code.op(ICONST_0, 1);
+                storeEnd(call.destination(), INT);
+            }
+        }
+
+        private void read(Variable destination) {
+            byte kind = kindOf(destination.symbol().type());
+            storeStart(destination);
+            input(kind);
+            storeEnd(destination, kind);
+        }
+
+        private void input(byte kind) {
+            code.op2(GETSTATIC, cw.fieldRef(CLASS, "input", "L" + READER + ";"), 1);
+            if (kind == FLOAT) {
+                invoke(code, INVOKEVIRTUAL, READER, "readFloat", "()D");
+            } else if (kind == BOOL) {
+                invoke(code, INVOKEVIRTUAL, READER, "readBool", "()Z");
+            } else {
+                invoke(code, INVOKEVIRTUAL, READER, "readInt", "()I");
+            }
+        }
+
+        // prints value as the IRExecutor does: as an int, a float or a bool, whatever its kind
+        private void print(byte as, Value value) {
+            code.op2(GETSTATIC, cw.fieldRef(CLASS, "output", "L" + WRITER + ";"), 1);
+            if (as == FLOAT) {
+                load(value, FLOAT);
+                invoke(code, INVOKEVIRTUAL, WRITER, "printFloat", "(D)V");
+            } else if (as == BOOL) {
+                if (kind(value) == FLOAT) {
+                    push(value);
+                    code.op(DCONST_0, 2);
+                    code.op(DCMPL, -3);
+                } else {
+                    push(value);
+                }
+                // x != 0 as 0 or 1, without a branch: the sign bit of x | -x
+                code.op(DUP, 1);
+                code.op(INEG, 0);
+                code.op(IOR, -1);
+                code.pushInt(cw, 31);
+                code.op(IUSHR, -1);
+                invoke(code, INVOKEVIRTUAL, WRITER, "printBool", "(Z)V");
+            } else {
+                load(value, INT);
+                invoke(code, INVOKEVIRTUAL, WRITER, "printInt", "(I)V");
+            }
+        }
+
+        // Values ================================================================
+
+        private byte kind(Value value) {
+            if (value instanceof Variable variable) {
+                Byte kind = kinds.get(variable.symbol());
+                if (kind != null) {
+                    return kind < 0 ? -1 : kind;
+                }
+                return kindOf(variable.symbol().type());
+            }
+            if (value instanceof Literal literal) {
+                if (literal.value() instanceof FloatLiteral) {
+                    return FLOAT;
+                }
+                return literal.value() instanceof BoolLiteral ? BOOL : INT;
+            }
+            return INT;
+        }
+
+        private byte result(Assign assign) {
+            if (assign instanceof Copy || assign instanceof Load) {
+                return kind(assign.leftOperand());
+            }
+            byte left = kind(assign.leftOperand());
+            if (assign instanceof Neg) {
+                return left == FLOAT ? FLOAT : left < 0 ? -1 : INT;
+            }
+            byte right = kind(assign.rightOperand());
+            if (left == FLOAT || right == FLOAT) {
+                return FLOAT;
+            }
+            return left < 0 || right < 0 ? -1 : INT;
+        }
+
+        private byte result(Call call) {
+            Integer index = indices.get(call.function());
+            if (index != null) {
+                return returnKind(functions.get(index));
+            }
+            switch (call.function().name()) {
+                case "readFloat":
+                    return FLOAT;
+                case "readBool":
+                    return BOOL;
+                default:
+                    return INT;
+            }
+        }
+
+        // pushes value as its own kind
+        private void push(Value value) {
+            if (value instanceof Variable variable) {
+                Symbol symbol = variable.symbol();
+                byte kind = kind(value);
+                Integer slot = slots.get(symbol);
+                if (slot != null) {
+                    code.local(kind == FLOAT ? DLOAD : ILOAD, slot, kind == FLOAT ? 2 : 1);
+                } else if (kind == FLOAT) {
+                    code.op2(GETSTATIC, cw.fieldRef(CLASS, "reals", "[D"), 1);
+                    code.pushInt(cw, globalSlot.applyAsInt(symbol));
+                    code.op(DALOAD, 0);
+                } else {
+                    code.op2(GETSTATIC, cw.fieldRef(CLASS, "words", "[J"), 1);
+                    code.pushInt(cw, globalSlot.applyAsInt(symbol));
+                    code.op(LALOAD, 0);
+                    code.op(L2I, -1);
+                }
+            } else if (value instanceof Literal literal && literal.value() instanceof FloatLiteral f) {
+                code.pushDouble(cw, f.value());
+            } else if (value instanceof Literal literal && literal.value() instanceof IntegerLiteral i) {
+                code.pushInt(cw, i.value());
+            } else if (value instanceof Literal literal && literal.value() instanceof BoolLiteral b) {
+                code.pushInt(cw, b.value() ? 1 : 0);
+            } else {
+                code.op(ICONST_0, 1);
+            }
+        }
+
+        // pushes value converted to as
+        private void load(Value value, byte as) {
+            push(value);
+            convert(kind(value), as);
+        }
+
+        private void convert(byte from, byte to) {
+            if (from == FLOAT && to != FLOAT) {
+                code.op(D2I, -1);
+            } else if (from != FLOAT && to == FLOAT) {
+                code.op(I2D, 1);
+            }
+        }
+
+        private void pushZero(byte kind) {
+            code.op(kind == FLOAT ? DCONST_0 : ICONST_0, kind == FLOAT ? 2 : 1);
+        }
+
+        // a global's array and slot go under the value stored in it
+        private void storeStart(Variable destination) {
+            Symbol symbol = destination.symbol();
+            if (!slots.containsKey(symbol)) {
+                boolean real = kind(destination) == FLOAT;
+                code.op2(GETSTATIC, cw.fieldRef(CLASS, real ? "reals" : "words", real ? "[D" : "[J"), 1);
+                code.pushInt(cw, globalSlot.applyAsInt(symbol));
+            }
+        }
+
+        // stores the value on the stack, of kind have
+        private void storeEnd(Variable destination, byte have) {
+            Symbol symbol = destination.symbol();
+            byte kind = kind(destination);
+            convert(have, kind);
+            Integer slot = slots.get(symbol);
+            if (slot != null) {
+                code.local(kind == FLOAT ? DSTORE : ISTORE, slot, kind == FLOAT ? -2 : -1);
+            } else if (kind == FLOAT) {
+                code.op(DASTORE, -4);
+            } else {
+                code.op(I2L, 1);
+                code.op(LASTORE, -4);
+            }
+        }
+    }
+
+    // the variables an instruction reads or writes
+    private static List<Variable> variables(TAC tac) {
+        List<Value> values = new ArrayList<>();
+        if (tac instanceof Assign assign) {
+            values.add(assign.destination());
+            values.add(assign.leftOperand());
+            values.add(assign.rightOperand());
+        } else if (tac instanceof Call call) {
+            values.add(call.destination());
+            values.addAll(call.arguments().asList());
+        } else if (tac instanceof ConditionalBranch cb) {
+            values.add(cb.left());
+            values.add(cb.right());
+        } else if (tac instanceof Return ret) {
+            values.add(ret.value());
+        } else if (tac instanceof Read read) {
+            values.add(read.destination());
+        } else if (tac instanceof Write write) {
+            values.add(write.value());
+        } else if (tac instanceof Store store) {
+            values.add(store.address());
+            values.add(store.value());
+        }
+        List<Variable> variables = new ArrayList<>();
+        for (Value value : values) {
+            if (value instanceof Variable variable) {
+                variables.add(variable);
+            }
+        }
+        return variables;
+    }
+}
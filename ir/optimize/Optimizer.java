@@ -9,6 +9,7 @@ import ir.optimize.passes.CFGConstPropPass;
 import ir.optimize.passes.ConstantPropagationPass;
 import ir.optimize.passes.GlobalDCEPass;
 import ir.optimize.passes.CopyPropagationLocalPass;
+import ir.optimize.passes.GlobalWrites;
 
 /**
  * Runs a fixed sequence of local optimizations.
@@ -25,6 +26,7 @@ public class Optimizer {
         boolean runAll = enabled == null || enabled.isEmpty();
         boolean wantsLoop = enabled != null && enabled.contains("loop");
         int maxIter = wantsLoop ? 10 : 5;
+        GlobalWrites writes = new GlobalWrites(program);
 
         for (IRFunction fn : program.getFunctions()) {
             recomputeReachability(fn);
@@ -35,14 +37,14 @@ public class Optimizer {
                 fn.getControlFlowGraph().resetVisited();
                 for (var block : fn.getBlocks()) {
                     if (runAll || enabled.contains("cse")) {
-                        changed |= cse.run(block);
+                        changed |= cse.run(block, writes);
                     }
                     if (runAll || enabled.contains("cpp")) {
-                        changed |= localCopy.run(block);
+                        changed |= localCopy.run(block, writes);
                     }
                 }
                 if (runAll || enabled.contains("cp") || enabled.contains("cpp") || enabled.contains("cf")) {
-                    changed |= cfgCP.run(fn.getControlFlowGraph());
+                    changed |= cfgCP.run(fn.getControlFlowGraph(), writes);
                     recomputeReachability(fn);
                 }
                 if (runAll || enabled.contains("dce")) {
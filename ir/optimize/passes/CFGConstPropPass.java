@@ -24,6 +24,7 @@ import ir.tac.Variable;
 
 /**
  * Forward constant + copy propagation with folding and branch simplification over the CFG.
+ * A call forgets what was known about the globals its callee may write, and their copies.
  */
 public class CFGConstPropPass {
 
@@ -58,7 +59,10 @@ public class CFGConstPropPass {
         static Lattice copy(Variable v) { return new Lattice(Kind.COPY, null, v); }
     }
 
-    public boolean run(ControlFlowGraph cfg) {
+    private GlobalWrites writes;
+
+    public boolean run(ControlFlowGraph cfg, GlobalWrites writes) {
+        this.writes = writes;
         Map<BasicBlock, Map<Variable, Lattice>> in = new HashMap<>();
         Map<BasicBlock, Map<Variable, Lattice>> out = new HashMap<>();
         Set<BasicBlock> worklist = new HashSet<>(cfg.getBlocks());
@@ -128,8 +132,9 @@ public class CFGConstPropPass {
     private Map<Variable, Lattice> transfer(BasicBlock block, Map<Variable, Lattice> state) {
         for (TAC tac : block.getInstructions()) {
             if (tac instanceof ir.tac.Call call) {
+                killGlobals(state, call);
                 if (call.hasDestination()) {
-                    state.put(call.destination(), Lattice.top());
+                    assign(state, call.destination(), Lattice.top());
                 }
                 continue;
             }
@@ -137,7 +142,7 @@ public class CFGConstPropPass {
                 Value left = substitute(assign.leftOperand(), state);
                 Value right = substitute(assign.rightOperand(), state);
                 Lattice newVal = eval(assign, left, right);
-                state.put(assign.destination(), newVal);
+                assign(state, assign.destination(), newVal);
             }
         }
         return state;
@@ -157,7 +162,7 @@ public class CFGConstPropPass {
                     changed = true;
                 }
                 Lattice newVal = eval(assign, l, r);
-                state.put(assign.destination(), newVal);
+                assign(state, assign.destination(), newVal);
             } else if (tac instanceof ir.tac.Call call) {
                 ir.tac.ValueList args = rewriteArgs(call.arguments(), state);
                 if (!args.asList().equals(call.arguments().asList())) {
@@ -168,8 +173,9 @@ public class CFGConstPropPass {
                     }
                     changed = true;
                 }
+                killGlobals(state, call);
                 if (call.hasDestination()) {
-                    state.put(call.destination(), Lattice.top());
+                    assign(state, call.destination(), Lattice.top());
                 }
             } else if (tac instanceof ConditionalBranch cb) {
                 if (isLoopHeader(block)) {
@@ -199,6 +205,31 @@ public class CFGConstPropPass {
         return changed;
     }
 
+    // variable now holds value; copies of its old value no longer follow it
+    private void assign(Map<Variable, Lattice> state, Variable variable, Lattice value) {
+        for (Map.Entry<Variable, Lattice> entry : state.entrySet()) {
+            if (entry.getValue().kind == Kind.COPY && variable.equals(entry.getValue().copyOf)) {
+                entry.setValue(Lattice.top());
+            }
+        }
+        state.put(variable, value);
+    }
+
+    // the globals call may write, and copies of them, are no longer known
+    private void killGlobals(Map<Variable, Lattice> state, ir.tac.Call call) {
+        Set<mocha.Symbol> written = writes.of(call);
+        if (written.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Variable, Lattice> entry : state.entrySet()) {
+            Lattice value = entry.getValue();
+            if (written.contains(entry.getKey().symbol())
+                    || (value.kind == Kind.COPY && written.contains(value.copyOf.symbol()))) {
+                entry.setValue(Lattice.top());
+            }
+        }
+    }
+
     private ir.tac.ValueList rewriteArgs(ir.tac.ValueList args, Map<Variable, Lattice> state) {
         ir.tac.ValueList out = new ir.tac.ValueList();
         for (Value v : args) {
@@ -333,12 +364,16 @@ public class CFGConstPropPass {
             return switch (cond) {
                 case EQUAL -> true;
                 case NOT_EQUAL -> false;
-                case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> false;
+                case GREATER, LESS -> false;
+                case GREATER_EQUAL, LESS_EQUAL -> true;
                 case ZERO -> l != null ? l == 0 : lb != null ? !lb : false;
                 case NON_ZERO -> l != null ? l != 0 : lb != null ? lb : true;
             };
         }
-        if (l == null && r == null && lf == null && rf == null && lb == null && rb == null) return null;
+        // fold only when every operand the condition reads is a constant
+        boolean unary = cond == ConditionalBranch.Condition.ZERO || cond == ConditionalBranch.Condition.NON_ZERO;
+        if (l == null && lf == null && lb == null) return null;
+        if (!unary && r == null && rf == null && rb == null) return null;
         int lv = l != null ? l : (lf != null ? lf.intValue() : (lb != null ? (lb ? 1 : 0) : 0));
         int rv = r != null ? r : (rf != null ? rf.intValue() : (rb != null ? (rb ? 1 : 0) : 0));
         return switch (cond) {
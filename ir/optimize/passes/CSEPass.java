@@ -3,6 +3,7 @@ package ir.optimize.passes;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import ir.cfg.BasicBlock;
 import ir.tac.Add;
@@ -15,7 +16,9 @@ import ir.tac.Value;
 import ir.tac.Variable;
 
 /**
- * Local common subexpression elimination (per basic block).
+ * Local common subexpression elimination (per basic block). An expression is
+ * forgotten once an operand or the variable holding its value is written,
+ * including by a call to a function that may write that global.
  */
 public class CSEPass {
 
@@ -59,7 +62,7 @@ public class CSEPass {
         }
     }
 
-    public boolean run(BasicBlock block) {
+    public boolean run(BasicBlock block, GlobalWrites writes) {
         if (block.isUnreachable()) {
             return false;
         }
@@ -67,33 +70,50 @@ public class CSEPass {
         boolean changed = false;
         for (int i = 0; i < block.getInstructions().size(); i++) {
             TAC tac = block.getInstructions().get(i);
+            if (tac instanceof ir.tac.Call call) {
+                Set<mocha.Symbol> written = writes.of(call);
+                table.entrySet().removeIf(e -> written.contains(e.getValue().symbol())
+                        || (e.getKey().a instanceof Variable v1 && written.contains(v1.symbol()))
+                        || (e.getKey().b instanceof Variable v2 && written.contains(v2.symbol())));
+                if (call.hasDestination()) {
+                    kill(table, call.destination());
+                }
+                continue;
+            }
             if (!(tac instanceof Assign assign)) {
                 continue;
             }
             Value left = assign.leftOperand();
             Value right = assign.rightOperand();
 
+            ExprKey key = null;
             if (isExpression(assign)) {
-                ExprKey key = new ExprKey(assign.getClass(), left, right);
+                key = new ExprKey(assign.getClass(), left, right);
                 Variable existing = table.get(key);
                 if (existing != null) {
                     // replace with copy from existing result
                     block.replaceInstruction(i, new ir.tac.Copy(assign.id(), assign.destination(), existing));
                     changed = true;
-                } else {
-                    table.put(key, assign.destination());
+                    key = null;
                 }
             }
 
-            // kill expressions that referenced redefined vars
-            if (assign.destination() != null) {
-                Variable def = assign.destination();
-                table.entrySet().removeIf(e -> usesVar(e.getKey(), def));
+            // kill expressions that referenced, or were held in, redefined vars
+            Variable def = assign.destination();
+            if (def != null) {
+                kill(table, def);
+            }
+            if (key != null && (def == null || !usesVar(key, def))) {
+                table.put(key, def);
             }
         }
         return changed;
     }
 
+    private void kill(Map<ExprKey, Variable> table, Variable def) {
+        table.entrySet().removeIf(e -> usesVar(e.getKey(), def) || def.equals(e.getValue()));
+    }
+
     private boolean isExpression(Assign assign) {
         return assign instanceof Add || assign instanceof Sub || assign instanceof Mul || assign instanceof Div;
     }
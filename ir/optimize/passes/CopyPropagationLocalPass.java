@@ -2,6 +2,7 @@ package ir.optimize.passes;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import ir.cfg.BasicBlock;
 import ir.tac.Assign;
@@ -12,10 +13,11 @@ import ir.tac.Variable;
 
 /**
  * Simple intra-block copy propagation to collapse copy chains.
+ * A call forgets copies into and out of the globals its callee may write.
  */
 public class CopyPropagationLocalPass {
 
-    public boolean run(BasicBlock block) {
+    public boolean run(BasicBlock block, GlobalWrites writes) {
         if (block.isUnreachable()) return false;
         Map<Variable, Value> map = new HashMap<>();
         boolean changed = false;
@@ -30,7 +32,7 @@ public class CopyPropagationLocalPass {
                     assign = rewritten;
                     changed = true;
                 }
-                map.remove(assign.destination());
+                kill(map, assign.destination());
                 if (assign instanceof Copy) {
                     map.put(assign.destination(), resolve(assign.leftOperand(), map));
                 }
@@ -47,14 +49,23 @@ public class CopyPropagationLocalPass {
                     }
                     changed = true;
                 }
+                Set<mocha.Symbol> written = writes.of(call);
+                map.entrySet().removeIf(e -> written.contains(e.getKey().symbol())
+                        || (e.getValue() instanceof Variable source && written.contains(source.symbol())));
                 if (call.hasDestination()) {
-                    map.remove(call.destination());
+                    kill(map, call.destination());
                 }
             }
         }
         return changed;
     }
 
+    // variable is written; copies of its old value no longer follow it
+    private void kill(Map<Variable, Value> map, Variable variable) {
+        map.remove(variable);
+        map.values().removeIf(variable::equals);
+    }
+
     private Value resolve(Value v, Map<Variable, Value> map) {
         if (v instanceof Variable var && map.containsKey(var)) {
             Value target = map.get(var);
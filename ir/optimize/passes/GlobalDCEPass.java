@@ -39,7 +39,9 @@ public class GlobalDCEPass {
                     addUses(assign.leftOperand(), live);
                     addUses(assign.rightOperand(), live);
                     Variable def = assign.destination();
-                    boolean needed = def != null && live.contains(def);
+                    // other functions, and main after a call returns, may read a global
+                    boolean needed = def != null
+                            && (live.contains(def) || globalSymbols.contains(def.symbol()));
                     if (!hasSideEffect(tac) && def != null && !needed) {
                         assign.disableEmit();
                         changed = true;
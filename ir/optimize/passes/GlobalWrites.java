@@ -0,0 +1,71 @@
+package ir.optimize.passes;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import ir.IRFunction;
+import ir.IRProgram;
+import ir.cfg.BasicBlock;
+import ir.tac.Assign;
+import ir.tac.Call;
+import ir.tac.Phi;
+import ir.tac.Read;
+import ir.tac.TAC;
+import ir.tac.Variable;
+import mocha.Symbol;
+
+/**
+ * The globals each function of a program may write, itself or through the
+ * functions it calls. The predefined functions write none.
+ */
+public class GlobalWrites {
+
+    private final Map<Symbol, Set<Symbol>> writes = new HashMap<>();
+
+    public GlobalWrites(IRProgram program) {
+        Set<Symbol> globals = program.getGlobalSymbols();
+        Map<Symbol, Set<Symbol>> callees = new HashMap<>();
+        for (IRFunction fn : program.getFunctions()) {
+            Set<Symbol> written = new HashSet<>();
+            Set<Symbol> called = new HashSet<>();
+            for (BasicBlock block : fn.getBlocks()) {
+                for (TAC tac : block.getInstructions()) {
+                    Variable destination = destination(tac);
+                    if (destination != null && globals.contains(destination.symbol())) {
+                        written.add(destination.symbol());
+                    }
+                    if (tac instanceof Call call) {
+                        called.add(call.function());
+                    }
+                }
+            }
+            writes.put(fn.getSymbol(), written);
+            callees.put(fn.getSymbol(), called);
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<Symbol, Set<Symbol>> entry : callees.entrySet()) {
+                Set<Symbol> written = writes.get(entry.getKey());
+                for (Symbol callee : entry.getValue()) {
+                    changed |= written.addAll(writes.getOrDefault(callee, Set.of()));
+                }
+            }
+        }
+    }
+
+    /** The globals call may write. */
+    public Set<Symbol> of(Call call) {
+        return writes.getOrDefault(call.function(), Set.of());
+    }
+
+    private static Variable destination(TAC tac) {
+        if (tac instanceof Assign assign) return assign.destination();
+        if (tac instanceof Call call) return call.destination();
+        if (tac instanceof Read read) return read.destination();
+        if (tac instanceof Phi phi) return phi.destination();
+        return null;
+    }
+}
@@ -22,6 +22,11 @@ public class Variable implements Value {
         return symbol;
     }
 
+    // dense symbol id, usable as an array or bitset index
+    public int id() {
+        return symbol.id();
+    }
+
     public int version() {
         return version;
     }
@@ -34,12 +39,13 @@ public class Variable implements Value {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof Variable other)) return false;
-        return Objects.equals(symbol, other.symbol) && version == other.version;
+        return symbol == other.symbol && version == other.version;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(symbol, version);
+        int key = symbol.id() >= 0 ? symbol.id() : System.identityHashCode(symbol);
+        return 31 * key + version;
     }
 
     @Override
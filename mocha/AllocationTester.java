@@ -0,0 +1,114 @@
+package mocha;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+
+// IMPORTANT: You need to put commons-cli-1.9.0 jar file in lib/ in your classpath
+import org.apache.commons.cli.*;
+
+/**
+ * Checks that the Interpreter's loops allocate nothing: runs the same program
+ * with a short and a long loop and compares the bytes this thread allocated
+ * for each. Setup (frames, nodes, buffers) costs the same in both, so any
+ * difference is allocated per iteration. Exits with -1 if they differ.
+ */
+public class AllocationTester {
+
+    // the loop count is read, so both runs interpret the same source
+    private static final String PROGRAM = String.join("\n",
+            "main",
+            "int i, n, s;",
+            "float x;",
+            "bool b;",
+            "int[8] a;",
+            "function step (int v, float f) : int {",
+            "    if (f > 1.5) then return v + 1; fi;",
+            "    return v - 1;",
+            "};",
+            "{",
+            "    n = call readInt();",
+            "    i = 0; s = 0; x = 0.5; b = false;",
+            "    while (i < n) do",
+            "        s = s + i * 3 % 7;",
+            "        x = x * 1.0001 + 0.25;",
+            "        if (x > 1000.0) then x = 0.5; fi;",
+            "        b = not b and (s > 10) or (i == 5);",
+            "        a[i % 8] = a[(i + 1) % 8] + s;",
+            "        s = call step(s, x);",
+            "        i = i + 1;",
+            "    od;",
+            "    call printInt(s); call printFloat(x); call printBool(b); call println();",
+            "}.");
+
+    public static void main (String[] args) {
+        Options options = new Options();
+        options.addOption("n", "iterations", true, "Iterations of the short loop (default 1000)");
+        options.addOption("w", "warmup", true, "Runs before measuring (default 20)");
+
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLineParser cmdParser = new DefaultParser();
+        CommandLine cmd = null;
+        int iterations = 0;
+        int warmup = 0;
+        try {
+            cmd = cmdParser.parse(options, args);
+            iterations = Integer.parseInt(cmd.getOptionValue("iterations", "1000"));
+            warmup = Integer.parseInt(cmd.getOptionValue("warmup", "20"));
+        } catch (ParseException | NumberFormatException e) {
+            formatter.printHelp("All Options", options);
+            System.exit(-1);
+        }
+
+        mocha.Compiler c = new mocha.Compiler(new mocha.Scanner("AllocationTester", new StringReader(PROGRAM)), 24);
+        ast.AST ast = c.genAST();
+        types.TypeChecker tc = new types.TypeChecker();
+        if (c.hasError() || !tc.check(ast)) {
+            System.out.println("Error compiling the test program.");
+            System.out.println(c.hasError() ? c.errorReport() : tc.errorReport());
+            System.exit(-2);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long small;
+        long large;
+        try {
+            for (int i = 0; i < warmup; i++) {
+                interpret(ast, iterations * 10);
+            }
+            small = allocated(threads, ast, iterations);
+            large = allocated(threads, ast, iterations * 10);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        System.out.printf("%d iterations: %d bytes%n", iterations, small);
+        System.out.printf("%d iterations: %d bytes%n", iterations * 10, large);
+        if (small != large) {
+            System.out.printf("FAIL: %d bytes allocated by %d more iterations%n", large - small, iterations * 9);
+            System.exit(-1);
+        }
+        System.out.println("OK");
+    }
+
+    // bytes this thread allocates interpreting ast for a loop of n
+    private static long allocated (com.sun.management.ThreadMXBean threads, ast.AST ast, int n) {
+        byte[] input = (n + "\n").getBytes();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        interpret(ast, input);
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    private static void interpret (ast.AST ast, int n) {
+        interpret(ast, (n + "\n").getBytes());
+    }
+
+    private static void interpret (ast.AST ast, byte[] input) {
+        new Interpreter(new ByteArrayInputStream(input)).interpret(ast);
+    }
+}
@@ -0,0 +1,63 @@
+package mocha;
+
+import types.ArrayType;
+import types.BoolType;
+import types.FloatType;
+import types.Type;
+
+/**
+ * An array as the Interpreter holds it: every element of every dimension in
+ * one primitive array of the element type, row after row. The stride of
+ * each dimension is worked out when the array is made, so a[i][j]... is at
+ * i * strides[0] + j * strides[1] + ...; an index out of its dimension
+ * reads 0 and drops a write, as in the vm.
+ */
+final class ArrayValue {
+
+    final int[] dimensions;     // outermost first
+    final int[] strides;
+
+    // the elements, in the one of these that matches the element type
+    final int[] ints;
+    final double[] reals;
+    final boolean[] bools;
+
+    ArrayValue (ArrayType type) {
+        int rank = 0;
+        Type element = type;
+        for (; element instanceof ArrayType; element = ((ArrayType) element).baseType()) {
+            rank++;
+        }
+        dimensions = new int[rank];
+        int k = 0;
+        for (Type t = type; t instanceof ArrayType; t = ((ArrayType) t).baseType()) {
+            dimensions[k++] = Math.max(((ArrayType) t).size(), 0);
+        }
+        strides = new int[rank];
+        int size = 1;
+        for (k = rank - 1; k >= 0; k--) {
+            strides[k] = size;
+            size *= dimensions[k];
+        }
+        ints = element instanceof FloatType || element instanceof BoolType ? null : new int[size];
+        reals = element instanceof FloatType ? new double[size] : null;
+        bools = element instanceof BoolType ? new boolean[size] : null;
+    }
+
+    // the first count elements of source into destination, as far as both reach
+    static void copy (ArrayValue destination, ArrayValue source, int count) {
+        if (destination == null || source == null || count <= 0) {
+            return;
+        }
+        if (destination.ints != null && source.ints != null) {
+            System.arraycopy(source.ints, 0, destination.ints, 0,
+                    Math.min(count, Math.min(source.ints.length, destination.ints.length)));
+        } else if (destination.reals != null && source.reals != null) {
+            System.arraycopy(source.reals, 0, destination.reals, 0,
+                    Math.min(count, Math.min(source.reals.length, destination.reals.length)));
+        } else if (destination.bools != null && source.bools != null) {
+            System.arraycopy(source.bools, 0, destination.bools, 0,
+                    Math.min(count, Math.min(source.bools.length, destination.bools.length)));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package mocha;
+
+import ast.FunctionCall;
+import ast.FunctionDeclaration;
+import java.lang.invoke.MethodHandle;
+import types.FloatType;
+
+/**
+ * One call of a user function in the program, with its arguments. The
+ * function it calls is looked up the first time it runs and kept; a
+ * function's body is built the first time any call site needs it.
+ *
+ * The arguments are evaluated in the caller, straight into the parameter
+ * slots of the callee's frame (parameter i is slot i, see FrameLayout).
+ */
+final class CallSite extends ExecNode {
+
+    private final FunctionCall call;
+    private final NodeBuilder builder;
+    private final ExprNode[] arguments;
+    private final ExprNode.Kind[] kinds;    // null for an array, passed by reference
+    private boolean resolved;
+    private Target target;      // null if the call names no user function
+
+    CallSite (FunctionCall call, ExprNode[] arguments, ExprNode.Kind[] kinds, NodeBuilder builder) {
+        this.call = call;
+        this.builder = builder;
+        this.arguments = adopt(arguments);
+        this.kinds = kinds;
+    }
+
+    void call (Interpreter in) {
+        if (!resolved) {
+            target = builder.target(call);
+            resolved = true;
+        }
+        if (target == null) {
+            return;
+        }
+        Frame callee = in.pushFrame(target.frameSize);
+        for (int i = 0; i < arguments.length; i++) {
+            ExprNode.Kind kind = kinds[i];
+            if (kind == null) {
+                callee.arrays[i] = (ArrayValue) arguments[i].executeGeneric(in);
+            } else if (kind == ExprNode.Kind.FLOAT) {
+                callee.reals[i] = arguments[i].executeFloat(in);
+            } else if (kind == ExprNode.Kind.BOOL) {
+                callee.words[i] = arguments[i].executeBool(in) ? 1 : 0;
+            } else {
+                callee.words[i] = arguments[i].executeInt(in);
+            }
+        }
+        in.call(target, callee);
+    }
+
+    @Override
+    void replaceChild (ExprNode child, ExprNode replacement) {
+        if (!replaceIn(arguments, child, replacement)) {
+            super.replaceChild(child, replacement);
+        }
+    }
+
+    // a user function, shared by all the sites that call it
+    static final class Target {
+
+        final FunctionDeclaration function;
+        final int frameSize;
+        final boolean returnsFloat;
+        private final NodeBuilder builder;
+        private StmtNode body;
+
+        // calls of it the Interpreter made, and loop iterations they ran
+        int invocations;
+        long backEdges;
+
+        // its compiled code once Tiering has promoted it (see Interpreter.call)
+        boolean promotionTried;
+        MethodHandle compiled;
+
+        Target (FunctionDeclaration function, int frameSize, NodeBuilder builder) {
+            this.function = function;
+            this.frameSize = frameSize;
+            this.returnsFloat = function.returnType() instanceof FloatType;
+            this.builder = builder;
+        }
+
+        StmtNode body () {
+            if (body == null) {
+                body = builder.body(function);
+            }
+            return body;
+        }
+    }
+}
@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.io.InputStream;
 
 import ast.AST;
@@ -33,13 +35,13 @@ public class Compiler {
     private ast.AST parsedAST = null;
 
     private String reportSyntaxError (NonTerminal nt) {
-        String message = "SyntaxError(" + lineNumber() + "," + charPosition() + ")[Expected a token from " + nt.name() + " but got " + currentToken.kind + ".]";
+        String message = "SyntaxError(" + lineNumber() + "," + charPosition() + ")[Expected a token from " + nt.name() + " but got " + currentKind() + ".]";
         errorBuffer.append(message + "\n");
         return message;
     }
 
     private String reportSyntaxError (Token.Kind kind) {
-        String message = "SyntaxError(" + lineNumber() + "," + charPosition() + ")[Expected " + kind + " but got " + currentToken.kind + ".]";
+        String message = "SyntaxError(" + lineNumber() + "," + charPosition() + ")[Expected " + kind + " but got " + currentKind() + ".]";
         errorBuffer.append(message + "\n");
         return message;
     }
@@ -78,32 +80,43 @@ public class Compiler {
         public int lineNumber() { return lineNumber; }
     }
 
+    // name, arity and the class of each parameter type
+    private record SignatureKey(String name, java.util.List<Class<?>> parameterKinds) {
+        static SignatureKey of(String name, types.TypeList params) {
+            java.util.List<Class<?>> kinds = new java.util.ArrayList<>(params.size());
+            for (int i = 0; i < params.size(); i++) {
+                kinds.add(params.get(i).getClass());
+            }
+            return new SignatureKey(name, kinds);
+        }
+    }
+
+    private void addBuiltInFunction(FunctionSignature signature) {
+        functionSignatures.put(SignatureKey.of(signature.name(), signature.params()), signature);
+    }
+
     private void addBuiltInFunctions() {
         // Add printInt(int): void
-        types.TypeList intParams = new types.TypeList();
-        intParams.append(new types.IntType());
-        functionSignatures.add(new FunctionSignature("printInt", intParams, new types.VoidType(), 0));
-        
-        types.TypeList floatParams = new types.TypeList();
-        floatParams.append(new types.FloatType());
-        functionSignatures.add(new FunctionSignature("printFloat", floatParams, new types.VoidType(), 0));
-        
-        types.TypeList boolParams = new types.TypeList();
-        boolParams.append(new types.BoolType());
-        functionSignatures.add(new FunctionSignature("printBool", boolParams, new types.VoidType(), 0));
+        addBuiltInFunction(new FunctionSignature("printInt", types.TypeList.of(types.IntType.INSTANCE), types.VoidType.INSTANCE, 0));
+        addBuiltInFunction(new FunctionSignature("printFloat", types.TypeList.of(types.FloatType.INSTANCE), types.VoidType.INSTANCE, 0));
+        addBuiltInFunction(new FunctionSignature("printBool", types.TypeList.of(types.BoolType.INSTANCE), types.VoidType.INSTANCE, 0));
     }
 
     private int lineNumber () {
-        return currentToken.lineNumber();
+        return tokens.lineNumber(cursor);
     }
 
     private int charPosition () {
-        return currentToken.charPosition();
+        return tokens.charPosition(cursor);
     }
 
     // Compiler ===================================================================
-    private Scanner scanner;
-    private Token currentToken;
+    private TokenStream tokens;
+    private int cursor;     // index of the current token in tokens
+    private long globalsFingerprint;    // of the global variable declarations
+    private ast.Arena arena;    // set while genArena packs functions as they are parsed
+    private boolean lazy;       // function bodies are only brace-matched by the top-level parse
+    private List<DeferredBody> deferredBodies;
 
     private int numDataRegisters; // available registers are [1..numDataRegisters]
     private List<Integer> instructions;
@@ -111,23 +124,144 @@ public class Compiler {
     // Need to map from IDENT to memory offset
 
     public Compiler (Scanner scanner, int numRegs) {
-        this.scanner = scanner;
-        currentToken = this.scanner.next();
+        this(TokenStream.scan(scanner), numRegs);
+    }
+
+    public Compiler (TokenStream tokens, int numRegs) {
+        this.tokens = tokens;
+        cursor = 0;
         numDataRegisters = numRegs;
         instructions = new ArrayList<>();
     }
 
+    // parser for one function body of parent's token stream
+    private Compiler (Compiler parent, SymbolTable bodyScope) {
+        this(parent.tokens, parent.numDataRegisters);
+        symbolTable = bodyScope;
+        functionSignatures = parent.functionSignatures;
+    }
+
     public ast.AST genAST() {
         initSymbolTable();
         try {
             ast.Computation computation = computation();
-            parsedAST = new ast.AST(computation);
+            parsedAST = new ast.AST(computation, symbolTable.symbolCount());
             return parsedAST;
         } catch (QuitParseException q) {
             parsedAST = new ast.AST(null);
             return parsedAST;
         }
     }
+
+    // like genAST, but a function body is only brace-matched here and parsed
+    // the first time its FunctionDeclaration.body() is asked for. Errors in a
+    // body are reported when it is parsed; if the top level has errors, the
+    // program will not run, so every body is parsed right away and the errors
+    // are the ones genAST reports, in the same order.
+    public ast.AST genLazyAST() {
+        lazy = true;
+        initSymbolTable();
+        deferredBodies = new ArrayList<>();
+        ast.Computation computation = null;
+        try {
+            computation = computation();
+        } catch (QuitParseException q) {
+            // the bodies before the error are still parsed for their errors
+        }
+        lazy = false;
+        if (computation == null || hasError()) {
+            for (DeferredBody deferred : deferredBodies) {
+                deferred.reserveIds();
+                deferred.parse();
+            }
+            if (!spliceBodyErrors(computation == null)) {
+                parsedAST = new ast.AST(null);
+                return parsedAST;
+            }
+        }
+        parsedAST = new ast.AST(computation, symbolTable::symbolCount);
+        return parsedAST;
+    }
+
+    public ast.AST genParallelAST() {
+        return genParallelAST(ForkJoinPool.commonPool());
+    }
+
+    // same AST and errors as genAST. The top-level parse registers globals and
+    // every signature and skips the bodies; the bodies are then parsed on pool
+    // against the finished, read-only global scope and put back in source order.
+    public ast.AST genParallelAST(ForkJoinPool pool) {
+        lazy = true;
+        initSymbolTable();
+        deferredBodies = new ArrayList<>();
+        ast.Computation computation = null;
+        try {
+            computation = computation();
+        } catch (QuitParseException q) {
+            // the bodies before the error are still parsed for their errors
+        }
+        lazy = false;
+
+        // ids are handed out in source order, whatever order the bodies finish in
+        for (DeferredBody deferred : deferredBodies) {
+            deferred.reserveIds();
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (DeferredBody deferred : deferredBodies) {
+            tasks.add(pool.submit(deferred::parse));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        if (!spliceBodyErrors(computation == null)) {
+            parsedAST = new ast.AST(null);
+            return parsedAST;
+        }
+        for (ast.FunctionDeclaration function : computation.functions()) {
+            function.body();
+        }
+        parsedAST = new ast.AST(computation, symbolTable.symbolCount());
+        return parsedAST;
+    }
+
+    // splices the errors of the deferred bodies, all parsed, in where each
+    // body would have been parsed, stopping at the first syntax error just as
+    // genAST does; false if the parse stopped (quit: it already had)
+    private boolean spliceBodyErrors(boolean quit) {
+        String skeletonErrors = errorBuffer.toString();
+        errorBuffer.setLength(0);
+        int from = 0;
+        for (DeferredBody deferred : deferredBodies) {
+            errorBuffer.append(skeletonErrors, from, deferred.errorMark);
+            errorBuffer.append(deferred.errors);
+            from = deferred.errorMark;
+            if (deferred.quit) {
+                quit = true;
+                from = skeletonErrors.length();
+                break;
+            }
+        }
+        errorBuffer.append(skeletonErrors, from, skeletonErrors.length());
+        return !quit;
+    }
+
+    // like genAST, but each function is packed into the arena as soon as it
+    // is parsed, so the whole program never exists as node objects at once
+    public ast.Arena genArena() {
+        initSymbolTable();
+        arena = new ast.Arena();
+        try {
+            computation();
+            parsedAST = arena.toAST();
+        } catch (QuitParseException q) {
+            arena = new ast.Arena();
+            parsedAST = new ast.AST(null);
+        }
+        ast.Arena packed = arena;
+        arena = null;
+        return packed;
+    }
     
     public void interpret(InputStream in) {
         // Use the already parsed AST instead of re-parsing
@@ -156,57 +290,43 @@ public class Compiler {
 
     // SymbolTable Management =====================================================
     private SymbolTable symbolTable;
-    private java.util.Stack<SymbolTable> scopeStack;
-    private java.util.List<FunctionSignature> functionSignatures;
+    private java.util.Map<SignatureKey, FunctionSignature> functionSignatures;
 
     private void initSymbolTable () {
         symbolTable = new SymbolTable();
-        scopeStack = new java.util.Stack<>();
-        scopeStack.push(symbolTable); // Global scope
-        functionSignatures = new java.util.ArrayList<>();
+        functionSignatures = new java.util.HashMap<>();
         
-        // Add built-in functions to the functionSignatures list
+        // Add built-in functions to the functionSignatures map
         addBuiltInFunctions();
     }
 
     private void enterScope () {
-        // Create a new local scope
-        SymbolTable newScope = new SymbolTable();
-        scopeStack.push(newScope);
-        symbolTable = newScope;
+        symbolTable.enterScope();
     }
 
     private void exitScope () {
-        // Return to previous scope
-        if (scopeStack.size() > 1) {
-            scopeStack.pop();
-            symbolTable = scopeStack.peek();
-        }
+        symbolTable.exitScope();
     }
 
     private Symbol tryResolveVariable (Token ident) {
-        // Search through all scopes from innermost to outermost
-        for (int i = scopeStack.size() - 1; i >= 0; i--) {
-            try {
-                return scopeStack.get(i).lookup(ident.lexeme());
-            } catch (SymbolNotFoundError e) {
-                // Continue searching in outer scopes
-            }
+        Symbol symbol = symbolTable.lookup(ident.lexeme());
+        if (symbol != null) {
+            return symbol;
         }
         // Symbol not found in any scope
         reportResolveSymbolError(ident.lexeme(), lineNumber(), charPosition());
-        return new Symbol(ident.lexeme(), new ErrorType("Unknown symbol"), false);
+        return symbolTable.fresh(ident.lexeme(), new ErrorType("Unknown symbol"), false);
     }
 
     private Symbol tryDeclareVariable (Token ident, types.Type type) {
         // System.out.println("Trying to declare variable: " + ident.lexeme() + " with type: " + type);
-        try {
-            return symbolTable.insert(ident.lexeme(), type, false);
-        } catch (RedeclarationError e) {
+        Symbol symbol = symbolTable.insert(ident.lexeme(), type, false);
+        if (symbol == null) {
             // Report redeclaration error
             reportDeclareSymbolError(ident.lexeme(), ident.lineNumber(), ident.charPosition());
-            return new Symbol(ident.lexeme(), type, false);
+            return symbolTable.fresh(ident.lexeme(), type, false);
         }
+        return symbol;
     }
 
     private String reportResolveSymbolError (String name, int lineNum, int charPos) {
@@ -229,18 +349,40 @@ public class Compiler {
 
 
     // Helper Methods =============================================================
+    private Token.Kind currentKind () {
+        return tokens.kind(cursor);
+    }
+
+    // only built for tokens the AST keeps (identifiers, literals, operators)
+    private Token currentToken () {
+        return tokens.token(cursor);
+    }
+
+    // kind of the token k places ahead of the current one
+    private Token.Kind peek (int k) {
+        return tokens.kind(cursor + k);
+    }
+
+    // moves past the current token; there is nothing to move to past EOF
+    private void advance () {
+        if (cursor + 1 >= tokens.size()) {
+            throw new NoSuchElementException();
+        }
+        cursor++;
+    }
+
     private boolean have (Token.Kind kind) {
-        return currentToken.kind == kind;
+        return currentKind() == kind;
     }
 
     private boolean have (NonTerminal nt) {
-        return nt.firstSet().contains(currentToken.kind);
+        return nt.predicts(currentKind());
     }
 
     private boolean accept (Token.Kind kind) {
         if (have(kind)) {
             try {
-                currentToken = scanner.next();
+                advance();
             }
             catch (NoSuchElementException e) {
                 if (!kind.equals(Token.Kind.EOF)) {
@@ -255,7 +397,7 @@ public class Compiler {
 
     private boolean accept (NonTerminal nt) {
         if (have(nt)) {
-            currentToken = scanner.next();
+            advance();
             return true;
         }
         return false;
@@ -278,7 +420,7 @@ public class Compiler {
     }
 
     private Token expectRetrieve (Token.Kind kind) {
-        Token tok = currentToken;
+        Token tok = currentToken();
         if (accept(kind)) {
             return tok;
         }
@@ -287,7 +429,7 @@ public class Compiler {
     }
 
     private Token expectRetrieve (NonTerminal nt) {
-        Token tok = currentToken;
+        Token tok = currentToken();
         if (accept(nt)) {
             return tok;
         }
@@ -339,7 +481,7 @@ public class Compiler {
             int size = Integer.parseInt(sizeToken.lexeme());
             expect(Token.Kind.CLOSE_BRACKET);
             
-            baseType = new types.ArrayType(baseType, size);
+            baseType = types.ArrayType.of(baseType, size);
         }
         
         return baseType;
@@ -348,11 +490,11 @@ public class Compiler {
     // type = "bool" | "int" | "float"
     private types.Type type() {
         if (accept(Token.Kind.BOOL)) {
-            return new types.BoolType();
+            return types.BoolType.INSTANCE;
         } else if (accept(Token.Kind.INT)) {
-            return new types.IntType();
+            return types.IntType.INSTANCE;
         } else if (accept(Token.Kind.FLOAT)) {
-            return new types.FloatType();
+            return types.FloatType.INSTANCE;
         } else {
             String errorMessage = reportSyntaxError(Token.Kind.BOOL);
             throw new QuitParseException(errorMessage);
@@ -361,112 +503,200 @@ public class Compiler {
     
     // funcDecl = "function" ident formalParam ":" ( "void" | type ) funcBody
     private ast.FunctionDeclaration funcDecl() {
+        int funcStart = cursor;
         expect(Token.Kind.FUNC);
         Token ident = expectRetrieve(Token.Kind.IDENT);
         
         // Create function symbol and insert into symbol table
-        Symbol funcSymbol = new Symbol(ident.lexeme(), new types.FuncType(new types.TypeList(), new types.VoidType()), true);
+        Symbol funcSymbol = symbolTable.fresh(ident.lexeme(), types.FuncType.of(types.TypeList.EMPTY, types.VoidType.INSTANCE), true);
         
-        formalParam(funcSymbol);
+        java.util.List<Symbol> params = formalParam(funcSymbol);
         expect(Token.Kind.COLON);
         
         types.Type returnType;
         if (accept(Token.Kind.VOID)) {
-            returnType = new types.VoidType();
+            returnType = types.VoidType.INSTANCE;
         } else {
             returnType = type();
         }
         
         // Update the function symbol with the correct return type
         types.FuncType currentFuncType = (types.FuncType) funcSymbol.type();
-        funcSymbol.setType(new types.FuncType(currentFuncType.params(), returnType));
-        
-        // Check for duplicate function signature before inserting
-        boolean hasDuplicateSignature = false;
-        
-        // Check against all existing function signatures
-        for (FunctionSignature existingSig : functionSignatures) {
-            if (existingSig.name().equals(ident.lexeme())) {
-                // Compare parameter types manually since TypeList doesn't have equals()
-                boolean sameParams = false;
-                if (currentFuncType.params().size() == existingSig.params().size()) {
-                    sameParams = true;
-                    for (int i = 0; i < currentFuncType.params().size(); i++) {
-                        types.Type currentParam = currentFuncType.params().get(i);
-                        types.Type existingParam = existingSig.params().get(i);
-                        if (!currentParam.getClass().equals(existingParam.getClass())) {
-                            sameParams = false;
-                            break;
-                        }
-                    }
-                }
-                
-                if (sameParams) {
-                    if (currentFuncType.returnType().equals(existingSig.returnType())) {
-                        // Exact duplicate signature
-                        hasDuplicateSignature = true;
-                        reportDeclareSymbolError(ident.lexeme(), ident.lineNumber(), ident.charPosition());
-                    } else {
-                        // Same parameters but different return type - also an error
-                        hasDuplicateSignature = true;
-                        reportDeclareSymbolError(ident.lexeme(), ident.lineNumber(), ident.charPosition());
-                    }
-                }
-            }
+        funcSymbol.setType(types.FuncType.of(currentFuncType.params(), returnType));
+        
+        // Duplicate: same name and the same kind of type (int, float, bool,
+        // array, ...) in every parameter position; the return type does not count
+        SignatureKey key = SignatureKey.of(ident.lexeme(), currentFuncType.params());
+        boolean hasDuplicateSignature = functionSignatures.containsKey(key);
+        if (hasDuplicateSignature) {
+            reportDeclareSymbolError(ident.lexeme(), ident.lineNumber(), ident.charPosition());
         }
         
         // Insert the function into the symbol table only if no duplicate signature
         if (!hasDuplicateSignature) {
-            try {
-                // Insert into global scope (first scope in the stack)
-                SymbolTable globalScopeForInsert = scopeStack.get(0);
-                globalScopeForInsert.insert(ident.lexeme(), funcSymbol.type(), true);
-            } catch (RedeclarationError e) {
-                // For function overloading, we need to allow multiple functions with the same name
-                // but different signatures. Since the symbol table doesn't support this,
-                // we'll skip insertion and let the type checker handle the final validation.
-                // The function signature comparison above should have caught any conflicts.
-            }
+            // Insert into global scope. For function overloading, we need to allow multiple
+            // functions with the same name but different signatures. Since the symbol table
+            // doesn't support this, a name that is already taken is left as it is and the
+            // type checker handles the final validation.
+            symbolTable.insertGlobal(ident.lexeme(), funcSymbol.type(), true);
             
             // Add the function signature to our list for future comparisons
-            functionSignatures.add(new FunctionSignature(ident.lexeme(), currentFuncType.params(), returnType, ident.lineNumber()));
+            functionSignatures.put(key, new FunctionSignature(ident.lexeme(), currentFuncType.params(), returnType, ident.lineNumber()));
         }
         
+        if (lazy) {
+            int bodyStart = cursor;
+            int bodyEnd = skipFuncBody();
+            if (bodyEnd >= 0) {
+                exitScope();
+                cursor = bodyEnd;
+                DeferredBody deferred = new DeferredBody(bodyStart, bodyEnd, params);
+                deferredBodies.add(deferred);
+                ast.FunctionDeclaration funcDecl = new ast.FunctionDeclaration(lineNumber(), charPosition(), funcSymbol, params, returnType, deferred::body);
+                funcDecl.setFingerprint(fingerprint(funcStart));
+                return funcDecl;
+            }
+        }
         ast.FunctionBody body = funcBody();
-        return new ast.FunctionDeclaration(lineNumber(), charPosition(), funcSymbol, returnType, body);
+        ast.FunctionDeclaration funcDecl = new ast.FunctionDeclaration(lineNumber(), charPosition(), funcSymbol, params, returnType, body);
+        funcDecl.setFingerprint(fingerprint(funcStart));
+        return funcDecl;
+    }
+
+    // the tokens from start up to the current one, plus the global
+    // declarations they are checked against; see types.CheckCache
+    private java.util.function.Supplier<ast.FunctionFingerprint> fingerprint(int start) {
+        TokenStream source = tokens;
+        int end = cursor;
+        long globals = globalsFingerprint;
+        return () -> new ast.FunctionFingerprint(
+                source.fingerprint(start, end) * 31 + globals,
+                source.lineNumber(start),
+                source.callHashes(start, end));
+    }
+
+    // index just past the "}" ";" that closes the body starting at cursor,
+    // or -1 when the braces do not match up and the body must be parsed now
+    private int skipFuncBody() {
+        if (currentKind() != Token.Kind.OPEN_BRACE) {
+            return -1;
+        }
+        int depth = 0;
+        for (int i = cursor; i < tokens.size(); i++) {
+            Token.Kind kind = tokens.kind(i);
+            if (kind == Token.Kind.OPEN_BRACE) {
+                depth++;
+            } else if (kind == Token.Kind.CLOSE_BRACE && --depth == 0) {
+                return tokens.kind(i + 1) == Token.Kind.SEMICOLON ? i + 2 : -1;
+            } else if (kind == Token.Kind.EOF) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // A function body skipped by the top-level parse. It is parsed later on a
+    // parser of its own, in the scope it was declared in: its parameters over
+    // the globals and functions declared before it (ids below horizon).
+    private class DeferredBody {
+        final int start;
+        final int end;
+        final java.util.List<Symbol> params;
+        final int horizon;
+        final int errorMark;    // where the body's errors go in errorBuffer
+        int firstId = -1;       // ids for the body's symbols, reserved before parsing
+
+        ast.FunctionBody body;
+        String errors;
+        boolean quit;           // parsing stopped at a syntax error
+
+        DeferredBody (int start, int end, java.util.List<Symbol> params) {
+            this.start = start;
+            this.end = end;
+            this.params = params;
+            this.horizon = symbolTable.symbolCount();
+            this.errorMark = errorBuffer.length();
+        }
+
+        // every symbol a body declares or fails to resolve takes one identifier
+        int identifierCount () {
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if (tokens.kind(i) == Token.Kind.IDENT) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void reserveIds () {
+            firstId = symbolTable.reserve(identifierCount());
+        }
+
+        // parses the body without touching the top-level parser
+        void parse () {
+            Compiler parser = new Compiler(Compiler.this, new SymbolTable(symbolTable, firstId, horizon));
+            parser.cursor = start;
+            parser.enterScope();
+            for (Symbol param : params) {
+                parser.symbolTable.bind(param);
+            }
+            try {
+                body = parser.funcBody();
+            } catch (QuitParseException q) {
+                quit = true;
+                body = new ast.FunctionBody(tokens.lineNumber(start), tokens.charPosition(start));
+            }
+            errors = parser.errorReport();
+        }
+
+        // on first use from a lazy AST; errors are reported as the body is parsed
+        synchronized ast.FunctionBody body () {
+            if (body == null) {
+                reserveIds();
+                parse();
+                synchronized (errorBuffer) {
+                    errorBuffer.append(errors);
+                }
+            }
+            return body;
+        }
     }
     
     // formalParam = "(" [ paramDecl { "," paramDecl } ] ")"
-    private void formalParam(Symbol funcSymbol) {
+    private java.util.List<Symbol> formalParam(Symbol funcSymbol) {
         expect(Token.Kind.OPEN_PAREN);
         
         // Enter function scope for parameters
         enterScope();
         
-        types.TypeList paramTypes = new types.TypeList();
+        java.util.List<types.Type> paramTypes = new java.util.ArrayList<>();
+        java.util.List<Symbol> params = new java.util.ArrayList<>();
         
         if (have(NonTerminal.PARAM_DECL)) {
-            paramDecl(paramTypes);
+            paramDecl(paramTypes, params);
             while (accept(Token.Kind.COMMA)) {
-                paramDecl(paramTypes);
+                paramDecl(paramTypes, params);
             }
         }
         
         expect(Token.Kind.CLOSE_PAREN);
         // Update the function symbol with the parameter types
         types.FuncType currentFuncType = (types.FuncType) funcSymbol.type();
-        funcSymbol.setType(new types.FuncType(paramTypes, currentFuncType.returnType()));
+        funcSymbol.setType(types.FuncType.of(types.TypeList.of(paramTypes), currentFuncType.returnType()));
+        return params;
     }
     
     // paramDecl = paramType ident
-    private void paramDecl(types.TypeList paramTypes) {
+    private void paramDecl(java.util.List<types.Type> paramTypes, java.util.List<Symbol> params) {
         types.Type paramType = paramType();
         Token ident = expectRetrieve(Token.Kind.IDENT);
-        paramTypes.append(paramType);
+        paramTypes.add(paramType);
         // Insert parameter into current scope (function scope)
-        try {
-            symbolTable.insert(ident.lexeme(), paramType, false);
-        } catch (RedeclarationError e) {
+        Symbol param = symbolTable.insert(ident.lexeme(), paramType, false);
+        if (param != null) {
+            params.add(param);
+        } else {
             // Parameter redeclaration within same function - this should be an error
             reportDeclareSymbolError(ident.lexeme(), lineNumber(), charPosition());
         }
@@ -485,7 +715,7 @@ public class Compiler {
         
         // Build array type from outside in (reverse order)
         for (int i = dimensions.size() - 1; i >= 0; i--) {
-            baseType = new types.ArrayType(baseType, dimensions.get(i));
+            baseType = types.ArrayType.of(baseType, dimensions.get(i));
         }
         
         return baseType;
@@ -559,7 +789,7 @@ public class Compiler {
             return new ast.Assignment(lineNumber(), charPosition(), dest, null, src);
         } else if (have(Token.Kind.UNI_INC) || have(Token.Kind.UNI_DEC)) {
             // Handle increment/decrement operations: a++ or a--
-            Token op = currentToken;
+            Token op = currentToken();
             if (op.kind == Token.Kind.UNI_INC) {
                 // a++ becomes a = a + 1
                 accept(Token.Kind.UNI_INC); // Consume the token
@@ -662,95 +892,188 @@ public class Compiler {
         return expr;
     }
     
+    // Expressions ================================================================
     // relExpr = addExpr { relOp addExpr }
-    private ast.Expression relExpr() {
-        ast.Expression left = addExpr();
-        
-        Token op = relOp();
-        while (op != null) {
-            ast.Expression right = addExpr();
-            left = new ast.Relation(lineNumber(), charPosition(), left, op, right);
-            op = relOp();
-        }
-        
-        return left;
-    }
-    
     // addExpr = multExpr { addOp multExpr }
-    private ast.Expression addExpr() {
-        ast.Expression left = multExpr();
-        
-        Token op = addOp();
-        while (op != null) {
-            ast.Expression right = multExpr();
-            if (op.kind == Token.Kind.ADD) {
-                left = new ast.Addition(lineNumber(), charPosition(), left, op, right);
-            } else if (op.kind == Token.Kind.SUB) {
-                left = new ast.Subtraction(lineNumber(), charPosition(), left, op, right);
-            } else if (op.kind == Token.Kind.OR) {
-                left = new ast.LogicalOr(lineNumber(), charPosition(), left, op, right);
+    // multExpr = powExpr { multOp powExpr }
+    // powExpr = groupExpr { powOp groupExpr }
+    // groupExpr = literal | designator | "not" relExpr | relation | funcCall
+    //
+    // All five rules are parsed by precedence climbing over an explicit
+    // operand/operator stack. "(", "not", "[" and call argument lists open a
+    // Group on the operator stack instead of recursing, and every group is
+    // closed by the first token that is not a binary operator.
+
+    // binding power of each binary operator by Token.Kind ordinal, 0 if none
+    private static final byte[] PRECEDENCE = new byte[Token.Kind.values().length];
+
+    static {
+        Token.Kind[][] levels = {
+            { Token.Kind.EQUAL_TO, Token.Kind.NOT_EQUAL, Token.Kind.LESS_THAN,
+              Token.Kind.LESS_EQUAL, Token.Kind.GREATER_EQUAL, Token.Kind.GREATER_THAN },
+            { Token.Kind.ADD, Token.Kind.SUB, Token.Kind.OR },
+            { Token.Kind.MUL, Token.Kind.DIV, Token.Kind.MOD, Token.Kind.AND },
+            { Token.Kind.POW },
+        };
+        for (int level = 0; level < levels.length; level++) {
+            for (Token.Kind kind : levels[level]) {
+                PRECEDENCE[kind.ordinal()] = (byte) (level + 1);
             }
-            op = addOp();
         }
-        
-        return left;
     }
-    
-    // multExpr = powExpr { multOp powExpr }
-    private ast.Expression multExpr() {
-        ast.Expression left = powExpr();
-        
-        Token op = mulOp();
-        while (op != null) {
-            ast.Expression right = powExpr();
-            if (op.kind == Token.Kind.MUL) {
-                left = new ast.Multiplication(lineNumber(), charPosition(), left, op, right);
-            } else if (op.kind == Token.Kind.DIV) {
-                left = new ast.Division(lineNumber(), charPosition(), left, op, right);
-            } else if (op.kind == Token.Kind.MOD) {
-                left = new ast.Modulo(lineNumber(), charPosition(), left, op, right);
-            } else if (op.kind == Token.Kind.AND) {
-                left = new ast.LogicalAnd(lineNumber(), charPosition(), left, op, right);
-            }
-            op = mulOp();
+
+    // an open "(", "not", "[" or call argument list on the operator stack
+    private static final class Group {
+        final Token.Kind opener;    // OPEN_PAREN, NOT, OPEN_BRACKET or CALL
+        Token op;                   // NOT: token following "not"
+        int lineNum;                // CALL: position of "call"
+        int charPos;
+        Symbol function;            // CALL: resolved callee
+        ast.ArgumentList args;      // CALL: arguments parsed so far
+
+        Group (Token.Kind opener) {
+            this.opener = opener;
         }
-        
-        return left;
     }
-    
-    // powExpr = groupExpr { powOp groupExpr }
-    private ast.Expression powExpr() {
-        ast.Expression left = groupExpr();
-        
-        Token op = powOp();
-        while (op != null) {
-            ast.Expression right = groupExpr();
-            left = new ast.Power(lineNumber(), charPosition(), left, op, right);
-            op = powOp();
+
+    private ast.Expression relExpr() {
+        java.util.ArrayList<ast.Expression> operands = new java.util.ArrayList<>();
+        java.util.ArrayList<Object> operators = new java.util.ArrayList<>();  // Token or Group
+
+        while (true) {
+            ast.Expression operand = operand(operators, operands);
+            if (operand == null) {
+                continue;   // opened a group, its first operand comes next
+            }
+            operands.add(operand);
+
+            // after an operand: take a binary operator, or close groups until one fits
+            boolean closing = true;
+            while (closing) {
+                int precedence = PRECEDENCE[currentKind().ordinal()];
+                if (precedence > 0) {
+                    reduce(operands, operators, precedence);
+                    operators.add(currentToken());
+                    accept(currentKind());
+                    break;
+                }
+                reduce(operands, operators, 1);
+                if (operators.isEmpty()) {
+                    return operands.remove(operands.size() - 1);
+                }
+                Group group = (Group) operators.remove(operators.size() - 1);
+                ast.Expression inner = operands.remove(operands.size() - 1);
+                switch (group.opener) {
+                    case NOT:
+                        operands.add(new ast.LogicalNot(lineNumber(), charPosition(), group.op, inner));
+                        break;
+                    case OPEN_PAREN:
+                        expect(Token.Kind.CLOSE_PAREN);
+                        operands.add(inner);
+                        break;
+                    case OPEN_BRACKET:
+                        expect(Token.Kind.CLOSE_BRACKET);
+                        ast.Expression base = operands.remove(operands.size() - 1);
+                        operands.add(new ast.ArrayIndex(lineNumber(), charPosition(), base, inner));
+                        if (accept(Token.Kind.OPEN_BRACKET)) {
+                            operators.add(group);
+                            closing = false;
+                        }
+                        break;
+                    default:
+                        group.args.addArgument(inner);
+                        if (accept(Token.Kind.COMMA)) {
+                            operators.add(group);
+                            closing = false;
+                            break;
+                        }
+                        expect(Token.Kind.CLOSE_PAREN);
+                        operands.add(new ast.FunctionCall(group.lineNum, group.charPos, group.function, group.args));
+                        break;
+                }
+            }
         }
-        
-        return left;
     }
-    
-    // groupExpr = literal | designator | "not" relExpr | relation | funcCall
-    private ast.Expression groupExpr() {
+
+    // parses a groupExpr, or opens a Group for it and returns null
+    private ast.Expression operand(java.util.List<Object> operators, java.util.List<ast.Expression> operands) {
         if (have(NonTerminal.LITERAL)) {
             return literal();
         } else if (have(NonTerminal.DESIGNATOR)) {
-            return designator();
+            Token ident = expectRetrieve(Token.Kind.IDENT);
+            Symbol symbol = tryResolveVariable(ident);
+            ast.Expression result = new ast.Designator(lineNumber(), charPosition(), symbol);
+            if (accept(Token.Kind.OPEN_BRACKET)) {
+                operands.add(result);
+                operators.add(new Group(Token.Kind.OPEN_BRACKET));
+                return null;
+            }
+            return result;
         } else if (accept(Token.Kind.NOT)) {
-            Token op = currentToken;
-            ast.Expression operand = relExpr();
-            return new ast.LogicalNot(lineNumber(), charPosition(), op, operand);
-        } else if (have(NonTerminal.RELATION)) {
-            return relation();
+            Group group = new Group(Token.Kind.NOT);
+            group.op = currentToken();
+            operators.add(group);
+            return null;
+        } else if (accept(Token.Kind.OPEN_PAREN)) {
+            operators.add(new Group(Token.Kind.OPEN_PAREN));
+            return null;
         } else if (have(NonTerminal.FUNC_CALL)) {
-            return funcCall();
+            Group group = new Group(Token.Kind.CALL);
+            group.lineNum = lineNumber();
+            group.charPos = charPosition();
+            expect(Token.Kind.CALL);
+            Token ident = expectRetrieve(Token.Kind.IDENT);
+            group.function = tryResolveVariable(ident);
+            expect(Token.Kind.OPEN_PAREN);
+            group.args = new ast.ArgumentList(lineNumber(), charPosition());
+            if (have(NonTerminal.REL_EXPR)) {
+                operators.add(group);
+                return null;
+            }
+            expect(Token.Kind.CLOSE_PAREN);
+            return new ast.FunctionCall(group.lineNum, group.charPos, group.function, group.args);
         } else {
             String errorMessage = reportSyntaxError(NonTerminal.GROUP_EXPR);
             throw new QuitParseException(errorMessage);
         }
     }
+
+    // folds binary operators of at least the given precedence above the innermost group
+    private void reduce(java.util.List<ast.Expression> operands, java.util.List<Object> operators, int precedence) {
+        while (!operators.isEmpty()) {
+            Object top = operators.get(operators.size() - 1);
+            if (!(top instanceof Token) || PRECEDENCE[((Token) top).kind.ordinal()] < precedence) {
+                return;
+            }
+            operators.remove(operators.size() - 1);
+            ast.Expression right = operands.remove(operands.size() - 1);
+            ast.Expression left = operands.remove(operands.size() - 1);
+            operands.add(binary(left, (Token) top, right));
+        }
+    }
+
+    private ast.Expression binary(ast.Expression left, Token op, ast.Expression right) {
+        switch (op.kind) {
+            case ADD:
+                return new ast.Addition(lineNumber(), charPosition(), left, op, right);
+            case SUB:
+                return new ast.Subtraction(lineNumber(), charPosition(), left, op, right);
+            case OR:
+                return new ast.LogicalOr(lineNumber(), charPosition(), left, op, right);
+            case MUL:
+                return new ast.Multiplication(lineNumber(), charPosition(), left, op, right);
+            case DIV:
+                return new ast.Division(lineNumber(), charPosition(), left, op, right);
+            case MOD:
+                return new ast.Modulo(lineNumber(), charPosition(), left, op, right);
+            case AND:
+                return new ast.LogicalAnd(lineNumber(), charPosition(), left, op, right);
+            case POW:
+                return new ast.Power(lineNumber(), charPosition(), left, op, right);
+            default:
+                return new ast.Relation(lineNumber(), charPosition(), left, op, right);
+        }
+    }
     
     // designator = ident { "[" relExpr "]" }
     private ast.Expression designator() {
@@ -784,83 +1107,6 @@ public class Compiler {
         }
     }
     
-    // Helper methods for operators
-    private Token relOp() {
-        if (have(Token.Kind.EQUAL_TO)) {
-            Token op = currentToken;
-            accept(Token.Kind.EQUAL_TO);
-            return op;
-        } else if (have(Token.Kind.NOT_EQUAL)) {
-            Token op = currentToken;
-            accept(Token.Kind.NOT_EQUAL);
-            return op;
-        } else if (have(Token.Kind.LESS_THAN)) {
-            Token op = currentToken;
-            accept(Token.Kind.LESS_THAN);
-            return op;
-        } else if (have(Token.Kind.LESS_EQUAL)) {
-            Token op = currentToken;
-            accept(Token.Kind.LESS_EQUAL);
-            return op;
-        } else if (have(Token.Kind.GREATER_THAN)) {
-            Token op = currentToken;
-            accept(Token.Kind.GREATER_THAN);
-            return op;
-        } else if (have(Token.Kind.GREATER_EQUAL)) {
-            Token op = currentToken;
-            accept(Token.Kind.GREATER_EQUAL);
-            return op;
-        }
-        return null;
-    }
-    
-    private Token addOp() {
-        if (have(Token.Kind.ADD)) {
-            Token op = currentToken;
-            accept(Token.Kind.ADD);
-            return op;
-        } else if (have(Token.Kind.SUB)) {
-            Token op = currentToken;
-            accept(Token.Kind.SUB);
-            return op;
-        } else if (have(Token.Kind.OR)) {
-            Token op = currentToken;
-            accept(Token.Kind.OR);
-            return op;
-        }
-        return null;
-    }
-    
-    private Token mulOp() {
-        if (have(Token.Kind.MUL)) {
-            Token op = currentToken;
-            accept(Token.Kind.MUL);
-            return op;
-        } else if (have(Token.Kind.DIV)) {
-            Token op = currentToken;
-            accept(Token.Kind.DIV);
-            return op;
-        } else if (have(Token.Kind.MOD)) {
-            Token op = currentToken;
-            accept(Token.Kind.MOD);
-            return op;
-        } else if (have(Token.Kind.AND)) {
-            Token op = currentToken;
-            accept(Token.Kind.AND);
-            return op;
-        }
-        return null;
-    }
-    
-    private Token powOp() {
-        if (have(Token.Kind.POW)) {
-            Token op = currentToken;
-            accept(Token.Kind.POW);
-            return op;
-        }
-        return null;
-    }
-    
     private boolean assignOp() {
         return accept(Token.Kind.ASSIGN) || accept(Token.Kind.ADD_ASSIGN) ||
                accept(Token.Kind.SUB_ASSIGN) || accept(Token.Kind.MUL_ASSIGN) ||
@@ -875,20 +1121,29 @@ public class Compiler {
     // computation	= "main" {varDecl} {funcDecl} "{" statSeq "}" "."
     private Computation computation () {
         expect(Token.Kind.MAIN);
+        int globalsStart = cursor;
         
         // Create main symbol
-        Symbol mainSymbol = new Symbol("main", new VoidType(), false);
+        Symbol mainSymbol = symbolTable.fresh("main", VoidType.INSTANCE, false);
         
         // Parse variable declarations
         ast.DeclarationList varDecls = new ast.DeclarationList(lineNumber(), charPosition());
         while (have(NonTerminal.VAR_DECL)) {
             varDecls.addDeclaration(varDecl());
         }
+        globalsFingerprint = tokens.fingerprint(globalsStart, cursor);
+        if (arena != null) {
+            arena.beginComputation(mainSymbol, varDecls);
+        }
         
         // Parse function declarations
         java.util.List<ast.FunctionDeclaration> funcDecls = new java.util.ArrayList<>();
         while (have(NonTerminal.FUNC_DECL)) {
-            funcDecls.add(funcDecl());
+            if (arena != null) {
+                arena.addFunction(funcDecl());
+            } else {
+                funcDecls.add(funcDecl());
+            }
         }
         
         expect(Token.Kind.OPEN_BRACE);
@@ -896,6 +1151,9 @@ public class Compiler {
         expect(Token.Kind.CLOSE_BRACE);
         expect(Token.Kind.PERIOD);
         
+        if (arena != null) {
+            arena.endComputation(lineNumber(), charPosition(), statSeq, symbolTable.symbolCount());
+        }
         return new ast.Computation(lineNumber(), charPosition(), mainSymbol, varDecls, funcDecls, statSeq);
     }
 
@@ -1,6 +1,7 @@
 package mocha;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import org.apache.commons.cli.*;
 
@@ -13,10 +14,20 @@ public class CompilerTester {
     public static void main(String[] args) {
         Options options = new Options();
         options.addRequiredOption("s", "src", true, "Source File");
+        options.addOption("mmap", "mmap", false, "Memory-map the source file");
+        options.addOption("compact", "compact", false, "Keep the AST packed in an arena");
+        options.addOption("lazy", "lazy", false, "Parse and check function bodies on first use; with -int or -tier, a body with errors stops the run when first called");
+        options.addOption("par", "parallel", false, "Parse and type-check function bodies in parallel");
+        options.addOption("recheck", "recheck", true, "Type-check N more times sharing a CheckCache, printing its hits and misses");
         options.addOption("i", "in", true, "Data File");
+        options.addOption("np", "noPrompt", false, "Read input without printing prompts");
         options.addOption("nr", "reg", true, "Num Regs");
         options.addOption("a", "astOut", false, "Print AST");
-        // options.addOption("int", "interpret", false, "Interpreter mode");
+        options.addOption("int", "interpret", false, "Interpreter mode");
+        options.addOption("vm", "vm", false, "Compile to bytecode and run it");
+        options.addOption("tier", "tiered", false, "Interpret, compiling hot functions to JVM bytecode");
+        options.addOption("ir", "runIR", false, "Run the IR before and after -o optimizations, counting instructions");
+        options.addOption("jit", "jit", false, "Compile the -o optimized IR to JVM bytecode and run it");
         
         options.addOption("cfg", "cfg", true, "Print CFG.dot - requires graphs/");
 
@@ -38,24 +49,18 @@ public class CompilerTester {
         mocha.Scanner s = null;
         String sourceFile = cmd.getOptionValue("src");
         try {
-            s = new mocha.Scanner(sourceFile, new FileReader(sourceFile));
+            s = cmd.hasOption("mmap") ? new mocha.Scanner(sourceFile)
+                    : new mocha.Scanner(sourceFile, new FileReader(sourceFile));
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error accessing the code file: \"" + sourceFile + "\"");
             System.exit(-3);
         }
 
-        InputStream in = System.in;
-        if (cmd.hasOption("in")) {
-            String inputFilename = cmd.getOptionValue("in");
-            try {
-                in = new FileInputStream(inputFilename);
-            }
-            catch (IOException e) {
-                System.err.println("Error accessing the data file: \"" + inputFilename + "\"");
-                System.exit(-2);
-            }
-        }
+        // a data file is memory-mapped, standard input read through a buffer
+        String inputFilename = cmd.getOptionValue("in");
+        boolean prompt = !cmd.hasOption("np");
+        DataReader in = dataReader(inputFilename, prompt);
 
         // Create graph dir if needed
         File dir = new File(GRAPH_DIR_NAME);
@@ -82,7 +87,9 @@ public class CompilerTester {
 
         
         mocha.Compiler c = new mocha.Compiler(s, numRegs);
-        ast.AST ast = c.genAST();
+        ast.AST ast = cmd.hasOption("compact") ? c.genArena().toAST()
+                : cmd.hasOption("lazy") ? c.genLazyAST()
+                : cmd.hasOption("par") ? c.genParallelAST() : c.genAST();
         if (cmd.hasOption("a")) { // AST to Screen
             String ast_text = ast.printPreOrder();
             System.out.println(ast_text);
@@ -94,19 +101,76 @@ public class CompilerTester {
             System.exit(-8);
         }
 
-        types.TypeChecker tc = new types.TypeChecker();
+        types.CheckCache cache = cmd.hasOption("recheck") ? new types.CheckCache() : null;
+        types.TypeChecker tc = new types.TypeChecker(cache);
+        boolean lazy = cmd.hasOption("lazy");
+        boolean typeChecked = cmd.hasOption("par") ? tc.checkParallel(ast)
+                : lazy ? tc.checkLazily(ast) : tc.check(ast);
+        if (cache != null) { // as an editor would on each keystroke; the report goes to stderr
+            recheck(ast, cache, cmd.getOptionValue("recheck"), cmd.hasOption("par"), typeChecked);
+        }
+
+        if (lazy && ast.computation() != null) {
+            if (cmd.hasOption("int") || cmd.hasOption("tier")) { // a body is parsed when first called
+                for (ast.FunctionDeclaration function : ast.computation().functions()) {
+                    function.whenParsed(node -> {
+                        if (c.hasError() || tc.hasError()) {
+                            throw new BodyErrors();
+                        }
+                    });
+                }
+            } else { // the other modes need every body before they start
+                ast.parseFunctionBodies();
+                typeChecked = !tc.hasError();
+            }
+        }
+
+        if (c.hasError()) { // with -lazy, the bodies parsed just above
+            System.out.println("Error parsing file.");
+            System.out.println(c.errorReport());
+            System.exit(-8);
+        }
 
-        if (!tc.check(ast)) {
+        if (!typeChecked) {
             System.out.println("Error type-checking file.");
             System.out.println(tc.errorReport());
             System.exit(-4);
         }
 
-        // if (cmd.hasOption("int")) { // Interpreter mode - at this point the program is well-formed
-        //     c.interpret(in);
-        // } else {
-        //     System.out.println("Success type-checking file.");
-        // }
+        if (cmd.hasOption("int")) { // Interpreter mode - at this point the program is well-formed
+            try {
+                new Interpreter(in).interpret(ast);
+            } catch (BodyErrors e) {
+                exitOnBodyErrors(c, tc);
+            }
+            return;
+        }
+        if (cmd.hasOption("tier")) { // same output as -int; which functions were promoted goes to stderr
+            Interpreter interpreter = new Interpreter(in, true);
+            try {
+                interpreter.interpret(ast);
+            } catch (BodyErrors e) {
+                exitOnBodyErrors(c, tc);
+            }
+            System.err.print(interpreter.tierReport());
+            return;
+        }
+        if (cmd.hasOption("vm")) { // same output as -int, from bytecode
+            vm.VM.run(vm.BytecodeCompiler.compile(ast), in);
+            return;
+        }
+        if (cmd.hasOption("ir")) { // output of the optimized IR; instruction counts go to stderr
+            String[] optArgs = cmd.getOptionValues("opt");
+            List<String> optArguments = (optArgs!=null && optArgs.length != 0) ? Arrays.asList(optArgs) : new ArrayList<String>();
+            runIR(c, ast, optArguments, inputFilename, prompt);
+            return;
+        }
+        if (cmd.hasOption("jit")) { // same output as -ir, from JVM bytecode
+            String[] optArgs = cmd.getOptionValues("opt");
+            List<String> optArguments = (optArgs!=null && optArgs.length != 0) ? Arrays.asList(optArgs) : new ArrayList<String>();
+            runJIT(c, ast, optArguments, in);
+            return;
+        }
 
         // Dot graph before optimization
         // For IR Visualizer
@@ -176,4 +240,128 @@ public class CompilerTester {
         // e.g., if we run -s test000.txt -o cp -o cf -o dce -loop
         // the file will have the name "record_test000_cp_cf_dce_loop.txt"
     }
+
+    private static DataReader dataReader(String inputFilename, boolean prompt) {
+        if (inputFilename == null) {
+            return new DataReader(System.in, prompt);
+        }
+        try {
+            return DataReader.map(Paths.get(inputFilename), prompt);
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Error accessing the data file: \"" + inputFilename + "\"");
+            System.exit(-2);
+            return null;
+        }
+    }
+
+    // runs the program's IR as generated and as optimized, on the same input,
+    // and compares the instructions each function ran; a program whose IR does
+    // not compute what it does is refused, as its counts would mean nothing
+    private static void runIR(mocha.Compiler c, ast.AST ast, List<String> opts, String inputFilename, boolean prompt) {
+        String unsupported = new ir.build.IRCoverage(ast.computation()).unsupported();
+        if (!unsupported.isEmpty()) {
+            System.err.println("Cannot run the IR, it does not compute what the program does: " + unsupported);
+            System.exit(-16);
+        }
+        byte[] data = null;
+        if (inputFilename == null) {
+            try {
+                data = System.in.readAllBytes();
+            } catch (IOException e) {
+                data = new byte[0];
+            }
+        }
+        ir.IRProgram optimized = c.genIR(ast);
+        new ir.optimize.Optimizer().run(optimized, opts);
+
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream plainOutput = new ByteArrayOutputStream();
+        ByteArrayOutputStream optimizedOutput = new ByteArrayOutputStream();
+        ir.exec.IRExecutor before;
+        ir.exec.IRExecutor after;
+        try {
+            System.setOut(new PrintStream(plainOutput, true));
+            before = ir.exec.IRExecutor.run(c.genIR(ast), data == null ? dataReader(inputFilename, prompt)
+                    : new DataReader(new ByteArrayInputStream(data), prompt));
+            System.setOut(new PrintStream(optimizedOutput, true));
+            after = ir.exec.IRExecutor.run(optimized, data == null ? dataReader(inputFilename, prompt)
+                    : new DataReader(new ByteArrayInputStream(data), prompt));
+        } finally {
+            System.setOut(stdout);
+        }
+        System.out.print(optimizedOutput);
+        System.out.flush();
+        System.err.print(before.compare(after));
+        if (!Arrays.equals(plainOutput.toByteArray(), optimizedOutput.toByteArray())) {
+            System.err.println("Output differs after optimization; before it was:");
+            System.err.print(plainOutput);
+        }
+    }
+
+    // thrown out of a run under -lazy by a function body parsed with errors
+    private static final class BodyErrors extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        BodyErrors () {
+            super(null, null, false, false);
+        }
+    }
+
+    // after what the run printed before the body was reached
+    private static void exitOnBodyErrors(mocha.Compiler c, types.TypeChecker tc) {
+        if (c.hasError()) {
+            System.out.println("Error parsing file.");
+            System.out.println(c.errorReport());
+            System.exit(-8);
+        }
+        System.out.println("Error type-checking file.");
+        System.out.println(tc.errorReport());
+        System.exit(-4);
+    }
+
+    // type-checks ast count more times, each with a fresh TypeChecker sharing
+    // cache, and reports how many bodies were served from it
+    private static void recheck(ast.AST ast, types.CheckCache cache, String count, boolean parallel, boolean typeChecked) {
+        int times;
+        try {
+            times = Integer.parseInt(count);
+        } catch (NumberFormatException e) {
+            System.err.println("Error in option recheck -- not a count: " + count);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            types.TypeChecker tc = new types.TypeChecker(cache);
+            if ((parallel ? tc.checkParallel(ast) : tc.check(ast)) != typeChecked) {
+                System.err.println("Recheck " + (i + 1) + " disagrees with the first check:");
+                System.err.println(tc.errorReport());
+            }
+        }
+        System.err.printf("recheck: %d times in %.1f ms, %d hits, %d misses, %d entries%n", times,
+                (System.nanoTime() - start) / 1e6, cache.hits(), cache.misses(), cache.size());
+    }
+
+    // compiles the optimized IR to JVM bytecode and runs it, or interprets the
+    // program if its IR does not compute what it does, and runs the IR itself
+    // if there is something in it the JIT cannot compile
+    private static void runJIT(mocha.Compiler c, ast.AST ast, List<String> opts, DataReader in) {
+        String unsupported = new ir.build.IRCoverage(ast.computation()).unsupported();
+        if (!unsupported.isEmpty()) {
+            System.err.println("Cannot compile, interpreting: " + unsupported);
+            new Interpreter(in).interpret(ast);
+            return;
+        }
+        ir.IRProgram program = c.genIR(ast);
+        new ir.optimize.Optimizer().run(program, opts);
+        ir.jit.CompiledCode code;
+        try {
+            code = ir.jit.JITCompiler.compile(program);
+        } catch (UnsupportedOperationException e) {
+            System.err.println("Cannot compile, running the IR: " + e.getMessage());
+            ir.exec.IRExecutor.run(program, in);
+            return;
+        }
+        code.run(program.getEntryFunction(), in);
+    }
 }
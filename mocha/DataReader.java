@@ -0,0 +1,293 @@
+package mocha;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Input of a running mocha program: the values readInt, readFloat and
+ * readBool return, taken one whitespace-separated word at a time from the
+ * data stream. Shared by the Interpreter and the vm back end so they read
+ * the same way.
+ *
+ * The data is scanned as bytes, through a buffer refilled from the stream or
+ * mapped from the data file, and numbers are parsed straight from those
+ * bytes. Words are still taken line by line as they always were: a read
+ * finding nothing more on its line returns 0 (false) and the next read
+ * starts on the next line; a word that is not a number reads as 0. Each read
+ * prints its prompt first unless the reader was made without prompts.
+ */
+public class DataReader {
+
+    private static final int CHUNK = 1 << 16;           // bytes scanned between refills
+    private static final long WINDOW = 1L << 30;        // bytes of a file mapped at a time
+
+    // 10^k for k <= 22, all exact as doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final boolean prompt;
+    private DataWriter output;          // where prompts go, null for System.out
+
+    // where the bytes come from: a stream, or a window mapped from the file
+    private final InputStream stream;
+    private FileChannel channel;
+    private long mapped;                // bytes of the file mapped so far
+    private ByteBuffer window;
+
+    // the bytes being scanned, CHUNK at a time, copied from window or read from stream
+    private final byte[] chunk = new byte[CHUNK];
+    private int position;
+    private int limit;
+
+    private boolean started;            // whether the first line has been begun
+    private byte[] word = new byte[32]; // the word last read
+
+    public DataReader(InputStream input) {
+        this(input, true);
+    }
+
+    public DataReader(InputStream input, boolean prompt) {
+        this.prompt = prompt;
+        this.stream = input;
+    }
+
+    private DataReader(FileChannel channel, boolean prompt) {
+        this.prompt = prompt;
+        this.stream = null;
+        this.channel = channel;
+    }
+
+    // memory-maps the data file, a window at a time for files too large to map whole
+    public static DataReader map(Path file, boolean prompt) throws IOException {
+        return new DataReader(FileChannel.open(file, StandardOpenOption.READ), prompt);
+    }
+
+    // prompts go to output, which is flushed before the reader waits on its stream
+    public void setOutput(DataWriter output) {
+        this.output = output;
+    }
+
+    public int readInt() {
+        if (prompt) {
+            prompt("int? ");
+        }
+        int length = nextWord();
+        if (length <= 0) {
+            return 0;
+        }
+        return parseInt(word, length);
+    }
+
+    public double readFloat() {
+        if (prompt) {
+            prompt("float? ");
+        }
+        int length = nextWord();
+        if (length <= 0) {
+            return 0.0;
+        }
+        return parseFloat(word, length);
+    }
+
+    public boolean readBool() {
+        if (prompt) {
+            prompt("true or false? ");
+        }
+        int length = nextWord();
+        // "true" in any case; x | 0x20 is the lower case of a letter and of nothing else that could match
+        return length == 4
+                && (word[0] | 0x20) == 't' && (word[1] | 0x20) == 'r'
+                && (word[2] | 0x20) == 'u' && (word[3] | 0x20) == 'e';
+    }
+
+    private void prompt(String text) {
+        if (output != null) {
+            output.print(text);
+        } else {
+            System.out.print(text);
+        }
+    }
+
+    // Words =====================================================================
+
+    // the next word on the current line into word, giving its length: 0 if the
+    // line has no more, -1 if there are no more lines
+    private int nextWord() {
+        int c = peek();
+        if (!started) {
+            started = true;
+            if (c == -1) {
+                return -1;
+            }
+        } else if (c == -1) {
+            return -1;
+        } else if (c == '\n' || c == '\r') {     // the line is used up: on to the next
+            position++;
+            if (c == '\r' && peek() == '\n') {
+                position++;
+            }
+            if (peek() == -1) {
+                return -1;
+            }
+        }
+
+        while (isBlank(c = peek())) {
+            position++;
+        }
+        int length = 0;
+        while (c != -1 && c != '\n' && c != '\r' && !isBlank(c)) {
+            if (length == word.length) {
+                word = Arrays.copyOf(word, length * 2);
+            }
+            word[length++] = (byte) c;
+            position++;
+            c = peek();
+        }
+        return length;
+    }
+
+    // whitespace within a line, as Character.isWhitespace has it for ASCII
+    private static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == 0x0B || c == '\f' || (c >= 0x1C && c <= 0x1F);
+    }
+
+    // the byte at position, or -1 at the end of the data
+    private int peek() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return chunk[position] & 0xFF;
+    }
+
+    // the next bytes into chunk, false if there are none
+    private boolean fill() {
+        try {
+            if (stream != null) {
+                if (output != null) {
+                    output.flush();
+                }
+                int n;
+                do {
+                    n = stream.read(chunk, 0, chunk.length);
+                } while (n == 0);
+                if (n < 0) {
+                    return false;
+                }
+                position = 0;
+                limit = n;
+                return true;
+            }
+            if (window == null || !window.hasRemaining()) {
+                if (!mapNext()) {
+                    return false;
+                }
+            }
+            int n = Math.min(CHUNK, window.remaining());
+            window.get(chunk, 0, n);
+            position = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // the next window of the file, false at its end
+    private boolean mapNext() throws IOException {
+        if (channel == null) {
+            return false;
+        }
+        long size = channel.size();
+        if (mapped < size) {
+            long length = Math.min(WINDOW, size - mapped);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, mapped, length);
+            mapped += length;
+        }
+        if (mapped >= size) {       // all mapped: the mapping outlives the channel
+            channel.close();
+            channel = null;
+        }
+        return window != null && window.hasRemaining();
+    }
+
+    // Numbers ===================================================================
+
+    // as Integer.parseInt, with 0 for anything it would reject
+    static int parseInt(byte[] text, int length) {
+        int i = 0;
+        boolean negative = text[0] == '-';
+        if (negative || text[0] == '+') {
+            i = 1;
+        }
+        if (i == length) {
+            return 0;
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return 0;
+            }
+            value = value * 10 + digit;
+            if (value > 1L << 31) {
+                return 0;
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        return value > Integer.MAX_VALUE ? 0 : (int) value;
+    }
+
+    // as Double.parseDouble, with 0 for anything it would reject. A plain
+    // decimal whose digits fit in 53 bits, with at most 22 after the point,
+    // is the quotient of two exact doubles, so one division rounds it
+    // exactly as parseDouble does; anything else goes to parseDouble.
+    static double parseFloat(byte[] text, int length) {
+        int i = 0;
+        boolean negative = text[0] == '-';
+        if (negative || text[0] == '+') {
+            i = 1;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;      // digits after the point, -1 if there is none
+        for (; i < length; i++) {
+            int c = text[i];
+            if (c == '.' && fraction < 0) {
+                fraction = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || digits == 18) {
+                return slowParseFloat(text, length);
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (fraction >= 0) {
+                fraction++;
+            }
+        }
+        if (digits == 0 || mantissa > 1L << 53 || fraction > 22) {
+            return slowParseFloat(text, length);
+        }
+        double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double slowParseFloat(byte[] text, int length) {
+        try {
+            return Double.parseDouble(new String(text, 0, length, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+}
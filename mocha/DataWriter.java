@@ -0,0 +1,155 @@
+package mocha;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output of a running mocha program: what printInt, printFloat, printBool
+ * and println write, and the DataReader's prompts. Shared by the
+ * Interpreter and the vm back end so they print the same way.
+ *
+ * Values are formatted straight into a byte buffer, which goes to the stream
+ * on println, when it fills, before the program waits for input and when
+ * the run ends. The text is what System.out.print and printf("%.2f") wrote
+ * before: a float is rounded half up from its shortest decimal form, as
+ * Formatter does, and a float too close to a halfway point to tell, or one
+ * the default locale writes differently, is still formatted by printf.
+ */
+public final class DataWriter {
+
+    private static final int SIZE = 1 << 13;
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e', ' '};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e', ' '};
+    private static final byte[] LINE = System.lineSeparator().getBytes();
+
+    // whether printf("%.2f") writes plain ASCII digits and a '.' here
+    private static final boolean PLAIN_FLOATS = String.format("%.2f", -1234.5).equals("-1234.50");
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[SIZE];
+    private int count;
+
+    public DataWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    // to whatever System.out is now
+    public DataWriter() {
+        this(System.out);
+    }
+
+    public void printInt(int value) {
+        if (SIZE - count < 12) {
+            flushBuffer();
+        }
+        byte[] b = buffer;
+        long v = value;
+        if (v < 0) {
+            b[count++] = '-';
+            v = -v;
+        }
+        count = digits(v, b, count);
+        b[count++] = ' ';
+    }
+
+    public void printFloat(double value) {
+        double magnitude = Math.abs(value);
+        if (PLAIN_FLOATS && magnitude < 1e13) {
+            // value * 100 rounded half up, when the exact value and every decimal
+            // that reads back as it round the same way
+            double scaled = magnitude * 100;
+            double whole = Math.floor(scaled);
+            double fraction = scaled - whole;
+            if (Math.abs(fraction - 0.5) > 2 * Math.ulp(scaled)) {
+                long cents = (long) whole + (fraction > 0.5 ? 1 : 0);
+                if (SIZE - count < 20) {
+                    flushBuffer();
+                }
+                byte[] b = buffer;
+                if (Double.compare(value, 0.0) < 0) {
+                    b[count++] = '-';
+                }
+                count = digits(cents / 100, b, count);
+                int hundredths = (int) (cents % 100);
+                b[count++] = '.';
+                b[count++] = (byte) ('0' + hundredths / 10);
+                b[count++] = (byte) ('0' + hundredths % 10);
+                b[count++] = ' ';
+                return;
+            }
+        }
+        write(String.format("%.2f", value).getBytes());
+        write(' ');
+    }
+
+    public void printBool(boolean value) {
+        write(value ? TRUE : FALSE);
+    }
+
+    public void println() {
+        write(LINE);
+        flush();
+    }
+
+    public void print(String text) {
+        write(text.getBytes());
+    }
+
+    public void flush() {
+        flushBuffer();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // as PrintStream does, output that cannot be written is dropped
+        }
+    }
+
+    private void write(int b) {
+        if (count == SIZE) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void write(byte[] bytes) {
+        if (SIZE - count < bytes.length) {
+            flushBuffer();
+            if (bytes.length > SIZE) {
+                writeOut(bytes, bytes.length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void flushBuffer() {
+        if (count > 0) {
+            writeOut(buffer, count);
+            count = 0;
+        }
+    }
+
+    private void writeOut(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+        } catch (IOException e) {
+            // dropped, as above
+        }
+    }
+
+    // the decimal digits of v >= 0 into b from at, giving the index past them
+    private static int digits(long v, byte[] b, int at) {
+        int length = 1;
+        for (long t = v; t >= 10; t /= 10) {
+            length++;
+        }
+        int end = at + length;
+        for (int i = end - 1; i >= at; i--) {
+            b[i] = (byte) ('0' + (int) (v % 10));
+            v /= 10;
+        }
+        return end;
+    }
+}
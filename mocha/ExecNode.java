@@ -0,0 +1,42 @@
+package mocha;
+
+/**
+ * A node of the tree the Interpreter runs. NodeBuilder makes one from the
+ * AST before the program starts; after that a node may swap itself for a
+ * version specialized to what it has seen, through its parent.
+ */
+abstract class ExecNode {
+
+    ExecNode parent;
+
+    // makes this the parent of child and returns child
+    final <T extends ExecNode> T adopt (T child) {
+        if (child != null) {
+            child.parent = this;
+        }
+        return child;
+    }
+
+    final <T extends ExecNode> T[] adopt (T[] children) {
+        for (T child : children) {
+            adopt(child);
+        }
+        return children;
+    }
+
+    // puts replacement where child was
+    void replaceChild (ExprNode child, ExprNode replacement) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no child to replace");
+    }
+
+    // replaces child wherever it is in children; returns whether it was there
+    static boolean replaceIn (ExprNode[] children, ExprNode child, ExprNode replacement) {
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == child) {
+                children[i] = replacement;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,1147 @@
+package mocha;
+
+import types.BoolType;
+import types.FloatType;
+import types.Type;
+
+/**
+ * An expression as the Interpreter runs it. Every node can give its value
+ * as an int, a float, a bool or a box; a parent asks for the one it
+ * expects, and a child holding something else throws UnexpectedResult with
+ * the value it has instead.
+ *
+ * Operators start out uninitialized. Their first evaluation looks at what
+ * the operands produced and replaces the node with an int or float version
+ * that never boxes; should that version later meet a value it does not
+ * handle, it replaces itself with a generic one that works on boxes.
+ */
+abstract class ExprNode extends ExecNode {
+
+    // what a variable, array element or call holds, from its static type
+    enum Kind {
+        INT, FLOAT, BOOL;
+
+        static Kind of (Type type) {
+            if (type instanceof FloatType) {
+                return FLOAT;
+            }
+            return type instanceof BoolType ? BOOL : INT;
+        }
+
+        Object zero () {
+            switch (this) {
+                case FLOAT:
+                    return 0.0;
+                case BOOL:
+                    return false;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    abstract Object executeGeneric (Interpreter in);
+
+    int executeInt (Interpreter in) {
+        return expectInt(executeGeneric(in));
+    }
+
+    double executeFloat (Interpreter in) {
+        return expectFloat(executeGeneric(in));
+    }
+
+    boolean executeBool (Interpreter in) {
+        return expectBool(executeGeneric(in));
+    }
+
+    static int expectInt (Object value) {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        throw new UnexpectedResult(value);
+    }
+
+    static double expectFloat (Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        throw new UnexpectedResult(value);
+    }
+
+    static boolean expectBool (Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new UnexpectedResult(value);
+    }
+
+    // puts replacement where this node is in the tree, which this node leaves
+    final <T extends ExprNode> T replace (T replacement) {
+        parent.replaceChild(this, replacement);
+        replacement.parent = parent;
+        parent = null;
+        return replacement;
+    }
+
+    // false once the node has been replaced, which a recursive call can do
+    // while an outer activation is still evaluating the node's operands
+    final boolean inTree () {
+        return parent != null;
+    }
+
+    // thrown by executeInt, executeFloat or executeBool for a value of another kind
+    static final class UnexpectedResult extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final transient Object value;
+
+        UnexpectedResult (Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    // Constants =================================================================
+
+    static final class IntConstant extends ExprNode {
+
+        private final int value;
+        private final Integer boxed;
+
+        IntConstant (int value) {
+            this.value = value;
+            this.boxed = value;
+        }
+
+        @Override
+        int executeInt (Interpreter in) {
+            return value;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return boxed;
+        }
+    }
+
+    static final class FloatConstant extends ExprNode {
+
+        private final double value;
+        private final Double boxed;
+
+        FloatConstant (double value) {
+            this.value = value;
+            this.boxed = value;
+        }
+
+        @Override
+        double executeFloat (Interpreter in) {
+            return value;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return boxed;
+        }
+    }
+
+    static final class BoolConstant extends ExprNode {
+
+        private final boolean value;
+
+        BoolConstant (boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            return value;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return value;
+        }
+    }
+
+    // Variables =================================================================
+
+    // the variable in slot (>= 0 global, ~slot local; see FrameLayout)
+    static ExprNode read (int slot, Kind kind) {
+        boolean global = slot >= 0;
+        switch (kind) {
+            case FLOAT:
+                return global ? new GlobalFloat(slot) : new LocalFloat(~slot);
+            case BOOL:
+                return global ? new GlobalBool(slot) : new LocalBool(~slot);
+            default:
+                return global ? new GlobalInt(slot) : new LocalInt(~slot);
+        }
+    }
+
+    static final class LocalInt extends ExprNode {
+
+        private final int slot;
+
+        LocalInt (int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        int executeInt (Interpreter in) {
+            return (int) in.frame.words[slot];
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeInt(in);
+        }
+    }
+
+    static final class GlobalInt extends ExprNode {
+
+        private final int slot;
+
+        GlobalInt (int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        int executeInt (Interpreter in) {
+            return (int) in.globals.words[slot];
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeInt(in);
+        }
+    }
+
+    static final class LocalFloat extends ExprNode {
+
+        private final int slot;
+
+        LocalFloat (int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        double executeFloat (Interpreter in) {
+            return in.frame.reals[slot];
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeFloat(in);
+        }
+    }
+
+    static final class GlobalFloat extends ExprNode {
+
+        private final int slot;
+
+        GlobalFloat (int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        double executeFloat (Interpreter in) {
+            return in.globals.reals[slot];
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeFloat(in);
+        }
+    }
+
+    static final class LocalBool extends ExprNode {
+
+        private final int slot;
+
+        LocalBool (int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            return in.frame.words[slot] != 0;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeBool(in);
+        }
+    }
+
+    static final class GlobalBool extends ExprNode {
+
+        private final int slot;
+
+        GlobalBool (int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            return in.globals.words[slot] != 0;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeBool(in);
+        }
+    }
+
+    // Arrays ====================================================================
+
+    // a[i][j]...: the array in slot and one index per dimension, outermost first
+    static final class ArrayElement extends ExprNode {
+
+        private final int slot;
+        private final Kind kind;
+        private final ExprNode[] indices;
+
+        ArrayElement (int slot, Kind kind, ExprNode[] indices) {
+            this.slot = slot;
+            this.kind = kind;
+            this.indices = adopt(indices);
+        }
+
+        static ArrayValue array (Interpreter in, int slot) {
+            return slot >= 0 ? in.globals.arrays[slot] : in.frame.arrays[~slot];
+        }
+
+        // where the element is in array's elements, or -1 if array has none
+        // there; every index is evaluated either way
+        static int offset (Interpreter in, ArrayValue array, ExprNode[] indices) {
+            int offset = 0;
+            boolean inBounds = array != null && indices.length <= array.dimensions.length;
+            for (int k = 0; k < indices.length; k++) {
+                int index = indices[k].executeInt(in);
+                if (inBounds && index >= 0 && index < array.dimensions[k]) {
+                    offset += index * array.strides[k];
+                } else {
+                    inBounds = false;
+                }
+            }
+            return inBounds ? offset : -1;
+        }
+
+        @Override
+        int executeInt (Interpreter in) {
+            ArrayValue array = array(in, slot);
+            int offset = offset(in, array, indices);
+            return offset < 0 ? 0 : array.ints[offset];
+        }
+
+        @Override
+        double executeFloat (Interpreter in) {
+            ArrayValue array = array(in, slot);
+            int offset = offset(in, array, indices);
+            return offset < 0 ? 0.0 : array.reals[offset];
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            ArrayValue array = array(in, slot);
+            int offset = offset(in, array, indices);
+            return offset >= 0 && array.bools[offset];
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            switch (kind) {
+                case FLOAT:
+                    return executeFloat(in);
+                case BOOL:
+                    return executeBool(in);
+                default:
+                    return executeInt(in);
+            }
+        }
+
+        @Override
+        void replaceChild (ExprNode child, ExprNode replacement) {
+            if (!replaceIn(indices, child, replacement)) {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+
+    // a whole array, as an argument: functions get arrays by reference
+    static final class ArrayReference extends ExprNode {
+
+        static final int NONE = Integer.MIN_VALUE;     // no array: the value is null
+
+        private final int slot;
+
+        ArrayReference (int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            if (slot == NONE) {
+                return null;
+            }
+            return slot >= 0 ? in.globals.arrays[slot] : in.frame.arrays[~slot];
+        }
+    }
+
+    // Operators =================================================================
+
+    abstract static class Binary extends ExprNode {
+
+        ExprNode left;
+        ExprNode right;
+
+        Binary (ExprNode left, ExprNode right) {
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        void replaceChild (ExprNode child, ExprNode replacement) {
+            if (left == child) {
+                left = replacement;
+            } else if (right == child) {
+                right = replacement;
+            } else {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+
+    enum Arith {
+        ADD, SUB, MUL, DIV, MOD, POW;
+
+        int ints (int left, int right) {
+            switch (this) {
+                case ADD:
+                    return left + right;
+                case SUB:
+                    return left - right;
+                case MUL:
+                    return left * right;
+                case DIV:
+                    return Interpreter.quotient(left, right);
+                case MOD:
+                    return Interpreter.remainder(left, right);
+                default:
+                    return Interpreter.intPower(left, right);
+            }
+        }
+
+        double reals (double left, double right) {
+            switch (this) {
+                case ADD:
+                    return left + right;
+                case SUB:
+                    return left - right;
+                case MUL:
+                    return left * right;
+                case DIV:
+                    return left / right;
+                case MOD:
+                    return left % right;
+                default:
+                    return Math.pow(left, right);
+            }
+        }
+
+        // on boxes: ints if both are, floats otherwise
+        Object objects (Object left, Object right) {
+            if (left instanceof Integer && right instanceof Integer) {
+                return ints((Integer) left, (Integer) right);
+            }
+            return reals(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+    }
+
+    static final class UninitializedArith extends Binary {
+
+        private final Arith op;
+
+        UninitializedArith (Arith op, ExprNode left, ExprNode right) {
+            super(left, right);
+            this.op = op;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            Object a = left.executeGeneric(in);
+            Object b = right.executeGeneric(in);
+            if (!inTree()) {
+                return op.objects(a, b);
+            }
+            if (a instanceof Integer && b instanceof Integer) {
+                replace(IntArith.of(op, left, right));
+            } else if (a instanceof Double && b instanceof Double) {
+                replace(FloatArith.of(op, left, right));
+            } else {
+                replace(new GenericArith(op, left, right));
+            }
+            return op.objects(a, b);
+        }
+    }
+
+    abstract static class SpecializedArith extends Binary {
+
+        final Arith op;
+
+        SpecializedArith (Arith op, ExprNode left, ExprNode right) {
+            super(left, right);
+            this.op = op;
+        }
+
+        // gives up on specializing: the rest of the evaluation, and every later one, is on boxes
+        final Object generalize (Object a, Object b) {
+            if (inTree()) {
+                replace(new GenericArith(op, left, right));
+            }
+            return op.objects(a, b);
+        }
+    }
+
+    abstract static class IntArith extends SpecializedArith {
+
+        IntArith (Arith op, ExprNode left, ExprNode right) {
+            super(op, left, right);
+        }
+
+        static IntArith of (Arith op, ExprNode left, ExprNode right) {
+            switch (op) {
+                case ADD:
+                    return new IntAdd(left, right);
+                case SUB:
+                    return new IntSub(left, right);
+                case MUL:
+                    return new IntMul(left, right);
+                case DIV:
+                    return new IntDiv(left, right);
+                case MOD:
+                    return new IntMod(left, right);
+                default:
+                    return new IntPow(left, right);
+            }
+        }
+
+        abstract int apply (int a, int b);
+
+        @Override
+        int executeInt (Interpreter in) {
+            int a;
+            try {
+                a = left.executeInt(in);
+            } catch (UnexpectedResult e) {
+                return expectInt(generalize(e.value, right.executeGeneric(in)));
+            }
+            int b;
+            try {
+                b = right.executeInt(in);
+            } catch (UnexpectedResult e) {
+                return expectInt(generalize(a, e.value));
+            }
+            return apply(a, b);
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            try {
+                return executeInt(in);
+            } catch (UnexpectedResult e) {
+                return e.value;
+            }
+        }
+    }
+
+    static final class IntAdd extends IntArith {
+        IntAdd (ExprNode left, ExprNode right) {
+            super(Arith.ADD, left, right);
+        }
+
+        @Override
+        int apply (int a, int b) {
+            return a + b;
+        }
+    }
+
+    static final class IntSub extends IntArith {
+        IntSub (ExprNode left, ExprNode right) {
+            super(Arith.SUB, left, right);
+        }
+
+        @Override
+        int apply (int a, int b) {
+            return a - b;
+        }
+    }
+
+    static final class IntMul extends IntArith {
+        IntMul (ExprNode left, ExprNode right) {
+            super(Arith.MUL, left, right);
+        }
+
+        @Override
+        int apply (int a, int b) {
+            return a * b;
+        }
+    }
+
+    static final class IntDiv extends IntArith {
+        IntDiv (ExprNode left, ExprNode right) {
+            super(Arith.DIV, left, right);
+        }
+
+        @Override
+        int apply (int a, int b) {
+            return Interpreter.quotient(a, b);
+        }
+    }
+
+    static final class IntMod extends IntArith {
+        IntMod (ExprNode left, ExprNode right) {
+            super(Arith.MOD, left, right);
+        }
+
+        @Override
+        int apply (int a, int b) {
+            return Interpreter.remainder(a, b);
+        }
+    }
+
+    static final class IntPow extends IntArith {
+        IntPow (ExprNode left, ExprNode right) {
+            super(Arith.POW, left, right);
+        }
+
+        @Override
+        int apply (int a, int b) {
+            return Interpreter.intPower(a, b);
+        }
+    }
+
+    abstract static class FloatArith extends SpecializedArith {
+
+        FloatArith (Arith op, ExprNode left, ExprNode right) {
+            super(op, left, right);
+        }
+
+        static FloatArith of (Arith op, ExprNode left, ExprNode right) {
+            switch (op) {
+                case ADD:
+                    return new FloatAdd(left, right);
+                case SUB:
+                    return new FloatSub(left, right);
+                case MUL:
+                    return new FloatMul(left, right);
+                case DIV:
+                    return new FloatDiv(left, right);
+                case MOD:
+                    return new FloatMod(left, right);
+                default:
+                    return new FloatPow(left, right);
+            }
+        }
+
+        abstract double apply (double a, double b);
+
+        @Override
+        double executeFloat (Interpreter in) {
+            double a;
+            try {
+                a = left.executeFloat(in);
+            } catch (UnexpectedResult e) {
+                return expectFloat(generalize(e.value, right.executeGeneric(in)));
+            }
+            double b;
+            try {
+                b = right.executeFloat(in);
+            } catch (UnexpectedResult e) {
+                return expectFloat(generalize(a, e.value));
+            }
+            return apply(a, b);
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            try {
+                return executeFloat(in);
+            } catch (UnexpectedResult e) {
+                return e.value;
+            }
+        }
+    }
+
+    static final class FloatAdd extends FloatArith {
+        FloatAdd (ExprNode left, ExprNode right) {
+            super(Arith.ADD, left, right);
+        }
+
+        @Override
+        double apply (double a, double b) {
+            return a + b;
+        }
+    }
+
+    static final class FloatSub extends FloatArith {
+        FloatSub (ExprNode left, ExprNode right) {
+            super(Arith.SUB, left, right);
+        }
+
+        @Override
+        double apply (double a, double b) {
+            return a - b;
+        }
+    }
+
+    static final class FloatMul extends FloatArith {
+        FloatMul (ExprNode left, ExprNode right) {
+            super(Arith.MUL, left, right);
+        }
+
+        @Override
+        double apply (double a, double b) {
+            return a * b;
+        }
+    }
+
+    static final class FloatDiv extends FloatArith {
+        FloatDiv (ExprNode left, ExprNode right) {
+            super(Arith.DIV, left, right);
+        }
+
+        @Override
+        double apply (double a, double b) {
+            return a / b;
+        }
+    }
+
+    static final class FloatMod extends FloatArith {
+        FloatMod (ExprNode left, ExprNode right) {
+            super(Arith.MOD, left, right);
+        }
+
+        @Override
+        double apply (double a, double b) {
+            return a % b;
+        }
+    }
+
+    static final class FloatPow extends FloatArith {
+        FloatPow (ExprNode left, ExprNode right) {
+            super(Arith.POW, left, right);
+        }
+
+        @Override
+        double apply (double a, double b) {
+            return Math.pow(a, b);
+        }
+    }
+
+    static final class GenericArith extends Binary {
+
+        private final Arith op;
+
+        GenericArith (Arith op, ExprNode left, ExprNode right) {
+            super(left, right);
+            this.op = op;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            Object a = left.executeGeneric(in);
+            return op.objects(a, right.executeGeneric(in));
+        }
+    }
+
+    // Relations =================================================================
+
+    enum Compare {
+        EQ, NE, LT, LE, GT, GE;
+
+        boolean test (int comparison) {
+            switch (this) {
+                case EQ:
+                    return comparison == 0;
+                case NE:
+                    return comparison != 0;
+                case LT:
+                    return comparison < 0;
+                case LE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        // on boxes: ints and bools among themselves, anything else as floats
+        boolean objects (Object left, Object right) {
+            if (left instanceof Integer && right instanceof Integer) {
+                return test(Integer.compare((Integer) left, (Integer) right));
+            }
+            if (left instanceof Boolean && right instanceof Boolean) {
+                return test(Boolean.compare((Boolean) left, (Boolean) right));
+            }
+            return test(Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue()));
+        }
+    }
+
+    static final class UninitializedCompare extends Binary {
+
+        private final Compare op;
+
+        UninitializedCompare (Compare op, ExprNode left, ExprNode right) {
+            super(left, right);
+            this.op = op;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            Object a = left.executeGeneric(in);
+            Object b = right.executeGeneric(in);
+            if (!inTree()) {
+                return op.objects(a, b);
+            }
+            if (a instanceof Integer && b instanceof Integer) {
+                replace(IntCompare.of(op, left, right));
+            } else if (a instanceof Double && b instanceof Double) {
+                replace(FloatCompare.of(op, left, right));
+            } else {
+                replace(new GenericCompare(op, left, right));
+            }
+            return op.objects(a, b);
+        }
+    }
+
+    abstract static class SpecializedCompare extends Binary {
+
+        final Compare op;
+
+        SpecializedCompare (Compare op, ExprNode left, ExprNode right) {
+            super(left, right);
+            this.op = op;
+        }
+
+        final boolean generalize (Object a, Object b) {
+            if (inTree()) {
+                replace(new GenericCompare(op, left, right));
+            }
+            return op.objects(a, b);
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeBool(in);
+        }
+    }
+
+    abstract static class IntCompare extends SpecializedCompare {
+
+        IntCompare (Compare op, ExprNode left, ExprNode right) {
+            super(op, left, right);
+        }
+
+        static IntCompare of (Compare op, ExprNode left, ExprNode right) {
+            switch (op) {
+                case EQ:
+                    return new IntEqual(left, right);
+                case NE:
+                    return new IntNotEqual(left, right);
+                case LT:
+                    return new IntLess(left, right);
+                case LE:
+                    return new IntLessEqual(left, right);
+                case GT:
+                    return new IntGreater(left, right);
+                default:
+                    return new IntGreaterEqual(left, right);
+            }
+        }
+
+        abstract boolean test (int a, int b);
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            int a;
+            try {
+                a = left.executeInt(in);
+            } catch (UnexpectedResult e) {
+                return generalize(e.value, right.executeGeneric(in));
+            }
+            int b;
+            try {
+                b = right.executeInt(in);
+            } catch (UnexpectedResult e) {
+                return generalize(a, e.value);
+            }
+            return test(a, b);
+        }
+    }
+
+    static final class IntEqual extends IntCompare {
+        IntEqual (ExprNode left, ExprNode right) {
+            super(Compare.EQ, left, right);
+        }
+
+        @Override
+        boolean test (int a, int b) {
+            return a == b;
+        }
+    }
+
+    static final class IntNotEqual extends IntCompare {
+        IntNotEqual (ExprNode left, ExprNode right) {
+            super(Compare.NE, left, right);
+        }
+
+        @Override
+        boolean test (int a, int b) {
+            return a != b;
+        }
+    }
+
+    static final class IntLess extends IntCompare {
+        IntLess (ExprNode left, ExprNode right) {
+            super(Compare.LT, left, right);
+        }
+
+        @Override
+        boolean test (int a, int b) {
+            return a < b;
+        }
+    }
+
+    static final class IntLessEqual extends IntCompare {
+        IntLessEqual (ExprNode left, ExprNode right) {
+            super(Compare.LE, left, right);
+        }
+
+        @Override
+        boolean test (int a, int b) {
+            return a <= b;
+        }
+    }
+
+    static final class IntGreater extends IntCompare {
+        IntGreater (ExprNode left, ExprNode right) {
+            super(Compare.GT, left, right);
+        }
+
+        @Override
+        boolean test (int a, int b) {
+            return a > b;
+        }
+    }
+
+    static final class IntGreaterEqual extends IntCompare {
+        IntGreaterEqual (ExprNode left, ExprNode right) {
+            super(Compare.GE, left, right);
+        }
+
+        @Override
+        boolean test (int a, int b) {
+            return a >= b;
+        }
+    }
+
+    // floats compare as Double.compare does
+    static final class FloatCompare extends SpecializedCompare {
+
+        FloatCompare (Compare op, ExprNode left, ExprNode right) {
+            super(op, left, right);
+        }
+
+        static FloatCompare of (Compare op, ExprNode left, ExprNode right) {
+            return new FloatCompare(op, left, right);
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            double a;
+            try {
+                a = left.executeFloat(in);
+            } catch (UnexpectedResult e) {
+                return generalize(e.value, right.executeGeneric(in));
+            }
+            double b;
+            try {
+                b = right.executeFloat(in);
+            } catch (UnexpectedResult e) {
+                return generalize(a, e.value);
+            }
+            return op.test(Double.compare(a, b));
+        }
+    }
+
+    static final class GenericCompare extends Binary {
+
+        private final Compare op;
+
+        GenericCompare (Compare op, ExprNode left, ExprNode right) {
+            super(left, right);
+            this.op = op;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            Object a = left.executeGeneric(in);
+            return op.objects(a, right.executeGeneric(in));
+        }
+    }
+
+    // Logic: both operands are always evaluated ==================================
+
+    static final class And extends Binary {
+
+        And (ExprNode left, ExprNode right) {
+            super(left, right);
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            boolean a = left.executeBool(in);
+            boolean b = right.executeBool(in);
+            return a && b;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeBool(in);
+        }
+    }
+
+    static final class Or extends Binary {
+
+        Or (ExprNode left, ExprNode right) {
+            super(left, right);
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            boolean a = left.executeBool(in);
+            boolean b = right.executeBool(in);
+            return a || b;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeBool(in);
+        }
+    }
+
+    static final class Not extends ExprNode {
+
+        private ExprNode operand;
+
+        Not (ExprNode operand) {
+            this.operand = adopt(operand);
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            return !operand.executeBool(in);
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeBool(in);
+        }
+
+        @Override
+        void replaceChild (ExprNode child, ExprNode replacement) {
+            if (operand == child) {
+                operand = replacement;
+            } else {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+
+    // Calls =====================================================================
+
+    static final class ReadInt extends ExprNode {
+
+        @Override
+        int executeInt (Interpreter in) {
+            return in.input.readInt();
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeInt(in);
+        }
+    }
+
+    static final class ReadFloat extends ExprNode {
+
+        @Override
+        double executeFloat (Interpreter in) {
+            return in.input.readFloat();
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeFloat(in);
+        }
+    }
+
+    static final class ReadBool extends ExprNode {
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            return in.input.readBool();
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            return executeBool(in);
+        }
+    }
+
+    // runs the function; its value is what the function returned
+    static final class Call extends ExprNode {
+
+        private final CallSite site;
+        private final Kind kind;
+
+        Call (CallSite site, Kind kind) {
+            this.site = adopt(site);
+            this.kind = kind;
+        }
+
+        @Override
+        int executeInt (Interpreter in) {
+            site.call(in);
+            return (int) in.returnWord;
+        }
+
+        @Override
+        double executeFloat (Interpreter in) {
+            site.call(in);
+            return in.returnReal;
+        }
+
+        @Override
+        boolean executeBool (Interpreter in) {
+            site.call(in);
+            return in.returnWord != 0;
+        }
+
+        @Override
+        Object executeGeneric (Interpreter in) {
+            switch (kind) {
+                case FLOAT:
+                    return executeFloat(in);
+                case BOOL:
+                    return executeBool(in);
+                default:
+                    return executeInt(in);
+            }
+        }
+    }
+}
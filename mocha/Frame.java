@@ -0,0 +1,36 @@
+package mocha;
+
+import java.util.Arrays;
+
+/**
+ * The variables of one activation, or the globals, unboxed. Slot numbers
+ * come from FrameLayout; an int or bool variable lives in words (a bool as
+ * 0 or 1), a float in reals, and an array in arrays. A slot only ever uses
+ * the one array that matches its variable's type.
+ *
+ * The Interpreter reuses a call's frame for later calls at the same depth,
+ * so a frame can be larger than the function running in it.
+ */
+final class Frame {
+
+    final long[] words;
+    final double[] reals;
+    final ArrayValue[] arrays;
+
+    Frame (int size) {
+        words = new long[size];
+        reals = new double[size];
+        arrays = new ArrayValue[size];
+    }
+
+    int size () {
+        return words.length;
+    }
+
+    // the first size slots back to 0, as in a new frame
+    void clear (int size) {
+        Arrays.fill(words, 0, size, 0);
+        Arrays.fill(reals, 0, size, 0);
+        Arrays.fill(arrays, 0, size, null);
+    }
+}
@@ -0,0 +1,265 @@
+package mocha;
+
+import ast.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Where every variable of a program lives while it runs: globals in one
+ * array, and the parameters and locals of each function in a frame of its
+ * own. The globals and main are laid out before the program starts, and a
+ * function the first time its frame is asked for, which is when it is first
+ * called; a body that is still unparsed (see Compiler.genLazyAST) is parsed
+ * then. Either way, the Interpreter finds a variable from its Symbol id alone.
+ *
+ * A symbol declared by the computation, or used in main, is global; any
+ * other symbol used in a function body gets a slot in that function's frame.
+ * A function's parameters take the first slots of its frame, in order.
+ */
+final class FrameLayout implements NodeVisitor {
+
+    private int[] slots;        // by symbol id: global slot, ~frame slot, or UNASSIGNED
+    private static final int UNASSIGNED = Integer.MIN_VALUE;
+
+    private int globalCount;
+    private final Map<Symbol, Integer> frameSizes = new HashMap<>();     // by function symbol
+    private int frameSize = -1;     // of the function being laid out; -1 in main
+
+    private FrameLayout (int symbolCount) {
+        slots = new int[Math.max(symbolCount, 16)];
+        Arrays.fill(slots, UNASSIGNED);
+    }
+
+    static FrameLayout of (AST ast) {
+        FrameLayout layout = new FrameLayout(ast.symbolCount());
+        if (ast.computation() != null) {
+            ast.computation().accept(layout);
+        }
+        return layout;
+    }
+
+    int globalCount () {
+        return globalCount;
+    }
+
+    // lays function out on first use
+    int frameSize (FunctionDeclaration function) {
+        Integer size = frameSizes.get(function.function());
+        if (size == null) {
+            function.accept(this);
+            size = frameSizes.get(function.function());
+        }
+        return size;
+    }
+
+    // slot of symbol: >= 0 in the globals, otherwise ~slot in the current frame;
+    // negative too for a symbol of a function not laid out yet
+    int slot (Symbol symbol) {
+        int id = symbol.id();
+        return id < slots.length ? slots[id] : UNASSIGNED;
+    }
+
+    private void assign (Symbol symbol) {
+        int id = symbol.id();
+        if (id >= slots.length) {
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(id + 1, length * 2));
+            Arrays.fill(slots, length, slots.length, UNASSIGNED);
+        }
+        if (slots[id] == UNASSIGNED) {
+            slots[id] = frameSize < 0 ? globalCount++ : ~frameSize++;
+        }
+    }
+
+    private void declare (VariableDeclaration node) {
+        for (Symbol variable : node.variables()) {
+            assign(variable);
+        }
+    }
+
+    // the functions are laid out as they are called, see frameSize
+    @Override
+    public void visit (Computation node) {
+        node.variables().accept(this);
+        node.mainStatementSequence().accept(this);
+    }
+
+    @Override
+    public void visit (DeclarationList node) {
+        for (VariableDeclaration declaration : node.declarations()) {
+            declare(declaration);
+        }
+    }
+
+    @Override
+    public void visit (FunctionDeclaration node) {
+        frameSize = 0;
+        if (node.parameters() != null) {
+            for (Symbol parameter : node.parameters()) {
+                assign(parameter);      // parameter i in frame slot i, where calls bind it
+            }
+        }
+        node.body().accept(this);
+        frameSizes.put(node.function(), frameSize);
+        frameSize = -1;
+    }
+
+    @Override
+    public void visit (FunctionBody node) {
+        for (VariableDeclaration declaration : node.variables()) {
+            declare(declaration);
+        }
+        node.statements().accept(this);
+    }
+
+    @Override
+    public void visit (VariableDeclaration node) {
+        declare(node);
+    }
+
+    @Override
+    public void visit (StatementSequence node) {
+        for (Statement statement : node.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public void visit (Designator node) {
+        assign(node.symbol());
+    }
+
+    @Override
+    public void visit (Assignment node) {
+        node.destination().accept(this);
+        node.source().accept(this);
+    }
+
+    @Override
+    public void visit (ArrayIndex node) {
+        node.array().accept(this);
+        node.index().accept(this);
+    }
+
+    @Override
+    public void visit (FunctionCall node) {
+        node.arguments().accept(this);
+    }
+
+    @Override
+    public void visit (ArgumentList node) {
+        for (Expression argument : node.arguments()) {
+            argument.accept(this);
+        }
+    }
+
+    @Override
+    public void visit (IfStatement node) {
+        node.condition().accept(this);
+        node.thenBranch().accept(this);
+        if (node.elseBranch() != null) {
+            node.elseBranch().accept(this);
+        }
+    }
+
+    @Override
+    public void visit (WhileStatement node) {
+        node.condition().accept(this);
+        node.body().accept(this);
+    }
+
+    @Override
+    public void visit (RepeatStatement node) {
+        node.body().accept(this);
+        node.condition().accept(this);
+    }
+
+    @Override
+    public void visit (ReturnStatement node) {
+        if (node.expression() != null) {
+            node.expression().accept(this);
+        }
+    }
+
+    @Override
+    public void visit (AddressOf node) {
+        node.operand().accept(this);
+    }
+
+    @Override
+    public void visit (Dereference node) {
+        node.operand().accept(this);
+    }
+
+    @Override
+    public void visit (LogicalNot node) {
+        node.operand().accept(this);
+    }
+
+    @Override
+    public void visit (Power node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (Multiplication node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (Division node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (Modulo node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (LogicalAnd node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (Addition node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (Subtraction node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (LogicalOr node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (Relation node) {
+        node.left().accept(this);
+        node.right().accept(this);
+    }
+
+    @Override
+    public void visit (BoolLiteral node) {
+    }
+
+    @Override
+    public void visit (IntegerLiteral node) {
+    }
+
+    @Override
+    public void visit (FloatLiteral node) {
+    }
+}
@@ -0,0 +1,77 @@
+package mocha;
+
+/**
+ * Trie over every static lexeme in Token.Kind, built once at class load.
+ * The Scanner walks it one char at a time while reading a keyword or
+ * operator, so token kinds are decided without comparing strings.
+ */
+final class KindTrie {
+
+    static final int ROOT = 0;
+    static final int DEAD = -1;
+
+    private static final int ALPHABET = 128;   // lexemes are all ASCII
+
+    private static final int[] next;            // state * ALPHABET + c -> state
+    private static final Token.Kind[] accept;   // kind whose lexeme ends in state
+
+    static {
+        int maxStates = 1;
+        for (Token.Kind k : Token.Kind.values()) {
+            maxStates += k.getLexeme().length();
+        }
+        int[] table = new int[maxStates * ALPHABET];
+        java.util.Arrays.fill(table, DEAD);
+        Token.Kind[] kinds = new Token.Kind[maxStates];
+
+        int states = 1;
+        for (Token.Kind k : Token.Kind.values()) {
+            String lexeme = k.getLexeme();
+            if (lexeme.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < lexeme.length(); i++) {
+                int slot = state * ALPHABET + lexeme.charAt(i);
+                if (table[slot] == DEAD) {
+                    table[slot] = states++;
+                }
+                state = table[slot];
+            }
+            kinds[state] = k;
+        }
+        next = java.util.Arrays.copyOf(table, states * ALPHABET);
+        accept = java.util.Arrays.copyOf(kinds, states);
+    }
+
+    private KindTrie () {
+    }
+
+    static int step (int state, int c) {
+        if (state == DEAD || c < 0 || c >= ALPHABET) {
+            return DEAD;
+        }
+        return next[state * ALPHABET + c];
+    }
+
+    // kind whose lexeme is exactly the path to state, or null
+    static Token.Kind accept (int state) {
+        return state == DEAD ? null : accept[state];
+    }
+
+    static Token.Kind match (SourceBuffer source, int offset, int length) {
+        int state = ROOT;
+        for (int i = 0; i < length && state != DEAD; i++) {
+            state = step(state, source.charAt(offset + i));
+        }
+        return accept(state);
+    }
+
+    static Token.Kind match (String lexeme) {
+        int state = ROOT;
+        for (int i = 0; i < lexeme.length() && state != DEAD; i++) {
+            state = step(state, lexeme.charAt(i));
+        }
+        return accept(state);
+    }
+}
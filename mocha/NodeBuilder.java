@@ -0,0 +1,401 @@
+package mocha;
+
+import ast.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import types.ArrayType;
+import types.CallTargets;
+import types.StaticType;
+import types.Type;
+
+/**
+ * Turns a checked AST into the ExecNode tree the Interpreter runs: main
+ * right away, each function body the first time it is called. Variables
+ * become reads and stores of their FrameLayout slots and operators start
+ * out uninitialized (see ExprNode).
+ */
+final class NodeBuilder implements NodeVisitor {
+
+    private final FrameLayout layout;
+    private final CallTargets targets;
+    private final Map<FunctionDeclaration, CallSite.Target> functions = new HashMap<>();
+
+    // what the last visit built
+    private ExprNode expression;
+    private StmtNode statement;
+
+    private NodeBuilder (FrameLayout layout, Computation computation) {
+        this.layout = layout;
+        this.targets = new CallTargets(computation);
+    }
+
+    // the globals' arrays, then the main statements
+    static StmtNode main (Computation computation, FrameLayout layout) {
+        NodeBuilder builder = new NodeBuilder(layout, computation);
+        List<StmtNode> statements = new ArrayList<>();
+        builder.declare(computation.variables().declarations(), statements);
+        statements.add(builder.statement(computation.mainStatementSequence()));
+        return new StmtNode.Block(statements.toArray(new StmtNode[0]));
+    }
+
+    CallSite.Target target (FunctionCall call) {
+        FunctionDeclaration function = targets.resolve(call);
+        if (function == null) {
+            return null;
+        }
+        return functions.computeIfAbsent(function,
+                f -> new CallSite.Target(f, layout.frameSize(f), this));
+    }
+
+    StmtNode body (FunctionDeclaration function) {
+        return statement(function.body());
+    }
+
+    private ExprNode expression (Expression node) {
+        node.accept(this);
+        return expression;
+    }
+
+    private ExprNode[] expressions (List<Expression> nodes) {
+        ExprNode[] built = new ExprNode[nodes.size()];
+        for (int i = 0; i < built.length; i++) {
+            built[i] = expression(nodes.get(i));
+        }
+        return built;
+    }
+
+    private StmtNode statement (Visitable node) {
+        node.accept(this);
+        return statement;
+    }
+
+    // a NewArray for every array declared
+    private void declare (List<VariableDeclaration> declarations, List<StmtNode> statements) {
+        for (VariableDeclaration declaration : declarations) {
+            for (Symbol variable : declaration.variables()) {
+                if (variable.type() instanceof ArrayType) {
+                    statements.add(new StmtNode.NewArray(layout.slot(variable), (ArrayType) variable.type()));
+                }
+            }
+        }
+    }
+
+    // the variable under a designator, seen through & and *
+    private static Designator designator (Expression node) {
+        while (node instanceof AddressOf || node instanceof Dereference) {
+            node = node instanceof AddressOf ? ((AddressOf) node).operand() : ((Dereference) node).operand();
+        }
+        return (Designator) node;
+    }
+
+    // the indices of a[i][j]..., outermost first
+    private static List<Expression> indices (ArrayIndex node) {
+        List<Expression> indices = new ArrayList<>();
+        Expression array = node;
+        while (array instanceof ArrayIndex) {
+            indices.add(0, ((ArrayIndex) array).index());
+            array = ((ArrayIndex) array).array();
+        }
+        return indices;
+    }
+
+    private static Designator arrayOf (ArrayIndex node) {
+        Expression array = node;
+        while (array instanceof ArrayIndex) {
+            array = ((ArrayIndex) array).array();
+        }
+        return designator(array);
+    }
+
+    // Declarations ==============================================================
+
+    @Override
+    public void visit (Computation node) {
+        statement = main(node, layout);
+    }
+
+    @Override
+    public void visit (DeclarationList node) {
+        List<StmtNode> statements = new ArrayList<>();
+        declare(node.declarations(), statements);
+        statement = new StmtNode.Block(statements.toArray(new StmtNode[0]));
+    }
+
+    @Override
+    public void visit (VariableDeclaration node) {
+        List<StmtNode> statements = new ArrayList<>();
+        declare(List.of(node), statements);
+        statement = new StmtNode.Block(statements.toArray(new StmtNode[0]));
+    }
+
+    @Override
+    public void visit (FunctionDeclaration node) {
+        statement = body(node);
+    }
+
+    @Override
+    public void visit (FunctionBody node) {
+        List<StmtNode> statements = new ArrayList<>();
+        declare(node.variables(), statements);
+        statements.add(statement(node.statements()));
+        statement = new StmtNode.Block(statements.toArray(new StmtNode[0]));
+    }
+
+    // Statements ================================================================
+
+    @Override
+    public void visit (StatementSequence node) {
+        List<StmtNode> statements = new ArrayList<>();
+        for (Statement s : node.statements()) {
+            statements.add(s instanceof FunctionCall ? callStatement((FunctionCall) s) : statement(s));
+        }
+        statement = new StmtNode.Block(statements.toArray(new StmtNode[0]));
+    }
+
+    @Override
+    public void visit (Assignment node) {
+        ExprNode.Kind kind = ExprNode.Kind.of(StaticType.of(node.destination()));
+        ExprNode value = expression(node.source());
+        if (node.destination() instanceof ArrayIndex) {
+            ArrayIndex destination = (ArrayIndex) node.destination();
+            statement = new StmtNode.ArrayStore(layout.slot(arrayOf(destination).symbol()), kind,
+                    expressions(indices(destination)), value);
+        } else {
+            statement = StmtNode.store(layout.slot(designator(node.destination()).symbol()), kind, value);
+        }
+    }
+
+    @Override
+    public void visit (IfStatement node) {
+        ExprNode condition = expression(node.condition());
+        StmtNode thenBranch = statement(node.thenBranch());
+        StmtNode elseBranch = node.elseBranch() == null ? null : statement(node.elseBranch());
+        statement = new StmtNode.If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public void visit (WhileStatement node) {
+        ExprNode condition = expression(node.condition());
+        statement = new StmtNode.While(condition, statement(node.body()));
+    }
+
+    @Override
+    public void visit (RepeatStatement node) {
+        StmtNode body = statement(node.body());
+        statement = new StmtNode.Repeat(body, expression(node.condition()));
+    }
+
+    @Override
+    public void visit (ReturnStatement node) {
+        if (node.expression() == null) {
+            statement = new StmtNode.Return(null, ExprNode.Kind.INT);
+        } else {
+            ExprNode.Kind kind = ExprNode.Kind.of(StaticType.of(node.expression()));
+            statement = new StmtNode.Return(expression(node.expression()), kind);
+        }
+    }
+
+    // Calls =====================================================================
+
+    private StmtNode callStatement (FunctionCall node) {
+        List<Expression> arguments = node.arguments().arguments();
+        switch (node.function().name()) {
+            case "printInt":
+                return arguments.isEmpty() ? empty() : new StmtNode.PrintInt(expression(arguments.get(0)));
+            case "printFloat":
+                return arguments.isEmpty() ? empty() : new StmtNode.PrintFloat(expression(arguments.get(0)));
+            case "printBool":
+                return arguments.isEmpty() ? empty() : new StmtNode.PrintBool(expression(arguments.get(0)));
+            case "println":
+                return new StmtNode.Println();
+            case "readInt":
+            case "readFloat":
+            case "readBool":
+                return new StmtNode.Evaluate(expression(node), ExprNode.Kind.of(StaticType.of(node)));
+            case "arrcpy":
+                if (arguments.size() < 3) {
+                    return empty();
+                }
+                return new StmtNode.ArrayCopy(arrayArgument(arguments.get(0)), arrayArgument(arguments.get(1)),
+                        expression(arguments.get(2)));
+            default:
+                return new StmtNode.Call(callSite(node));
+        }
+    }
+
+    // the arguments of a user function call, each with the kind it is passed as
+    private CallSite callSite (FunctionCall node) {
+        List<Expression> arguments = node.arguments().arguments();
+        ExprNode[] built = new ExprNode[arguments.size()];
+        ExprNode.Kind[] kinds = new ExprNode.Kind[arguments.size()];
+        for (int i = 0; i < built.length; i++) {
+            Expression argument = arguments.get(i);
+            Type type = StaticType.of(argument);
+            if (type instanceof ArrayType) {
+                built[i] = arrayArgument(argument);
+            } else {
+                built[i] = expression(argument);
+                kinds[i] = ExprNode.Kind.of(type);
+            }
+        }
+        return new CallSite(node, built, kinds, this);
+    }
+
+    // a whole array; a row of a larger one is not passed (the callee gets none)
+    private ExprNode arrayArgument (Expression argument) {
+        Expression array = argument;
+        while (array instanceof AddressOf || array instanceof Dereference) {
+            array = array instanceof AddressOf ? ((AddressOf) array).operand() : ((Dereference) array).operand();
+        }
+        if (array instanceof Designator) {
+            return new ExprNode.ArrayReference(layout.slot(((Designator) array).symbol()));
+        }
+        return new ExprNode.ArrayReference(ExprNode.ArrayReference.NONE);
+    }
+
+    private static StmtNode empty () {
+        return new StmtNode.Block(new StmtNode[0]);
+    }
+
+    @Override
+    public void visit (FunctionCall node) {
+        switch (node.function().name()) {
+            case "readInt":
+                expression = new ExprNode.ReadInt();
+                break;
+            case "readFloat":
+                expression = new ExprNode.ReadFloat();
+                break;
+            case "readBool":
+                expression = new ExprNode.ReadBool();
+                break;
+            default:
+                expression = new ExprNode.Call(callSite(node), ExprNode.Kind.of(StaticType.of(node)));
+                break;
+        }
+    }
+
+    @Override
+    public void visit (ArgumentList node) {
+        // arguments are built by their call
+    }
+
+    // Expressions ===============================================================
+
+    @Override
+    public void visit (BoolLiteral node) {
+        expression = new ExprNode.BoolConstant(node.value());
+    }
+
+    @Override
+    public void visit (IntegerLiteral node) {
+        expression = new ExprNode.IntConstant(node.value());
+    }
+
+    @Override
+    public void visit (FloatLiteral node) {
+        expression = new ExprNode.FloatConstant(node.value());
+    }
+
+    @Override
+    public void visit (Designator node) {
+        expression = ExprNode.read(layout.slot(node.symbol()), ExprNode.Kind.of(node.symbol().type()));
+    }
+
+    @Override
+    public void visit (AddressOf node) {
+        node.operand().accept(this);
+    }
+
+    @Override
+    public void visit (Dereference node) {
+        node.operand().accept(this);
+    }
+
+    @Override
+    public void visit (ArrayIndex node) {
+        expression = new ExprNode.ArrayElement(layout.slot(arrayOf(node).symbol()),
+                ExprNode.Kind.of(StaticType.of(node)), expressions(indices(node)));
+    }
+
+    private ExprNode arith (ExprNode.Arith op, Expression left, Expression right) {
+        ExprNode l = expression(left);
+        return new ExprNode.UninitializedArith(op, l, expression(right));
+    }
+
+    @Override
+    public void visit (Addition node) {
+        expression = arith(ExprNode.Arith.ADD, node.left(), node.right());
+    }
+
+    @Override
+    public void visit (Subtraction node) {
+        expression = arith(ExprNode.Arith.SUB, node.left(), node.right());
+    }
+
+    @Override
+    public void visit (Multiplication node) {
+        expression = arith(ExprNode.Arith.MUL, node.left(), node.right());
+    }
+
+    @Override
+    public void visit (Division node) {
+        expression = arith(ExprNode.Arith.DIV, node.left(), node.right());
+    }
+
+    @Override
+    public void visit (Modulo node) {
+        expression = arith(ExprNode.Arith.MOD, node.left(), node.right());
+    }
+
+    @Override
+    public void visit (Power node) {
+        expression = arith(ExprNode.Arith.POW, node.left(), node.right());
+    }
+
+    @Override
+    public void visit (LogicalAnd node) {
+        ExprNode left = expression(node.left());
+        expression = new ExprNode.And(left, expression(node.right()));
+    }
+
+    @Override
+    public void visit (LogicalOr node) {
+        ExprNode left = expression(node.left());
+        expression = new ExprNode.Or(left, expression(node.right()));
+    }
+
+    @Override
+    public void visit (LogicalNot node) {
+        expression = new ExprNode.Not(expression(node.operand()));
+    }
+
+    @Override
+    public void visit (Relation node) {
+        ExprNode.Compare op;
+        switch (node.operator().kind()) {
+            case EQUAL_TO:
+                op = ExprNode.Compare.EQ;
+                break;
+            case NOT_EQUAL:
+                op = ExprNode.Compare.NE;
+                break;
+            case LESS_THAN:
+                op = ExprNode.Compare.LT;
+                break;
+            case LESS_EQUAL:
+                op = ExprNode.Compare.LE;
+                break;
+            case GREATER_THAN:
+                op = ExprNode.Compare.GT;
+                break;
+            default:
+                op = ExprNode.Compare.GE;
+                break;
+        }
+        ExprNode left = expression(node.left());
+        expression = new ExprNode.UninitializedCompare(op, left, expression(node.right()));
+    }
+}
@@ -1,265 +1,77 @@
 package mocha;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
 
 public enum NonTerminal {
 
-    // nonterminal FIRST sets for grammar
+    // nonterminal FIRST sets for grammar, generated into PredictTable
 
     // operators
-    REL_OP(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.EQUAL_TO);
-            add(Token.Kind.NOT_EQUAL);
-            add(Token.Kind.LESS_THAN);
-            add(Token.Kind.LESS_EQUAL);
-            add(Token.Kind.GREATER_EQUAL);
-            add(Token.Kind.GREATER_THAN);
-        }
-    }),
-    ASSIGN_OP(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.ASSIGN);
-            add(Token.Kind.ADD_ASSIGN);
-            add(Token.Kind.SUB_ASSIGN);
-            add(Token.Kind.MUL_ASSIGN);
-            add(Token.Kind.DIV_ASSIGN);
-            add(Token.Kind.MOD_ASSIGN);
-            add(Token.Kind.POW_ASSIGN);
-        }
-    }),
-    UNARY_OP(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.UNI_INC);
-            add(Token.Kind.UNI_DEC);
-        }
-    }),
+    REL_OP(PredictTable.REL_OP),
+    ASSIGN_OP(PredictTable.ASSIGN_OP),
+    UNARY_OP(PredictTable.UNARY_OP),
 
     // literals (integer and float handled by Scanner)
-    BOOL_LIT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
-        }
-    }),
-    LITERAL(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
-            add(Token.Kind.INT_VAL);
-            add(Token.Kind.FLOAT_VAL);
-        }
-    }),
+    BOOL_LIT(PredictTable.BOOL_LIT),
+    LITERAL(PredictTable.LITERAL),
 
     // designator (ident handled by Scanner)
-    DESIGNATOR(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IDENT);
-        }
-    }),
+    DESIGNATOR(PredictTable.DESIGNATOR),
 
     // expression-related nonterminals
-    GROUP_EXPR(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
-            add(Token.Kind.INT_VAL);
-            add(Token.Kind.FLOAT_VAL);
-            add(Token.Kind.IDENT);
-            add(Token.Kind.NOT);
-            add(Token.Kind.OPEN_PAREN);
-            add(Token.Kind.CALL);
-        }
-    }),
-    POW_EXPR(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
-            add(Token.Kind.INT_VAL);
-            add(Token.Kind.FLOAT_VAL);
-            add(Token.Kind.IDENT);
-            add(Token.Kind.NOT);
-            add(Token.Kind.OPEN_PAREN);
-            add(Token.Kind.CALL);
-        }
-    }),
-    MULT_EXPR(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
-            add(Token.Kind.INT_VAL);
-            add(Token.Kind.FLOAT_VAL);
-            add(Token.Kind.IDENT);
-            add(Token.Kind.NOT);
-            add(Token.Kind.OPEN_PAREN);
-            add(Token.Kind.CALL);
-        }
-    }),
-    ADD_EXPR(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
-            add(Token.Kind.INT_VAL);
-            add(Token.Kind.FLOAT_VAL);
-            add(Token.Kind.IDENT);
-            add(Token.Kind.NOT);
-            add(Token.Kind.OPEN_PAREN);
-            add(Token.Kind.CALL);
-        }
-    }),
-    REL_EXPR(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
-            add(Token.Kind.INT_VAL);
-            add(Token.Kind.FLOAT_VAL);
-            add(Token.Kind.IDENT);
-            add(Token.Kind.NOT);
-            add(Token.Kind.OPEN_PAREN);
-            add(Token.Kind.CALL);
-        }
-    }),
-    RELATION(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.OPEN_PAREN);
-        }
-    }),
+    GROUP_EXPR(PredictTable.GROUP_EXPR),
+    POW_EXPR(PredictTable.POW_EXPR),
+    MULT_EXPR(PredictTable.MULT_EXPR),
+    ADD_EXPR(PredictTable.ADD_EXPR),
+    REL_EXPR(PredictTable.REL_EXPR),
+    RELATION(PredictTable.RELATION),
 
     // statements
-    ASSIGN(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IDENT);
-        }
-    }),
-    FUNC_CALL(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.CALL);
-        }
-    }),
-    IF_STAT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IF);
-        }
-    }),
-    WHILE_STAT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.WHILE);
-        }
-    }),
-    REPEAT_STAT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.REPEAT);
-        }
-    }),
-    RETURN_STAT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.RETURN);
-        }
-    }),
-    STATEMENT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IDENT);
-            add(Token.Kind.CALL);
-            add(Token.Kind.IF);
-            add(Token.Kind.WHILE);
-            add(Token.Kind.REPEAT);
-            add(Token.Kind.RETURN);
-        }
-    }),
-    STAT_SEQ(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IDENT);
-            add(Token.Kind.CALL);
-            add(Token.Kind.IF);
-            add(Token.Kind.WHILE);
-            add(Token.Kind.REPEAT);
-            add(Token.Kind.RETURN);
-        }
-    }),
+    ASSIGN(PredictTable.ASSIGN),
+    FUNC_CALL(PredictTable.FUNC_CALL),
+    IF_STAT(PredictTable.IF_STAT),
+    WHILE_STAT(PredictTable.WHILE_STAT),
+    REPEAT_STAT(PredictTable.REPEAT_STAT),
+    RETURN_STAT(PredictTable.RETURN_STAT),
+    STATEMENT(PredictTable.STATEMENT),
+    STAT_SEQ(PredictTable.STAT_SEQ),
 
     // declarations
-    TYPE_DECL(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.BOOL);
-            add(Token.Kind.INT);
-            add(Token.Kind.FLOAT);
-        }
-    }),
-    VAR_DECL(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.BOOL);
-            add(Token.Kind.INT);
-            add(Token.Kind.FLOAT);
-        }
-    }),
-    PARAM_DECL(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.BOOL);
-            add(Token.Kind.INT);
-            add(Token.Kind.FLOAT);
-        }
-    }),
+    TYPE_DECL(PredictTable.TYPE_DECL),
+    VAR_DECL(PredictTable.VAR_DECL),
+    PARAM_DECL(PredictTable.PARAM_DECL),
 
     // functions
-    FORMAL_PARAM(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.OPEN_PAREN);
-        }
-    }),
-    FUNC_BODY(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.OPEN_BRACE);
-        }
-    }),
-    FUNC_DECL(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.FUNC);
-        }
-    }),
+    FORMAL_PARAM(PredictTable.FORMAL_PARAM),
+    FUNC_BODY(PredictTable.FUNC_BODY),
+    FUNC_DECL(PredictTable.FUNC_DECL),
 
     // computation
-    COMPUTATION(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.MAIN);
-        }
-    })
+    COMPUTATION(PredictTable.COMPUTATION)
     ;
 
-    private final Set<Token.Kind> firstSet = new HashSet<>();
+    private final long first;   // bit Token.Kind.ordinal() set for each FIRST token
+    private final Set<Token.Kind> firstSet;
+
+    private NonTerminal (long first) {
+        this.first = first;
+        EnumSet<Token.Kind> set = EnumSet.noneOf(Token.Kind.class);
+        for (Token.Kind kind : Token.Kind.values()) {
+            if (predicts(kind)) {
+                set.add(kind);
+            }
+        }
+        firstSet = Collections.unmodifiableSet(set);
+    }
 
-    private NonTerminal (Set<Token.Kind> set) {
-        firstSet.addAll(set);
+    // whether kind can start this nonterminal: a single bit test
+    public final boolean predicts (Token.Kind kind) {
+        return (first & (1L << kind.ordinal())) != 0;
     }
 
     public final Set<Token.Kind> firstSet () {
         return firstSet;
     }
-}
\ No newline at end of file
+}
@@ -83,7 +83,7 @@ public class Parser {
     }
 
     private boolean have (NonTerminal nt) {
-        return nt.firstSet().contains(currentToken.kind);
+        return nt.predicts(currentToken.kind);
     }
 
     private boolean accept (Token.Kind kind) {
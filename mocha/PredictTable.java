@@ -0,0 +1,161 @@
+package mocha;
+
+// Generated by PredictTableGenerator from its grammar; do not edit by hand.
+// Each mask has bit Token.Kind.ordinal() set for every token in the FIRST set.
+final class PredictTable {
+
+    private PredictTable () {
+    }
+
+    private static long bit (Token.Kind kind) {
+        return 1L << kind.ordinal();
+    }
+
+    static final long REL_OP =
+            bit(Token.Kind.EQUAL_TO)
+            | bit(Token.Kind.NOT_EQUAL)
+            | bit(Token.Kind.LESS_THAN)
+            | bit(Token.Kind.LESS_EQUAL)
+            | bit(Token.Kind.GREATER_EQUAL)
+            | bit(Token.Kind.GREATER_THAN);
+
+    static final long ASSIGN_OP =
+            bit(Token.Kind.ASSIGN)
+            | bit(Token.Kind.ADD_ASSIGN)
+            | bit(Token.Kind.SUB_ASSIGN)
+            | bit(Token.Kind.MUL_ASSIGN)
+            | bit(Token.Kind.DIV_ASSIGN)
+            | bit(Token.Kind.MOD_ASSIGN)
+            | bit(Token.Kind.POW_ASSIGN);
+
+    static final long UNARY_OP =
+            bit(Token.Kind.UNI_INC)
+            | bit(Token.Kind.UNI_DEC);
+
+    static final long BOOL_LIT =
+            bit(Token.Kind.TRUE)
+            | bit(Token.Kind.FALSE);
+
+    static final long LITERAL =
+            bit(Token.Kind.TRUE)
+            | bit(Token.Kind.FALSE)
+            | bit(Token.Kind.INT_VAL)
+            | bit(Token.Kind.FLOAT_VAL);
+
+    static final long DESIGNATOR =
+            bit(Token.Kind.IDENT);
+
+    static final long GROUP_EXPR =
+            bit(Token.Kind.NOT)
+            | bit(Token.Kind.TRUE)
+            | bit(Token.Kind.FALSE)
+            | bit(Token.Kind.OPEN_PAREN)
+            | bit(Token.Kind.CALL)
+            | bit(Token.Kind.INT_VAL)
+            | bit(Token.Kind.FLOAT_VAL)
+            | bit(Token.Kind.IDENT);
+
+    static final long POW_EXPR =
+            bit(Token.Kind.NOT)
+            | bit(Token.Kind.TRUE)
+            | bit(Token.Kind.FALSE)
+            | bit(Token.Kind.OPEN_PAREN)
+            | bit(Token.Kind.CALL)
+            | bit(Token.Kind.INT_VAL)
+            | bit(Token.Kind.FLOAT_VAL)
+            | bit(Token.Kind.IDENT);
+
+    static final long MULT_EXPR =
+            bit(Token.Kind.NOT)
+            | bit(Token.Kind.TRUE)
+            | bit(Token.Kind.FALSE)
+            | bit(Token.Kind.OPEN_PAREN)
+            | bit(Token.Kind.CALL)
+            | bit(Token.Kind.INT_VAL)
+            | bit(Token.Kind.FLOAT_VAL)
+            | bit(Token.Kind.IDENT);
+
+    static final long ADD_EXPR =
+            bit(Token.Kind.NOT)
+            | bit(Token.Kind.TRUE)
+            | bit(Token.Kind.FALSE)
+            | bit(Token.Kind.OPEN_PAREN)
+            | bit(Token.Kind.CALL)
+            | bit(Token.Kind.INT_VAL)
+            | bit(Token.Kind.FLOAT_VAL)
+            | bit(Token.Kind.IDENT);
+
+    static final long REL_EXPR =
+            bit(Token.Kind.NOT)
+            | bit(Token.Kind.TRUE)
+            | bit(Token.Kind.FALSE)
+            | bit(Token.Kind.OPEN_PAREN)
+            | bit(Token.Kind.CALL)
+            | bit(Token.Kind.INT_VAL)
+            | bit(Token.Kind.FLOAT_VAL)
+            | bit(Token.Kind.IDENT);
+
+    static final long RELATION =
+            bit(Token.Kind.OPEN_PAREN);
+
+    static final long ASSIGN =
+            bit(Token.Kind.IDENT);
+
+    static final long FUNC_CALL =
+            bit(Token.Kind.CALL);
+
+    static final long IF_STAT =
+            bit(Token.Kind.IF);
+
+    static final long WHILE_STAT =
+            bit(Token.Kind.WHILE);
+
+    static final long REPEAT_STAT =
+            bit(Token.Kind.REPEAT);
+
+    static final long RETURN_STAT =
+            bit(Token.Kind.RETURN);
+
+    static final long STATEMENT =
+            bit(Token.Kind.IF)
+            | bit(Token.Kind.WHILE)
+            | bit(Token.Kind.REPEAT)
+            | bit(Token.Kind.CALL)
+            | bit(Token.Kind.RETURN)
+            | bit(Token.Kind.IDENT);
+
+    static final long STAT_SEQ =
+            bit(Token.Kind.IF)
+            | bit(Token.Kind.WHILE)
+            | bit(Token.Kind.REPEAT)
+            | bit(Token.Kind.CALL)
+            | bit(Token.Kind.RETURN)
+            | bit(Token.Kind.IDENT);
+
+    static final long TYPE_DECL =
+            bit(Token.Kind.BOOL)
+            | bit(Token.Kind.INT)
+            | bit(Token.Kind.FLOAT);
+
+    static final long VAR_DECL =
+            bit(Token.Kind.BOOL)
+            | bit(Token.Kind.INT)
+            | bit(Token.Kind.FLOAT);
+
+    static final long PARAM_DECL =
+            bit(Token.Kind.BOOL)
+            | bit(Token.Kind.INT)
+            | bit(Token.Kind.FLOAT);
+
+    static final long FORMAL_PARAM =
+            bit(Token.Kind.OPEN_PAREN);
+
+    static final long FUNC_BODY =
+            bit(Token.Kind.OPEN_BRACE);
+
+    static final long FUNC_DECL =
+            bit(Token.Kind.FUNC);
+
+    static final long COMPUTATION =
+            bit(Token.Kind.MAIN);
+}
@@ -0,0 +1,148 @@
+package mocha;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives the FIRST set of every NonTerminal from the grammar below and
+ * writes them out as PredictTable.java, one long bitmask per nonterminal.
+ *
+ * Regenerate after changing the grammar or NonTerminal:
+ *     java mocha.PredictTableGenerator mocha/PredictTable.java
+ */
+public class PredictTableGenerator {
+
+    // nonterminal -> alternatives; each alternative is the sequence of
+    // symbols it must start with ({ } and [ ] parts are left out, so no
+    // alternative derives the empty string). <NAME> is a nonterminal, a
+    // bare NAME is a Token.Kind.
+    private static final Map<String, String[]> GRAMMAR = new LinkedHashMap<>();
+
+    private static void rule (String lhs, String... alternatives) {
+        GRAMMAR.put(lhs, alternatives);
+    }
+
+    static {
+        // operators
+        rule("REL_OP", "EQUAL_TO", "NOT_EQUAL", "LESS_THAN", "LESS_EQUAL", "GREATER_EQUAL", "GREATER_THAN");
+        rule("ASSIGN_OP", "ASSIGN", "ADD_ASSIGN", "SUB_ASSIGN", "MUL_ASSIGN", "DIV_ASSIGN", "MOD_ASSIGN", "POW_ASSIGN");
+        rule("UNARY_OP", "UNI_INC", "UNI_DEC");
+
+        // literals
+        rule("BOOL_LIT", "TRUE", "FALSE");
+        rule("LITERAL", "INT_VAL", "FLOAT_VAL", "<BOOL_LIT>");
+
+        // designator = ident { "[" relExpr "]" }
+        rule("DESIGNATOR", "IDENT");
+
+        // expressions
+        rule("GROUP_EXPR", "<LITERAL>", "<DESIGNATOR>", "NOT <REL_EXPR>", "<RELATION>", "<FUNC_CALL>");
+        rule("POW_EXPR", "<GROUP_EXPR>");
+        rule("MULT_EXPR", "<POW_EXPR>");
+        rule("ADD_EXPR", "<MULT_EXPR>");
+        rule("REL_EXPR", "<ADD_EXPR>");
+        rule("RELATION", "OPEN_PAREN <REL_EXPR> CLOSE_PAREN");
+
+        // statements
+        rule("ASSIGN", "<DESIGNATOR> <ASSIGN_OP> <REL_EXPR>", "<DESIGNATOR> <UNARY_OP>");
+        rule("FUNC_CALL", "CALL IDENT OPEN_PAREN");
+        rule("IF_STAT", "IF <RELATION> THEN <STAT_SEQ>");
+        rule("WHILE_STAT", "WHILE <RELATION> DO <STAT_SEQ> OD");
+        rule("REPEAT_STAT", "REPEAT <STAT_SEQ> UNTIL <RELATION>");
+        rule("RETURN_STAT", "RETURN");
+        rule("STATEMENT", "<ASSIGN>", "<FUNC_CALL>", "<IF_STAT>", "<WHILE_STAT>", "<REPEAT_STAT>", "<RETURN_STAT>");
+        rule("STAT_SEQ", "<STATEMENT> SEMICOLON");
+
+        // declarations
+        rule("TYPE_DECL", "BOOL", "INT", "FLOAT");
+        rule("VAR_DECL", "<TYPE_DECL> IDENT");
+        rule("PARAM_DECL", "<TYPE_DECL> IDENT");
+
+        // functions
+        rule("FORMAL_PARAM", "OPEN_PAREN");
+        rule("FUNC_BODY", "OPEN_BRACE <STAT_SEQ> CLOSE_BRACE SEMICOLON");
+        rule("FUNC_DECL", "FUNC IDENT <FORMAL_PARAM> COLON");
+
+        // computation
+        rule("COMPUTATION", "MAIN OPEN_BRACE <STAT_SEQ> CLOSE_BRACE PERIOD");
+    }
+
+    // FIRST sets by fixpoint over the leading symbol of every alternative
+    static Map<String, EnumSet<Token.Kind>> firstSets () {
+        if (Token.Kind.values().length > Long.SIZE) {
+            throw new IllegalStateException("Token.Kind no longer fits in a long bitmask");
+        }
+        Map<String, EnumSet<Token.Kind>> first = new LinkedHashMap<>();
+        for (String lhs : GRAMMAR.keySet()) {
+            first.put(lhs, EnumSet.noneOf(Token.Kind.class));
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, String[]> rule : GRAMMAR.entrySet()) {
+                EnumSet<Token.Kind> set = first.get(rule.getKey());
+                for (String alternative : rule.getValue()) {
+                    String lead = alternative.split(" ")[0];
+                    if (lead.startsWith("<")) {
+                        changed |= set.addAll(first.get(lead.substring(1, lead.length() - 1)));
+                    } else {
+                        changed |= set.add(Token.Kind.valueOf(lead));
+                    }
+                }
+            }
+        }
+        return first;
+    }
+
+    static String generate () {
+        List<String> missing = new ArrayList<>();
+        for (NonTerminal nt : NonTerminal.values()) {
+            if (!GRAMMAR.containsKey(nt.name())) {
+                missing.add(nt.name());
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("No grammar rule for " + missing);
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append("package mocha;\n\n");
+        out.append("// Generated by PredictTableGenerator from its grammar; do not edit by hand.\n");
+        out.append("// Each mask has bit Token.Kind.ordinal() set for every token in the FIRST set.\n");
+        out.append("final class PredictTable {\n\n");
+        out.append("    private PredictTable () {\n    }\n\n");
+        out.append("    private static long bit (Token.Kind kind) {\n");
+        out.append("        return 1L << kind.ordinal();\n");
+        out.append("    }\n");
+        for (Map.Entry<String, EnumSet<Token.Kind>> entry : firstSets().entrySet()) {
+            out.append("\n    static final long ").append(entry.getKey()).append(" =");
+            String sep = "\n            ";
+            for (Token.Kind kind : entry.getValue()) {
+                out.append(sep).append("bit(Token.Kind.").append(kind.name()).append(")");
+                sep = "\n            | ";
+            }
+            out.append(";\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    public static void main (String[] args) throws IOException {
+        String source = generate();
+        if (args.length == 0) {
+            System.out.print(source);
+            return;
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(args[0])))) {
+            writer.print(source);
+        }
+        System.out.println("Wrote " + args[0]);
+    }
+}
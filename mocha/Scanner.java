@@ -2,40 +2,74 @@ package mocha;
 
 // import java.io.BufferedReader;
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class Scanner implements Iterator<Token> {
 
-    private BufferedReader input;   // buffered reader to read file
-    private boolean closed; // flag for whether reader is closed or not
+    // lexeme ends returned by symToken for tokens that are not slices
+    private static final int COMMENT = -2;
+    private static final int OPEN_COMMENT = -3;
+
+    private SourceBuffer source;    // whole source, tokenized by index
+    private boolean closed; // flag for whether EOF has been emitted
 
     private int lineNum;    // current line number
-    private int charPos;    // character offset on current line
+    private int lineStart;  // index where the current line starts (charPos = pos - lineStart)
 
-    private String scan;    // current lexeme being scanned in
+    private int pos;        // index of nextChar in source
     private int cache;
     private int nextChar;   // contains the next char (-1 == EOF)
 
+    // the token produced by the last scan(); tokenStart is -1 for tokens
+    // that are not a slice of the source (EOF, "!=" from cache, "/*/")
+    private Token.Kind tokenKind;
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenLineNum;
+    private int tokenCharPos;
+
     // reader will be a FileReader over the source file
     public Scanner (String sourceFileName, Reader reader) {
         // TODO: initialize scanner
-        input = new BufferedReader(reader);
+        try {
+            source = SourceBuffer.of(reader);
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            source = SourceBuffer.of("");
+        }
+        init();
+    }
+
+    // memory-maps the source file instead of reading it through a Reader
+    public Scanner (String sourceFileName) throws IOException {
+        source = SourceBuffer.map(Paths.get(sourceFileName));
+        init();
+    }
+
+    public Scanner (String sourceFileName, SourceBuffer source) {
+        this.source = source;
+        init();
+    }
+
+    private void init () {
         // System.out.println("Input: "+sourceFileName);
         closed = false;
         lineNum = 1;
-        charPos = 1;
+        lineStart = -1;
+        pos = 0;
+        nextChar = source.charAt(0);
+    }
 
-        try{
-            nextChar = input.read();
-        }catch(IOException e){
-            e.printStackTrace();
-        }
+    public SourceBuffer source () {
+        return source;
     }
 
     // signal an error message
     public void Error (String msg, Exception e) {
-        System.err.println("Scanner: Line - " + lineNum + ", Char - " + charPos);
+        System.err.println("Scanner: Line - " + lineNum + ", Char - " + (pos - lineStart));
         if (e != null) {
             e.printStackTrace();
         }
@@ -44,22 +78,17 @@ public class Scanner implements Iterator<Token> {
 
     /*
      * helper function for reading a single char from input
-     * can be used to catch and handle any IOExceptions,
-     * advance the charPos or lineNum, etc.
+     * advances pos and tracks lineNum/lineStart
      */
     private int readChar () {
         int c = nextChar;
         //nextChar not EOF -> load new nextChar
         if (c != -1){
-            try{
-                nextChar = input.read();
-            }catch (IOException e){
-                e.printStackTrace();
-            }
-            charPos++;
+            pos++;
+            nextChar = source.charAt(pos);
             if (c == '\n'){
-                charPos = 0;
                 lineNum++;
+                lineStart = pos;
             }
         }
         return c;
@@ -84,75 +113,106 @@ public class Scanner implements Iterator<Token> {
      *  invariants:
      *  1. call assumes that nextChar is already holding an unread character
      *  2. return leaves nextChar containing an untokenized character
-     *  3. closes reader when emitting EOF
+     *  3. marks the scanner closed when emitting EOF
      */
     @Override
     public Token next () {
-        String lex = null;
-        Token tk = null;
         if (!hasNext()) {
             throw new NoSuchElementException();
         }
-        // int c = 0;
+        scan();
+        if (tokenStart < 0) {
+            return special(tokenKind, tokenLineNum, tokenCharPos);
+        }
+        return new Token(source, tokenStart, tokenEnd - tokenStart, tokenKind, tokenLineNum, tokenCharPos);
+    }
+
+    // scans every remaining token straight into the stream's arrays
+    void scanInto (TokenStream stream) {
+        while (hasNext()) {
+            scan();
+            stream.add(tokenKind, tokenStart, tokenEnd - tokenStart, tokenLineNum, tokenCharPos);
+        }
+    }
 
-        while (Character.isWhitespace(nextChar)){
-            readChar();
+    // Token for a scan() result that has no source slice
+    static Token special (Token.Kind kind, int lineNum, int charPos) {
+        switch (kind) {
+            case EOF:
+                return Token.EOF(lineNum, charPos);
+            case NOT_EQUAL:
+                return new Token("!=", lineNum, charPos);
+            default:
+                return new Token("/*/", lineNum, charPos);
         }
-        
-        // Save the starting position of the token
-        int tokenLineNum = lineNum;
-        int tokenCharPos = charPos + 1; // Convert to 1-based indexing
-        
-        if (cache == '/' && nextChar == '/'){// for /* [abc] //
-            cache = -1;
-            while(nextChar != '\n' && nextChar != -1){
+    }
+
+    // reads the next token into the token* fields without allocating
+    private void scan () {
+        while (true) {
+            while (Character.isWhitespace(nextChar)){
                 readChar();
             }
-            return next();
-        }else if (cache == '!' && nextChar == '='){// for /* [abc] //
-            cache = -1;
-            tk = new Token("!=", tokenLineNum, tokenCharPos);
-            return tk;
-        }
-        if (nextChar == -1){
-            try{
-                input.close();
-            }catch (IOException e){
-                e.printStackTrace();
+
+            // Save the starting position of the token
+            tokenLineNum = lineNum;
+            tokenCharPos = pos - lineStart + 1; // Convert to 1-based indexing
+            tokenStart = -1;
+
+            if (cache == '/' && nextChar == '/'){// for /* [abc] //
+                cache = -1;
+                while(nextChar != '\n' && nextChar != -1){
+                    readChar();
+                }
+                continue;
+            }else if (cache == '!' && nextChar == '='){// for /* [abc] //
+                cache = -1;
+                tokenKind = Token.Kind.NOT_EQUAL;
+                return;
             }
-            closed = true;
-            tk = Token.EOF(tokenLineNum, tokenCharPos);
-            return tk;
-        }
-        if (Character.isDigit(nextChar)){
-            lex = numToken(Character.toString(nextChar));
-        }
-        else if (Character.isLetter(nextChar)){
-            lex = idToken(nextChar);
-        }else{
-            lex = symToken(nextChar);
-            if(lex == "//"){
-                return next();
+            if (nextChar == -1){
+                closed = true;
+                tokenKind = Token.Kind.EOF;
+                return;
             }
+
+            int start = pos;
+            int end;
+            if (Character.isDigit(nextChar)){
+                end = numToken();
+            }
+            else if (Character.isLetter(nextChar)){
+                end = idToken();
+            }else{
+                end = symToken();
+                if (end == COMMENT){
+                    continue;
+                }
+                if (end == OPEN_COMMENT){
+                    tokenKind = Token.Kind.ERROR;
+                    return;
+                }
+            }
+            // System.out.println("next() lex = "+source.slice(start, end - start));
+            tokenStart = start;
+            tokenEnd = end;
+            return;
         }
-        // System.out.println("next() lex = "+lex);
-        if (lex != null){
-            tk = new Token(lex, tokenLineNum, tokenCharPos);
-        }
-        return tk;
     }
-    
-    private String idToken(int i){
-        readChar();
-        String s = Character.toString(i);
+
+    // lexeme starts at nextChar; returns the index one past its end
+    private int idToken(){
+        int state = KindTrie.step(KindTrie.ROOT, readChar());
         while (Character.isLetterOrDigit(nextChar) || nextChar == '_'){
-            s += (char)nextChar;
-            readChar();
+            state = KindTrie.step(state, readChar());
         }
-        return s;
+        Token.Kind keyword = KindTrie.accept(state);
+        tokenKind = keyword != null ? keyword : Token.Kind.IDENT;
+        return pos;
     }
 
-    private String numToken(String s){
+    // lexeme starts at nextChar (or at a '-' just before it); returns its end
+    private int numToken(){
         boolean isFloat = false;
         readChar();
         while (Character.isDigit(nextChar) || nextChar == '.'){
@@ -163,10 +223,13 @@ public class Scanner implements Iterator<Token> {
                     isFloat = true;
                 }
             }
-            s += (char)nextChar;
             readChar();
         }
-        if(s.charAt(s.length()-1) == '.'){
+        int end = pos;
+        // "1." is only a float when digits follow the dot
+        tokenKind = isFloat ? Token.Kind.FLOAT_VAL : Token.Kind.INT_VAL;
+        if(source.charAt(end - 1) == '.'){
+            tokenKind = Token.Kind.ERROR;
             while(!(Character.isLetterOrDigit(nextChar) || "^*/%+-<>=(){}[].:,;".indexOf(nextChar) != -1 || nextChar == '\n')){//any standalone non alphanumeric
                 if(nextChar == '!'){
                     readChar();
@@ -174,33 +237,36 @@ public class Scanner implements Iterator<Token> {
                         cache = '!';
                         break;
                     }else{
-                        s+= '!';
+                        end = pos;
                         continue;
                     }
                 }
                 if(nextChar ==-1){
-                    return s;
+                    return end;
                 }
-                s += (char)nextChar;
                 readChar();
+                end = pos;
             }
         }
-        return s;
+        return end;
     }
 
-    private String symToken(int i){
-        String s = Character.toString(i);
-        readChar();
+    // returns the lexeme end, COMMENT for a skipped comment or OPEN_COMMENT
+    // for a block comment that runs into EOF
+    private int symToken(){
+        int i = readChar();
+        int state = KindTrie.step(KindTrie.ROOT, i);
         if("(){}[],.:;".indexOf(i)!= -1){
-            return s;
+            tokenKind = KindTrie.accept(state);
+            return pos;
         }
         else if("+-=^*/%<>!".indexOf(i)!= -1){
             if (i == '/'){
                 if (nextChar == '*' || nextChar == '/'){
                     if (!commentReader()){
-                        return "/*/";
+                        return OPEN_COMMENT;
                     }else{
-                        return "//";
+                        return COMMENT;
                     }
                 }
             }
@@ -208,19 +274,20 @@ public class Scanner implements Iterator<Token> {
             (i == '+' && nextChar == '+')||
             (i == '-' && nextChar == '-'))
             {
-                s += (char)nextChar;
-                readChar();
+                state = KindTrie.step(state, readChar());
             }else if (i == '-' && Character.isDigit(nextChar)){
-                s = numToken("-"+Character.toString(nextChar));
+                return numToken();
             }
+            Token.Kind op = KindTrie.accept(state);
+            tokenKind = op != null ? op : Token.Kind.ERROR;    // a lone '!'
         }else{
+            tokenKind = Token.Kind.ERROR;
             while((!Character.isLetterOrDigit(nextChar)) &&
             ("(){}[],.:;+-=^*/%<>".indexOf(nextChar) == -1 && nextChar != -1)){
-                s+= (char)nextChar;
                 readChar();
             }
         }
-        return s;
+        return pos;
     }
     // OPTIONAL: add any additional helper or convenience methods
     //           that you find make for a cleaner design
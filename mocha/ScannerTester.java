@@ -11,6 +11,7 @@ public class ScannerTester {
     public static void main (String[] args) {
         Options options = new Options();
         options.addRequiredOption("s", "src", true, "Source File");
+        options.addOption("mmap", "mmap", false, "Memory-map the source file");
 
 
         HelpFormatter formatter = new HelpFormatter();
@@ -27,7 +28,8 @@ public class ScannerTester {
         String sourceFile = cmd.getOptionValue("src");
 
         try {
-            s = new mocha.Scanner(sourceFile, new FileReader(sourceFile));
+            s = cmd.hasOption("mmap") ? new mocha.Scanner(sourceFile)
+                    : new mocha.Scanner(sourceFile, new FileReader(sourceFile));
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -0,0 +1,165 @@
+package mocha;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Whole-file view of a source program that the Scanner tokenizes by index.
+ * Lexemes are addressed as (offset, length) slices and only turned into a
+ * String when somebody asks for one.
+ */
+public abstract class SourceBuffer {
+
+    // read the whole reader once into a char[]
+    public static SourceBuffer of (Reader reader) throws IOException {
+        char[] data = new char[8192];
+        int len = 0;
+        int n;
+        while ((n = reader.read(data, len, data.length - len)) != -1) {
+            len += n;
+            if (len == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+        return new CharSource(data, len);
+    }
+
+    public static SourceBuffer of (String text) {
+        return new CharSource(text.toCharArray(), text.length());
+    }
+
+    // memory-map the file; mocha sources are ASCII so every byte is one char
+    public static SourceBuffer map (Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large to map: " + file);
+            }
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MappedSource(bytes, (int) size);
+        }
+    }
+
+    // number of chars in the buffer
+    public abstract int length ();
+
+    // char at index i, or -1 past the end
+    public abstract int charAt (int i);
+
+    public abstract String slice (int offset, int length);
+
+    public abstract boolean regionMatches (int offset, int length, String text);
+
+    // hash = hash * factor + c for each char c in [offset, offset + length).
+    // From hash 0 with factor 31, the low 32 bits are slice(offset, length).hashCode()
+    public abstract long hash (long hash, long factor, int offset, int length);
+
+    private static final class CharSource extends SourceBuffer {
+        private final char[] data;
+        private final int length;
+
+        CharSource (char[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        @Override
+        public int length () {
+            return length;
+        }
+
+        @Override
+        public int charAt (int i) {
+            return i < length ? data[i] : -1;
+        }
+
+        @Override
+        public String slice (int offset, int len) {
+            return new String(data, offset, len);
+        }
+
+        @Override
+        public boolean regionMatches (int offset, int len, String text) {
+            if (len != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (data[offset + i] != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public long hash (long hash, long factor, int offset, int len) {
+            // Horner's rule four chars at a time: same value, shorter dependency chain
+            long f2 = factor * factor;
+            long f3 = f2 * factor;
+            long f4 = f2 * f2;
+            int i = offset;
+            int end = offset + len;
+            for (; i + 4 <= end; i += 4) {
+                hash = hash * f4 + data[i] * f3 + data[i + 1] * f2 + data[i + 2] * factor + data[i + 3];
+            }
+            for (; i < end; i++) {
+                hash = hash * factor + data[i];
+            }
+            return hash;
+        }
+    }
+
+    private static final class MappedSource extends SourceBuffer {
+        private final MappedByteBuffer bytes;
+        private final int length;
+
+        MappedSource (MappedByteBuffer bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        @Override
+        public int length () {
+            return length;
+        }
+
+        @Override
+        public int charAt (int i) {
+            return i < length ? (bytes.get(i) & 0xFF) : -1;
+        }
+
+        @Override
+        public String slice (int offset, int len) {
+            byte[] out = new byte[len];
+            bytes.get(offset, out, 0, len);
+            return new String(out, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public boolean regionMatches (int offset, int len, String text) {
+            if (len != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if ((bytes.get(offset + i) & 0xFF) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public long hash (long hash, long factor, int offset, int len) {
+            for (int i = offset, end = offset + len; i < end; i++) {
+                hash = hash * factor + (bytes.get(i) & 0xFF);
+            }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package mocha;
+
+import types.ArrayType;
+
+/**
+ * A statement as the Interpreter runs it. A return sets
+ * Interpreter.returning, and every statement that runs others stops as
+ * soon as it sees that set.
+ */
+abstract class StmtNode extends ExecNode {
+
+    abstract void execute (Interpreter in);
+
+    static final class Block extends StmtNode {
+
+        private final StmtNode[] statements;
+
+        Block (StmtNode[] statements) {
+            this.statements = adopt(statements);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            for (StmtNode statement : statements) {
+                statement.execute(in);
+                if (in.returning) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // a statement with one expression in it
+    abstract static class WithValue extends StmtNode {
+
+        ExprNode value;
+
+        WithValue (ExprNode value) {
+            this.value = adopt(value);
+        }
+
+        @Override
+        void replaceChild (ExprNode child, ExprNode replacement) {
+            if (value == child) {
+                value = replacement;
+            } else {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+
+    // Assignment ================================================================
+
+    // value into the variable in slot (>= 0 global, ~slot local; see FrameLayout)
+    static StmtNode store (int slot, ExprNode.Kind kind, ExprNode value) {
+        boolean global = slot >= 0;
+        switch (kind) {
+            case FLOAT:
+                return global ? new StoreGlobalFloat(slot, value) : new StoreLocalFloat(~slot, value);
+            case BOOL:
+                return global ? new StoreGlobalBool(slot, value) : new StoreLocalBool(~slot, value);
+            default:
+                return global ? new StoreGlobalInt(slot, value) : new StoreLocalInt(~slot, value);
+        }
+    }
+
+    static final class StoreLocalInt extends WithValue {
+
+        private final int slot;
+
+        StoreLocalInt (int slot, ExprNode value) {
+            super(value);
+            this.slot = slot;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.frame.words[slot] = value.executeInt(in);
+        }
+    }
+
+    static final class StoreGlobalInt extends WithValue {
+
+        private final int slot;
+
+        StoreGlobalInt (int slot, ExprNode value) {
+            super(value);
+            this.slot = slot;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.globals.words[slot] = value.executeInt(in);
+        }
+    }
+
+    static final class StoreLocalFloat extends WithValue {
+
+        private final int slot;
+
+        StoreLocalFloat (int slot, ExprNode value) {
+            super(value);
+            this.slot = slot;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.frame.reals[slot] = value.executeFloat(in);
+        }
+    }
+
+    static final class StoreGlobalFloat extends WithValue {
+
+        private final int slot;
+
+        StoreGlobalFloat (int slot, ExprNode value) {
+            super(value);
+            this.slot = slot;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.globals.reals[slot] = value.executeFloat(in);
+        }
+    }
+
+    static final class StoreLocalBool extends WithValue {
+
+        private final int slot;
+
+        StoreLocalBool (int slot, ExprNode value) {
+            super(value);
+            this.slot = slot;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.frame.words[slot] = value.executeBool(in) ? 1 : 0;
+        }
+    }
+
+    static final class StoreGlobalBool extends WithValue {
+
+        private final int slot;
+
+        StoreGlobalBool (int slot, ExprNode value) {
+            super(value);
+            this.slot = slot;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.globals.words[slot] = value.executeBool(in) ? 1 : 0;
+        }
+    }
+
+    // value into a[i][j]...; the value is evaluated before the indices
+    static final class ArrayStore extends WithValue {
+
+        private final int slot;
+        private final ExprNode.Kind kind;
+        private final ExprNode[] indices;
+
+        ArrayStore (int slot, ExprNode.Kind kind, ExprNode[] indices, ExprNode value) {
+            super(value);
+            this.slot = slot;
+            this.kind = kind;
+            this.indices = adopt(indices);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            ArrayValue array;
+            int offset;
+            switch (kind) {
+                case FLOAT: {
+                    double element = value.executeFloat(in);
+                    array = ExprNode.ArrayElement.array(in, slot);
+                    offset = ExprNode.ArrayElement.offset(in, array, indices);
+                    if (offset >= 0) {
+                        array.reals[offset] = element;
+                    }
+                    break;
+                }
+                case BOOL: {
+                    boolean element = value.executeBool(in);
+                    array = ExprNode.ArrayElement.array(in, slot);
+                    offset = ExprNode.ArrayElement.offset(in, array, indices);
+                    if (offset >= 0) {
+                        array.bools[offset] = element;
+                    }
+                    break;
+                }
+                default: {
+                    int element = value.executeInt(in);
+                    array = ExprNode.ArrayElement.array(in, slot);
+                    offset = ExprNode.ArrayElement.offset(in, array, indices);
+                    if (offset >= 0) {
+                        array.ints[offset] = element;
+                    }
+                    break;
+                }
+            }
+        }
+
+        @Override
+        void replaceChild (ExprNode child, ExprNode replacement) {
+            if (!replaceIn(indices, child, replacement)) {
+                super.replaceChild(child, replacement);
+            }
+        }
+    }
+
+    // a fresh array of type, all elements 0, into slot
+    static final class NewArray extends StmtNode {
+
+        private final int slot;
+        private final ArrayType type;
+
+        NewArray (int slot, ArrayType type) {
+            this.slot = slot;
+            this.type = type;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            ArrayValue array = new ArrayValue(type);
+            if (slot >= 0) {
+                in.globals.arrays[slot] = array;
+            } else {
+                in.frame.arrays[~slot] = array;
+            }
+        }
+    }
+
+    // arrcpy(destination, source, count)
+    static final class ArrayCopy extends WithValue {
+
+        private final ExprNode destination;
+        private final ExprNode source;
+
+        ArrayCopy (ExprNode destination, ExprNode source, ExprNode count) {
+            super(count);
+            this.destination = adopt(destination);
+            this.source = adopt(source);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            ArrayValue to = (ArrayValue) destination.executeGeneric(in);
+            ArrayValue from = (ArrayValue) source.executeGeneric(in);
+            ArrayValue.copy(to, from, value.executeInt(in));
+        }
+    }
+
+    // Control ===================================================================
+
+    static final class If extends WithValue {
+
+        private final StmtNode thenBranch;
+        private final StmtNode elseBranch;
+
+        If (ExprNode condition, StmtNode thenBranch, StmtNode elseBranch) {
+            super(condition);
+            this.thenBranch = adopt(thenBranch);
+            this.elseBranch = adopt(elseBranch);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            if (value.executeBool(in)) {
+                thenBranch.execute(in);
+            } else if (elseBranch != null) {
+                elseBranch.execute(in);
+            }
+        }
+    }
+
+    static final class While extends WithValue {
+
+        private final StmtNode body;
+
+        While (ExprNode condition, StmtNode body) {
+            super(condition);
+            this.body = adopt(body);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            while (value.executeBool(in)) {
+                body.execute(in);
+                if (in.returning) {
+                    return;
+                }
+                in.backEdges++;
+            }
+        }
+    }
+
+    // the body runs again while the condition holds
+    static final class Repeat extends WithValue {
+
+        private final StmtNode body;
+
+        Repeat (StmtNode body, ExprNode condition) {
+            super(condition);
+            this.body = adopt(body);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            do {
+                body.execute(in);
+                if (in.returning) {
+                    return;
+                }
+                in.backEdges++;
+            } while (value.executeBool(in));
+        }
+    }
+
+    // leaves the value, if any, in Interpreter.returnWord or returnReal
+    static final class Return extends WithValue {
+
+        private final ExprNode.Kind kind;
+
+        Return (ExprNode value, ExprNode.Kind kind) {
+            super(value);
+            this.kind = kind;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            if (value != null) {
+                switch (kind) {
+                    case FLOAT:
+                        in.returnReal = value.executeFloat(in);
+                        break;
+                    case BOOL:
+                        in.returnWord = value.executeBool(in) ? 1 : 0;
+                        break;
+                    default:
+                        in.returnWord = value.executeInt(in);
+                        break;
+                }
+            }
+            in.returning = true;
+        }
+    }
+
+    // Calls =====================================================================
+
+    // a call made for what it does, such as a read whose value is dropped
+    static final class Evaluate extends WithValue {
+
+        private final ExprNode.Kind kind;
+
+        Evaluate (ExprNode value, ExprNode.Kind kind) {
+            super(value);
+            this.kind = kind;
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            evaluate(in, value, kind);
+        }
+    }
+
+    static final class Call extends StmtNode {
+
+        private final CallSite site;
+
+        Call (CallSite site) {
+            this.site = adopt(site);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            site.call(in);
+        }
+    }
+
+    static final class PrintInt extends WithValue {
+
+        PrintInt (ExprNode value) {
+            super(value);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.output.printInt(value.executeInt(in));
+        }
+    }
+
+    static final class PrintFloat extends WithValue {
+
+        PrintFloat (ExprNode value) {
+            super(value);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.output.printFloat(value.executeFloat(in));
+        }
+    }
+
+    static final class PrintBool extends WithValue {
+
+        PrintBool (ExprNode value) {
+            super(value);
+        }
+
+        @Override
+        void execute (Interpreter in) {
+            in.output.printBool(value.executeBool(in));
+        }
+    }
+
+    static final class Println extends StmtNode {
+
+        @Override
+        void execute (Interpreter in) {
+            in.output.println();
+        }
+    }
+
+    // evaluates value as its kind without boxing it
+    private static void evaluate (Interpreter in, ExprNode value, ExprNode.Kind kind) {
+        switch (kind) {
+            case FLOAT:
+                value.executeFloat(in);
+                break;
+            case BOOL:
+                value.executeBool(in);
+                break;
+            default:
+                value.executeInt(in);
+                break;
+        }
+    }
+}
@@ -4,15 +4,25 @@ import types.Type;
 
 public class Symbol {
 
+    private final int id;   // dense per compilation, -1 when not numbered
     private String name;
     private Type type;
     private boolean isFunction;
 
     public Symbol (String name, Type type, boolean isFunction) {
+        this(-1, name, type, isFunction);
+    }
+
+    public Symbol (int id, String name, Type type, boolean isFunction) {
+        this.id = id;
         this.name = name;
         this.type = type;
         this.isFunction = isFunction;
     }
+
+    public int id () {
+        return id;
+    }
     
     public String name () {
         return name;
@@ -1,110 +1,231 @@
 package mocha;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import types.*;
 
+/**
+ * All scopes of a compilation in one flat table: each name maps to a chain
+ * of bindings, innermost scope first. Entering a scope only remembers the
+ * undo log position; exiting pops the bindings made since then.
+ *
+ * Predefined functions live in one shared outer scope that no table can
+ * change or shadow. Lookups and inserts report failure by returning null.
+ *
+ * A function body can also be parsed on its own table layered over the
+ * finished global scope, which it only reads; several bodies can then be
+ * parsed at once.
+ */
 public class SymbolTable {
 
-    private Map<String, Symbol> symbols;
+    private static final Map<String, Symbol> PREDEFINED = initializePredefinedFunctions();
 
-    public SymbolTable () {
-        symbols = new HashMap<>();
-        // Initialize predefined functions
-        initializePredefinedFunctions();
-    }
-    
-    private void initializePredefinedFunctions() {
-        // Add all predefined functions
-        try {
-            // Read functions (no parameters)
-            insert("readInt", new FuncType(new TypeList(), new IntType()), true);
-            insert("readFloat", new FuncType(new TypeList(), new FloatType()), true);
-            insert("readBool", new FuncType(new TypeList(), new BoolType()), true);
-            
-            // Print functions (single parameter)
-            TypeList printIntParams = new TypeList();
-            printIntParams.append(new IntType());
-            insert("printInt", new FuncType(printIntParams, new VoidType()), true);
-            
-            TypeList printFloatParams = new TypeList();
-            printFloatParams.append(new FloatType());
-            insert("printFloat", new FuncType(printFloatParams, new VoidType()), true);
-            
-            TypeList printBoolParams = new TypeList();
-            printBoolParams.append(new BoolType());
-            insert("printBool", new FuncType(printBoolParams, new VoidType()), true);
-            
-            // Line printing function (no parameters)
-            insert("println", new FuncType(new TypeList(), new VoidType()), true);
-            
-            // Array copy function (3 parameters: dest array, src array, count)
-            TypeList arrcpyParams = new TypeList();
-            arrcpyParams.append(new ArrayType(new IntType(), -1)); // dest array
-            arrcpyParams.append(new ArrayType(new IntType(), -1)); // src array  
-            arrcpyParams.append(new IntType()); // count
-            insert("arrcpy", new FuncType(arrcpyParams, new VoidType()), true);
-            
-        } catch (RedeclarationError e) {
-            // Should not happen during initialization
+    private static final class Binding {
+        final Symbol symbol;
+        final int depth;
+        Binding outer;      // binding of the same name in an enclosing scope
+
+        Binding (Symbol symbol, int depth, Binding outer) {
+            this.symbol = symbol;
+            this.depth = depth;
+            this.outer = outer;
         }
     }
 
-    // lookup name in SymbolTable
-    public Symbol lookup (String name) throws SymbolNotFoundError {
-        Symbol symbol = symbols.get(name);
-        if (symbol == null) {
-            throw new SymbolNotFoundError(name);
+    private final Map<String, Binding> bindings;
+    private int nextId;     // predefined functions take ids [0, PREDEFINED.size())
+
+    // names bound in local scopes, in binding order
+    private String[] undoLog;
+    private int undoSize;
+
+    // undoSize at the time each local scope was entered
+    private int[] scopeMarks;
+    private int depth;      // 0 is the global scope
+
+    // for a body table: the shared global table, and the first global id it cannot see
+    private final SymbolTable globals;
+    private final int globalHorizon;
+
+    public SymbolTable () {
+        this(null, PREDEFINED.size(), Integer.MAX_VALUE);
+    }
+
+    // a table for one function body over the read-only globals: only globals
+    // with id < horizon are visible, and its own symbols are numbered from firstId
+    public SymbolTable (SymbolTable globals, int firstId, int horizon) {
+        bindings = new HashMap<>();
+        nextId = firstId;
+        undoLog = new String[16];
+        undoSize = 0;
+        scopeMarks = new int[4];
+        depth = 0;
+        this.globals = globals;
+        this.globalHorizon = horizon;
+    }
+
+    private static Map<String, Symbol> initializePredefinedFunctions() {
+        Map<String, Symbol> predefined = new HashMap<>();
+
+        // Read functions (no parameters)
+        predefine(predefined, "readInt", FuncType.of(TypeList.EMPTY, IntType.INSTANCE));
+        predefine(predefined, "readFloat", FuncType.of(TypeList.EMPTY, FloatType.INSTANCE));
+        predefine(predefined, "readBool", FuncType.of(TypeList.EMPTY, BoolType.INSTANCE));
+
+        // Print functions (single parameter)
+        predefine(predefined, "printInt", FuncType.of(TypeList.of(IntType.INSTANCE), VoidType.INSTANCE));
+        predefine(predefined, "printFloat", FuncType.of(TypeList.of(FloatType.INSTANCE), VoidType.INSTANCE));
+        predefine(predefined, "printBool", FuncType.of(TypeList.of(BoolType.INSTANCE), VoidType.INSTANCE));
+
+        // Line printing function (no parameters)
+        predefine(predefined, "println", FuncType.of(TypeList.EMPTY, VoidType.INSTANCE));
+
+        // Array copy function (3 parameters: dest array, src array, count)
+        TypeList arrcpyParams = TypeList.of(
+                ArrayType.of(IntType.INSTANCE, -1),     // dest array
+                ArrayType.of(IntType.INSTANCE, -1),     // src array
+                IntType.INSTANCE);                      // count
+        predefine(predefined, "arrcpy", FuncType.of(arrcpyParams, VoidType.INSTANCE));
+
+        return Collections.unmodifiableMap(predefined);
+    }
+
+    private static void predefine (Map<String, Symbol> predefined, String name, FuncType type) {
+        predefined.put(name, new Symbol(predefined.size(), name, type, true));
+    }
+
+    // a numbered symbol that is not bound in any scope
+    public Symbol fresh (String name, Type type, boolean isFunction) {
+        return new Symbol(nextId++, name, type, isFunction);
+    }
+
+    // number of symbol ids handed out so far, predefined functions included
+    public synchronized int symbolCount () {
+        return nextId;
+    }
+
+    // sets aside count ids for a body table; returns the first
+    public synchronized int reserve (int count) {
+        int first = nextId;
+        nextId += count;
+        return first;
+    }
+
+    public void enterScope () {
+        if (depth == scopeMarks.length) {
+            scopeMarks = Arrays.copyOf(scopeMarks, depth * 2);
         }
-        return symbol;
+        scopeMarks[depth++] = undoSize;
     }
 
-    // insert name in SymbolTable
-    public Symbol insert (String name, Type type, boolean isFunction) throws RedeclarationError {
-        if (symbols.containsKey(name)) {
-            throw new RedeclarationError(name);
+    // drops every binding made since the matching enterScope
+    public void exitScope () {
+        if (depth == 0) {
+            return;
+        }
+        int mark = scopeMarks[--depth];
+        while (undoSize > mark) {
+            String name = undoLog[--undoSize];
+            undoLog[undoSize] = null;
+            Binding innermost = bindings.get(name);
+            if (innermost.outer == null) {
+                bindings.remove(name);
+            } else {
+                bindings.put(name, innermost.outer);
+            }
         }
-        Symbol symbol = new Symbol(name, type, isFunction);
-        symbols.put(name, symbol);
-        return symbol;
     }
-    
-    // insert name in SymbolTable (backward compatibility)
-    public Symbol insert (String name) throws RedeclarationError {
-        return insert(name, new ErrorType("Type not specified"), false);
+
+    public int depth () {
+        return depth;
     }
-    
-    public boolean contains(String name) {
-        return symbols.containsKey(name);
+
+    // innermost symbol bound to name, or null
+    public Symbol lookup (String name) {
+        Binding binding = bindings.get(name);
+        if (binding != null) {
+            return binding.symbol;
+        }
+        if (globals != null) {
+            return globals.lookupGlobal(name, globalHorizon);
+        }
+        return PREDEFINED.get(name);
+    }
+
+    private Symbol lookupGlobal (String name, int horizon) {
+        for (Binding b = bindings.get(name); b != null; b = b.outer) {
+            if (b.depth == 0 && b.symbol.id() < horizon) {
+                return b.symbol;
+            }
+        }
+        return PREDEFINED.get(name);
     }
-}
 
-class SymbolNotFoundError extends Error {
+    // insert name in the innermost scope; null if it is already declared there
+    public Symbol insert (String name, Type type, boolean isFunction) {
+        return insert(name, type, isFunction, depth);
+    }
 
-    private static final long serialVersionUID = 1L;
-    private final String name;
+    // insert name in the global scope; null if it is already declared there
+    public Symbol insertGlobal (String name, Type type, boolean isFunction) {
+        return insert(name, type, isFunction, 0);
+    }
 
-    public SymbolNotFoundError (String name) {
-        super("Symbol " + name + " not found.");
-        this.name = name;
+    // binds an already numbered symbol in the innermost scope again
+    public void bind (Symbol symbol) {
+        bind(symbol.name(), symbol, depth);
     }
 
-    public String name () {
-        return name;
+    // insert name in SymbolTable (backward compatibility)
+    public Symbol insert (String name) {
+        return insert(name, new ErrorType("Type not specified"), false);
     }
-}
 
-class RedeclarationError extends Error {
+    // declared in the innermost scope (predefined functions are in every scope)
+    public boolean contains(String name) {
+        return declaredAt(name, depth);
+    }
 
-    private static final long serialVersionUID = 1L;
-    private final String name;
+    private boolean declaredAt (String name, int scope) {
+        if (PREDEFINED.containsKey(name)) {
+            return true;
+        }
+        for (Binding b = bindings.get(name); b != null && b.depth >= scope; b = b.outer) {
+            if (b.depth == scope) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-    public RedeclarationError (String name) {
-        super("Symbol " + name + " being redeclared.");
-        this.name = name;
+    private Symbol insert (String name, Type type, boolean isFunction, int scope) {
+        if (declaredAt(name, scope)) {
+            return null;
+        }
+        Symbol symbol = fresh(name, type, isFunction);
+        bind(name, symbol, scope);
+        return symbol;
     }
 
-    public String name () {
-        return name;
+    private void bind (String name, Symbol symbol, int scope) {
+        Binding innermost = bindings.get(name);
+        if (innermost == null || innermost.depth < scope) {
+            bindings.put(name, new Binding(symbol, scope, innermost));
+            if (scope > 0) {
+                if (undoSize == undoLog.length) {
+                    undoLog = Arrays.copyOf(undoLog, undoSize * 2);
+                }
+                undoLog[undoSize++] = name;
+            }
+        } else {
+            // a global declared from inside a local scope goes under the local bindings
+            Binding b = innermost;
+            while (b.outer != null && b.outer.depth > scope) {
+                b = b.outer;
+            }
+            b.outer = new Binding(symbol, scope, b.outer);
+        }
     }
 }
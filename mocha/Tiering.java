@@ -0,0 +1,121 @@
+package mocha;
+
+import ast.*;
+import ir.IRFunction;
+import ir.IRProgram;
+import ir.build.IRCoverage;
+import ir.build.IRGenerator;
+import ir.jit.CompiledCode;
+import ir.jit.JITCompiler;
+import ir.optimize.Optimizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Promotes hot functions from the Interpreter to JVM bytecode. Each call
+ * the Interpreter makes counts an invocation against its function, and each
+ * loop iteration a back edge against the function running it; once a
+ * function has been called INVOCATIONS times or has looped BACK_EDGES times,
+ * it is lowered by the IRGenerator, optimized, compiled by the JITCompiler
+ * along with every function it calls, and its later calls run the compiled
+ * code. Main is never promoted, and a call under way finishes in the tier
+ * it started in.
+ *
+ * Only a function the IR represents exactly (see IRCoverage), along with
+ * everything it calls, is promoted; any other stays interpreted. The
+ * compiled code reads, prints and keeps its globals in the Interpreter's
+ * own, so both tiers see the same run.
+ */
+final class Tiering {
+
+    static final int INVOCATIONS = 1000;
+    static final long BACK_EDGES = 10_000;
+
+    // what the optimizer runs before compiling: the other passes do not yet
+    // keep values across calls (cse) and loops (cp) as the Interpreter does
+    private static final List<String> PASSES = List.of("dce");
+
+    private final AST ast;
+    private final FrameLayout layout;
+    private final Interpreter in;
+    private final IRCoverage coverage;
+    private final long start = System.nanoTime();
+
+    private final Set<CallSite.Target> called = new LinkedHashSet<>();
+    private final Map<CallSite.Target, String> outcomes = new HashMap<>();
+    private IRProgram program;                      // made at the first promotion
+    private Map<Symbol, IRFunction> functions;      // its functions by symbol
+
+    Tiering (AST ast, FrameLayout layout, Interpreter in) {
+        this.ast = ast;
+        this.layout = layout;
+        this.in = in;
+        this.coverage = new IRCoverage(ast.computation());
+    }
+
+    // a call of target is about to run in the Interpreter
+    void invoked (CallSite.Target target) {
+        if (target.invocations == 1) {
+            called.add(target);
+        }
+        if (target.promotionTried || (target.invocations < INVOCATIONS && target.backEdges < BACK_EDGES)) {
+            return;
+        }
+        target.promotionTried = true;
+        outcomes.put(target, promote(target));
+    }
+
+    // compiles target and switches its calls over, giving what happened
+    private String promote (CallSite.Target target) {
+        String reason = coverage.unsupported(target.function);
+        if (!reason.isEmpty()) {
+            return "no: " + reason;
+        }
+        if (program == null) {
+            program = new IRGenerator().generate(ast);
+            new Optimizer().run(program, PASSES);
+            functions = new HashMap<>();
+            for (IRFunction function : program.getFunctions()) {
+                functions.put(function.getSymbol(), function);
+            }
+        }
+        List<IRFunction> compiled = new ArrayList<>();
+        for (FunctionDeclaration function : coverage.closure(target.function)) {
+            compiled.add(functions.get(function.function()));
+        }
+        CompiledCode code;
+        try {
+            code = JITCompiler.compile(program, compiled, this::globalSlot, layout.globalCount());
+        } catch (UnsupportedOperationException e) {
+            return "no: " + e.getMessage();
+        }
+        code.bind(in.input, in.output, in.globals.words, in.globals.reals);
+        target.compiled = code.entry(compiled.get(0));
+        return String.format("call %d, %.1f ms", in.calls, (System.nanoTime() - start) / 1e6);
+    }
+
+    private int globalSlot (Symbol symbol) {
+        int slot = layout.slot(symbol);
+        if (slot < 0) {
+            throw new UnsupportedOperationException(symbol.name() + " is not a global here");
+        }
+        return slot;
+    }
+
+    // Report ====================================================================
+
+    // each function called, with its counts and when it was promoted
+    String report () {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s %12s %12s  %s%n", "function", "calls", "back edges", "promoted"));
+        for (CallSite.Target target : called) {
+            report.append(String.format("%-20s %12d %12d  %s%n", target.function.function().name(),
+                    target.invocations, target.backEdges, outcomes.getOrDefault(target, "-")));
+        }
+        return report.toString();
+    }
+}
@@ -120,6 +120,11 @@ public class Token {
     Kind kind;  // package-private
     private String lexeme = "";
 
+    // scanned tokens keep a slice of the source; lexeme is built on demand
+    private SourceBuffer source;
+    private int offset;
+    private int length;
+
 
     // TODO: implement remaining factory functions for handling special cases (EOF below)
 
@@ -139,39 +144,62 @@ public class Token {
     }
 
     public Token (String lexeme, int lineNum, int charPos) {
+        this(SourceBuffer.of(lexeme), 0, lexeme.length(), lineNum, charPos);
+        this.lexeme = lexeme;
+        if(lexeme == "/*/"){
+            this.kind = Kind.ERROR;
+        }
+    }
+
+    Token (SourceBuffer source, int offset, int length, int lineNum, int charPos) {
+        this(source, offset, length, classify(source, offset, length), lineNum, charPos);
+    }
+
+    // kind already decided by the Scanner while it read the lexeme
+    Token (SourceBuffer source, int offset, int length, Kind kind, int lineNum, int charPos) {
         this.lineNum = lineNum;
         this.charPos = charPos;
-        
-        // TODO: based on the given lexeme determine and set the actual kind
-        this.lexeme = lexeme;
-        
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.lexeme = null;
+        this.kind = kind;
+        // System.out.println("TK lex: <"+lexeme()+"> lineNum: "+lineNum+" charPos: "+charPos);
+    }
+
+    private static Kind classify (SourceBuffer source, int offset, int length) {
+        Kind match = KindTrie.match(source, offset, length);
+        if (match != null){
+            return match;
+        }
         // if we don't match anything, signal error
-        this.kind = this.kind();
-        if ((this.kind.name()).equals("ERROR")){
-            if(Character.isLetter(lexeme.charAt(0))){
-                this.kind = Kind.IDENT;
-            }else if (Character.isDigit(lexeme.charAt(0)) || lexeme.charAt(0)=='-'){
-                int l = lexeme.indexOf('.');
-                if(l==-1){
-                    this.kind = Kind.INT_VAL;
-                }else{
-                    if(l != lexeme.length()-1){
-                        this.kind = Kind.FLOAT_VAL;
-                        for(int i = 0; i < lexeme.length(); i++){
-                            int c_i = lexeme.charAt(i);
-                            if(!(Character.isDigit(c_i) || (c_i == '.' && i != lexeme.length()-1) || (i == 0 && c_i == '-'))){
-                                this.kind = Kind.ERROR;
-                            }
+        Kind kind = Kind.ERROR;
+        int c0 = source.charAt(offset);
+        if(Character.isLetter(c0)){
+            kind = Kind.IDENT;
+        }else if (Character.isDigit(c0) || c0=='-'){
+            int l = -1;
+            for(int i = 0; i < length; i++){
+                if(source.charAt(offset + i) == '.'){
+                    l = i;
+                    break;
+                }
+            }
+            if(l==-1){
+                kind = Kind.INT_VAL;
+            }else{
+                if(l != length-1){
+                    kind = Kind.FLOAT_VAL;
+                    for(int i = 0; i < length; i++){
+                        int c_i = source.charAt(offset + i);
+                        if(!(Character.isDigit(c_i) || (c_i == '.' && i != length-1) || (i == 0 && c_i == '-'))){
+                            kind = Kind.ERROR;
                         }
                     }
                 }
             }
         }
-        if(lexeme == "/*/"){
-            this.kind = Kind.ERROR;
-        }
-        // this.lexeme = "Unrecognized lexeme: " + lexeme;
-        // System.out.println("TK lex: <"+lexeme+"> lineNum: "+lineNum+" charPos: "+charPos);
+        return kind;
     }
 
     public int lineNumber () {
@@ -183,18 +211,15 @@ public class Token {
     }
 
     public String lexeme () {
-        
+        if (lexeme == null) {
+            lexeme = kind.getLexeme().isEmpty() ? source.slice(offset, length) : kind.getLexeme();
+        }
         return this.lexeme;
     }
 
     public Kind kind () {
-        Kind[] kList = Kind.values();
-        for (Kind k : kList){
-            if(k.getLexeme().equals(this.lexeme)){
-                return k;
-            }
-        }
-        return Kind.ERROR;
+        Kind match = KindTrie.match(lexeme());
+        return match != null ? match : Kind.ERROR;
     }
 
     // TODO: function to query a token about its kind - boolean is (Token.Kind kind)
@@ -204,6 +229,6 @@ public class Token {
 
     @Override
     public String toString () {
-        return "Line: " + lineNum + ", Char: " + charPos + ", Lexeme: " + lexeme;
+        return "Line: " + lineNum + ", Char: " + charPos + ", Lexeme: " + lexeme();
     }
 }
@@ -0,0 +1,156 @@
+package mocha;
+
+import java.util.Arrays;
+
+/**
+ * Every token of a source file, scanned in one pass and kept in parallel
+ * primitive arrays (kind, start, length, line, column) instead of one
+ * Token object per lexeme. Tokens are addressed by index, which gives the
+ * parser arbitrary lookahead and rewind for the price of an int.
+ *
+ * Token objects are only built when somebody asks for one through token(i).
+ */
+public class TokenStream {
+
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+    private static final long PRIME = 0x100000001B3L;     // 64-bit FNV prime
+
+    private final SourceBuffer source;
+
+    private byte[] kinds;   // Token.Kind ordinals
+    private int[] starts;   // offset into source, -1 when the token is not a slice
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    private int size;
+
+    private TokenStream (SourceBuffer source, int capacity) {
+        this.source = source;
+        kinds = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        size = 0;
+    }
+
+    // drains the scanner; the last token of the stream is always EOF
+    public static TokenStream scan (Scanner scanner) {
+        SourceBuffer source = scanner.source();
+        // roughly one token per four chars of source
+        TokenStream stream = new TokenStream(source, Math.max(16, source.length() / 4));
+        scanner.scanInto(stream);
+        return stream;
+    }
+
+    void add (Token.Kind kind, int start, int length, int line, int column) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    public SourceBuffer source () {
+        return source;
+    }
+
+    // indexes past the end read as the trailing EOF
+    private int clamp (int i) {
+        return i < size ? i : size - 1;
+    }
+
+    public Token.Kind kind (int i) {
+        return KINDS[kinds[clamp(i)]];
+    }
+
+    public int lineNumber (int i) {
+        return lines[clamp(i)];
+    }
+
+    public int charPosition (int i) {
+        return columns[clamp(i)];
+    }
+
+    public String lexeme (int i) {
+        return token(i).lexeme();
+    }
+
+    // Hash of tokens [from, to): their text, and their positions with lines
+    // counted from the line of token from. The position of token to counts
+    // too, so the hash changes if the text after the range moves.
+    public long fingerprint (int from, int to) {
+        int first = clamp(from);
+        int last = clamp(to);
+        long hash = mix(0x9E3779B97F4A7C15L, columns[first]);
+        if (starts[first] >= 0 && starts[last] >= starts[first]) {
+            // the text from token from up to token to fixes every token and
+            // relative position in between
+            return source.hash(hash, PRIME, starts[first], starts[last] - starts[first]);
+        }
+        int baseLine = lines[first];
+        for (int i = from; i <= to; i++) {
+            int k = clamp(i);
+            hash = mix(hash, lines[k] - baseLine);
+            hash = mix(hash, columns[k]);
+            if (i == to) {
+                break;
+            }
+            hash = mix(hash, kinds[k]);
+            if (starts[k] >= 0) {
+                hash = source.hash(hash, PRIME, starts[k], lengths[k]);
+            }
+        }
+        return hash;
+    }
+
+    private static long mix (long hash, int value) {
+        return (hash ^ value) * PRIME + (hash >>> 29);
+    }
+
+    // String.hashCode() of every distinct name called in [from, to), sorted
+    public int[] callHashes (int from, int to) {
+        int[] hashes = new int[8];
+        int count = 0;
+        for (int i = from + 1; i < to && i < size; i++) {
+            if (KINDS[kinds[i]] != Token.Kind.IDENT || KINDS[kinds[i - 1]] != Token.Kind.CALL || starts[i] < 0) {
+                continue;
+            }
+            if (count == hashes.length) {
+                hashes = Arrays.copyOf(hashes, count * 2);
+            }
+            hashes[count++] = (int) source.hash(0, 31, starts[i], lengths[i]);
+        }
+        Arrays.sort(hashes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || hashes[distinct - 1] != hashes[i]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    // materializes token i as a standalone Token
+    public Token token (int i) {
+        i = clamp(i);
+        Token.Kind kind = KINDS[kinds[i]];
+        if (starts[i] < 0) {
+            return Scanner.special(kind, lines[i], columns[i]);
+        }
+        return new Token(source, starts[i], lengths[i], kind, lines[i], columns[i]);
+    }
+}
@@ -1,15 +1,29 @@
 package types;
 
 public class AddressOfType extends Type {
+
+    private static final Interner<Type, AddressOfType> canonical = new Interner<>();
+
     private Type baseType;
     
-    public AddressOfType(Type baseType) {
+    private AddressOfType(Type baseType) {
         this.baseType = baseType;
     }
+
+    // the one AddressOfType for this base type
+    public static AddressOfType of(Type baseType) {
+        return canonical.intern(baseType, AddressOfType::new);
+    }
     
     public Type baseType() {
         return baseType;
     }
+
+    // an address is compatible with whatever its base type is compatible with
+    @Override
+    int computeCompatibilityKey() {
+        return baseType.shapeKey();
+    }
     
     @Override
     public Type deref() {
@@ -1,13 +1,37 @@
 package types;
 
+import java.util.Objects;
+
 public class ArrayType extends Type {
 
+    private static final Interner<Key, ArrayType> canonical = new Interner<>();
+
+    private record Key(Type baseType, int size) {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other && baseType == other.baseType && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(baseType) + size;
+        }
+    }
+
+    private final Key key;      // keeps this type's entry in canonical
     private Type baseType;
     private int size;
 
-    public ArrayType(Type baseType, int size) {
-        this.baseType = baseType;
-        this.size = size;
+    private ArrayType(Key key) {
+        this.key = key;
+        this.baseType = key.baseType();
+        this.size = key.size();
+    }
+
+    // the one ArrayType for this element type and size
+    public static ArrayType of(Type baseType, int size) {
+        Objects.requireNonNull(baseType, "Array base type cannot be null");
+        return canonical.intern(new Key(baseType, size), ArrayType::new);
     }
     
     public Type baseType() {
@@ -17,6 +41,17 @@ public class ArrayType extends Type {
     public int size() {
         return size;
     }
+
+    @Override
+    int computeShapeKey() {
+        int dimensions = 1;
+        Type element = baseType;
+        while (element instanceof ArrayType) {
+            dimensions++;
+            element = ((ArrayType) element).baseType();
+        }
+        return TypeKeys.ofArray(dimensions, element.compatibilityKey());
+    }
     
     @Override
     public Type index(Type that) {
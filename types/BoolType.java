@@ -2,10 +2,15 @@ package types;
 
 public class BoolType extends Type {
 
+    public static final BoolType INSTANCE = new BoolType();
+
+    private BoolType () {
+    }
+
     @Override
     public Type and(Type that) {
         if (that instanceof BoolType) {
-            return new BoolType();
+            return INSTANCE;
         }
         return super.and(that);
     }
@@ -13,14 +18,14 @@ public class BoolType extends Type {
     @Override
     public Type or(Type that) {
         if (that instanceof BoolType) {
-            return new BoolType();
+            return INSTANCE;
         }
         return super.or(that);
     }
 
     @Override
     public Type not() {
-        return new BoolType();
+        return INSTANCE;
     }
 
     @Override
@@ -0,0 +1,66 @@
+package types;
+
+import ast.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import mocha.Symbol;
+
+/**
+ * Which user function a call runs. A FunctionCall only names its function;
+ * among the functions of that name the first declared one whose parameters
+ * take the call's argument types is the target, the same one the
+ * TypeChecker resolved the call to. Calls of predefined functions have none.
+ *
+ * Only the functions' symbols are kept; the declaration is fetched from the
+ * computation's list when a call resolves to it, so a list that materializes
+ * its functions on demand (see ast.Arena) is not held in full here.
+ */
+public final class CallTargets {
+
+    private record Candidate (Symbol function, int index) {
+    }
+
+    private final List<FunctionDeclaration> functions;
+    private final Map<String, List<Candidate>> byName = new HashMap<>();
+
+    public CallTargets (Computation computation) {
+        functions = computation == null ? List.of() : computation.functions();
+        for (int i = 0; i < functions.size(); i++) {
+            Symbol function = functions.get(i).function();
+            byName.computeIfAbsent(function.name(), k -> new ArrayList<>()).add(new Candidate(function, i));
+        }
+    }
+
+    // the function call runs, or null for a predefined function
+    public FunctionDeclaration resolve (FunctionCall call) {
+        List<Candidate> candidates = byName.get(call.function().name());
+        if (candidates == null) {
+            return null;
+        }
+        List<Expression> arguments = call.arguments().arguments();
+        for (Candidate candidate : candidates) {
+            if (accepts(candidate.function(), arguments)) {
+                return functions.get(candidate.index());
+            }
+        }
+        return functions.get(candidates.get(0).index());
+    }
+
+    private static boolean accepts (Symbol function, List<Expression> arguments) {
+        if (!(function.type() instanceof FuncType)) {
+            return false;
+        }
+        List<Type> parameters = ((FuncType) function.type()).params().getList();
+        if (parameters.size() != arguments.size()) {
+            return false;
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            if (!parameters.get(i).isCompatibleWith(StaticType.of(arguments.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package types;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Type-check results of single function bodies, kept from one compilation
+ * to the next so that a function nobody touched is not checked again.
+ *
+ * An entry is found by the function's ast.FunctionFingerprint together
+ * with a hash of every signature its identifiers could resolve to, so
+ * changing a signature a body calls invalidates it. Errors are kept with
+ * lines relative to the start of the function; a function that only moved
+ * still hits. Safe to share between threads and TypeCheckers.
+ */
+public class CheckCache {
+
+    record Key (long fingerprint, long environment) {
+    }
+
+    record Error (int relativeLine, int charPos, String message) {
+    }
+
+    private final ConcurrentHashMap<Key, List<Error>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // the errors recorded for key (empty if the body passed), or null
+    List<Error> lookup (Key key) {
+        List<Error> errors = entries.get(key);
+        (errors == null ? misses : hits).incrementAndGet();
+        return errors;
+    }
+
+    void store (Key key, List<Error> errors) {
+        entries.put(key, List.copyOf(errors));
+    }
+
+    public long hits () {
+        return hits.get();
+    }
+
+    public long misses () {
+        return misses.get();
+    }
+
+    public int size () {
+        return entries.size();
+    }
+
+    public void clear () {
+        entries.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public String toString () {
+        return "CheckCache(" + size() + " entries, " + hits() + " hits, " + misses() + " misses)";
+    }
+}
@@ -1,13 +1,25 @@
 package types;
 
+import java.util.List;
+
 public class FuncType extends Type {
 
+    private static final Interner<List<Type>, FuncType> canonical = new Interner<>();
+
+    private final List<Type> key;   // keeps this type's entry in canonical
     private TypeList params;
     private Type returnType;
 
-    public FuncType(TypeList params, Type returnType) {
-        this.params = params;
-        this.returnType = returnType;
+    private FuncType(List<Type> key) {
+        this.key = key;
+        this.params = (TypeList) key.get(0);
+        this.returnType = key.get(1);
+    }
+
+    // the one FuncType for this parameter list and return type; both are
+    // canonical, so List equality on them is identity
+    public static FuncType of(TypeList params, Type returnType) {
+        return canonical.intern(List.of(params, returnType), FuncType::new);
     }
     
     public TypeList params() {
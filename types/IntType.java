@@ -2,10 +2,15 @@ package types;
 
 public class IntType extends Type {
 
+    public static final IntType INSTANCE = new IntType();
+
+    private IntType () {
+    }
+
     @Override
     public Type add(Type that) {
         if (that instanceof IntType) {
-            return new IntType();
+            return INSTANCE;
         }
         return super.add(that);
     }
@@ -13,7 +18,7 @@ public class IntType extends Type {
     @Override
     public Type sub(Type that) {
         if (that instanceof IntType) {
-            return new IntType();
+            return INSTANCE;
         }
         return super.sub(that);
     }
@@ -21,7 +26,7 @@ public class IntType extends Type {
     @Override
     public Type mul(Type that) {
         if (that instanceof IntType) {
-            return new IntType();
+            return INSTANCE;
         }
         return super.mul(that);
     }
@@ -29,7 +34,7 @@ public class IntType extends Type {
     @Override
     public Type div(Type that) {
         if (that instanceof IntType) {
-            return new IntType();
+            return INSTANCE;
         }
         return super.div(that);
     }
@@ -37,7 +42,7 @@ public class IntType extends Type {
     @Override
     public Type mod(Type that) {
         if (that instanceof IntType) {
-            return new IntType();
+            return INSTANCE;
         }
         return super.mod(that);
     }
@@ -45,7 +50,7 @@ public class IntType extends Type {
     @Override
     public Type compare(Type that) {
         if (that instanceof IntType) {
-            return new BoolType();
+            return BoolType.INSTANCE;
         }
         return super.compare(that);
     }
@@ -0,0 +1,29 @@
+package types;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * A table of canonical values that does not keep them alive: a value stays
+ * canonical for as long as anything refers to it, and its entry goes with it.
+ *
+ * Each value must hold its key, so the key (weakly held here) is reachable
+ * exactly as long as the value (held through a WeakReference) is.
+ */
+final class Interner<K, V> {
+
+    private final Map<K, WeakReference<V>> table = new WeakHashMap<>();
+
+    // the live value for key, made by make if there is none
+    synchronized V intern(K key, Function<K, V> make) {
+        WeakReference<V> ref = table.get(key);
+        V value = ref == null ? null : ref.get();
+        if (value == null) {
+            value = make.apply(key);
+            table.put(key, new WeakReference<>(value));
+        }
+        return value;
+    }
+}
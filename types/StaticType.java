@@ -0,0 +1,54 @@
+package types;
+
+import ast.*;
+
+/**
+ * The static type of an expression as back ends need it: the type the
+ * TypeChecker attached with Node.setType, without any AddressOf. When the
+ * checker left none (a body served from a CheckCache) it is worked out from
+ * the operands, the way the checker would have for a well-typed program.
+ */
+public final class StaticType {
+
+    private StaticType () {
+    }
+
+    public static Type of (Expression expr) {
+        Type type = ((Node) expr).type();
+        if (type instanceof AddressOfType) {
+            type = ((AddressOfType) type).baseType();
+        }
+        if (type != null && !(type instanceof ErrorType)) {
+            return type;
+        }
+        if (expr instanceof IntegerLiteral) {
+            return IntType.INSTANCE;
+        } else if (expr instanceof FloatLiteral) {
+            return FloatType.INSTANCE;
+        } else if (expr instanceof BoolLiteral || expr instanceof Relation || expr instanceof LogicalNot
+                || expr instanceof LogicalAnd || expr instanceof LogicalOr) {
+            return BoolType.INSTANCE;
+        } else if (expr instanceof Designator) {
+            return ((Designator) expr).symbol().type();
+        } else if (expr instanceof ArrayIndex) {
+            Type array = of(((ArrayIndex) expr).array());
+            return array instanceof ArrayType ? ((ArrayType) array).baseType() : IntType.INSTANCE;
+        } else if (expr instanceof Addition) {
+            return of(((Addition) expr).left());
+        } else if (expr instanceof Subtraction) {
+            return of(((Subtraction) expr).left());
+        } else if (expr instanceof Multiplication) {
+            return of(((Multiplication) expr).left());
+        } else if (expr instanceof Division) {
+            return of(((Division) expr).left());
+        } else if (expr instanceof Modulo) {
+            return of(((Modulo) expr).left());
+        } else if (expr instanceof Power) {
+            return of(((Power) expr).left());
+        } else if (expr instanceof FunctionCall) {
+            Type function = ((FunctionCall) expr).function().type();
+            return function instanceof FuncType ? ((FuncType) function).returnType() : IntType.INSTANCE;
+        }
+        return IntType.INSTANCE;
+    }
+}
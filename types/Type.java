@@ -2,6 +2,39 @@ package types;
 
 public abstract class Type {
 
+    // see compatibilityKey(); computed on first use
+    private int shapeKey = -1;
+    private int compatibilityKey = -1;
+
+    // key compared after any AddressOf has been unwrapped
+    int shapeKey () {
+        if (shapeKey < 0) {
+            shapeKey = computeShapeKey();
+        }
+        return shapeKey;
+    }
+
+    int computeShapeKey () {
+        return TypeKeys.of(getClass());
+    }
+
+    // two types are compatible exactly when their keys are equal: arrays by
+    // dimension count and element type, everything else by kind of type
+    public final int compatibilityKey () {
+        if (compatibilityKey < 0) {
+            compatibilityKey = computeCompatibilityKey();
+        }
+        return compatibilityKey;
+    }
+
+    int computeCompatibilityKey () {
+        return shapeKey();
+    }
+
+    public final boolean isCompatibleWith (Type that) {
+        return compatibilityKey() == that.compatibilityKey();
+    }
+
     // arithmetic
     public Type mul (Type that) {
         return new ErrorType("Cannot multiply " + this + " with " + that + ".");
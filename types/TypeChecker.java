@@ -8,47 +8,151 @@ public class TypeChecker implements NodeVisitor {
     private StringBuilder errorBuffer;
     private Symbol currentFunction;
     private java.util.Map<String, java.util.List<FunctionSignature>> functionRegistry;
+    private java.util.Map<SignatureKey, java.util.List<FunctionSignature>> overloads;  // same signatures, by exact call shape
     private String currentFunctionName;
     private Type currentFunctionReturnType;
+    private int registeredFunctions;    // user signatures registered so far
+    private int visibleFunctions;       // calls only see the first visibleFunctions of them
+
+    // function bodies checked before, possibly by another compilation; may be null
+    private CheckCache cache;
+    private java.util.Map<Integer, java.util.List<FunctionSignature>> byNameHash;  // registration order
+    private java.util.List<CheckCache.Error> recording;   // errors of the body being checked
     
     public TypeChecker() {
+        this((CheckCache) null);
+    }
+
+    public TypeChecker(CheckCache cache) {
         errorBuffer = new StringBuilder();
         functionRegistry = new java.util.HashMap<>();
+        overloads = new java.util.HashMap<>();
+        byNameHash = new java.util.HashMap<>();
+        visibleFunctions = Integer.MAX_VALUE;
+        this.cache = cache;
         registerBuiltInFunctions();
     }
+
+    // context for checking one function body on a worker thread; it only reads
+    // the registry it shares with shared
+    private TypeChecker(TypeChecker shared) {
+        errorBuffer = new StringBuilder();
+        functionRegistry = shared.functionRegistry;
+        overloads = shared.overloads;
+        byNameHash = shared.byNameHash;
+        visibleFunctions = Integer.MAX_VALUE;
+        cache = shared.cache;
+    }
     
     private void registerBuiltInFunctions() {
         // Register readInt(): int
         java.util.List<Type> emptyParams = new java.util.ArrayList<>();
-        FunctionSignature readIntSig = new FunctionSignature("readInt", emptyParams, new IntType());
+        FunctionSignature readIntSig = new FunctionSignature("readInt", emptyParams, IntType.INSTANCE);
         functionRegistry.put("readInt", java.util.Arrays.asList(readIntSig));
         
         // Register readFloat(): float
-        FunctionSignature readFloatSig = new FunctionSignature("readFloat", emptyParams, new FloatType());
+        FunctionSignature readFloatSig = new FunctionSignature("readFloat", emptyParams, FloatType.INSTANCE);
         functionRegistry.put("readFloat", java.util.Arrays.asList(readFloatSig));
         
         // Register readBool(): bool
-        FunctionSignature readBoolSig = new FunctionSignature("readBool", emptyParams, new BoolType());
+        FunctionSignature readBoolSig = new FunctionSignature("readBool", emptyParams, BoolType.INSTANCE);
         functionRegistry.put("readBool", java.util.Arrays.asList(readBoolSig));
         
         // Register printInt(int): void
-        java.util.List<Type> intParams = java.util.Arrays.asList(new IntType());
-        FunctionSignature printIntSig = new FunctionSignature("printInt", intParams, new VoidType());
+        java.util.List<Type> intParams = java.util.Arrays.asList(IntType.INSTANCE);
+        FunctionSignature printIntSig = new FunctionSignature("printInt", intParams, VoidType.INSTANCE);
         functionRegistry.put("printInt", java.util.Arrays.asList(printIntSig));
         
         // Register printFloat(float): void
-        java.util.List<Type> floatParams = java.util.Arrays.asList(new FloatType());
-        FunctionSignature printFloatSig = new FunctionSignature("printFloat", floatParams, new VoidType());
+        java.util.List<Type> floatParams = java.util.Arrays.asList(FloatType.INSTANCE);
+        FunctionSignature printFloatSig = new FunctionSignature("printFloat", floatParams, VoidType.INSTANCE);
         functionRegistry.put("printFloat", java.util.Arrays.asList(printFloatSig));
         
         // Register printBool(bool): void
-        java.util.List<Type> boolParams = java.util.Arrays.asList(new BoolType());
-        FunctionSignature printBoolSig = new FunctionSignature("printBool", boolParams, new VoidType());
+        java.util.List<Type> boolParams = java.util.Arrays.asList(BoolType.INSTANCE);
+        FunctionSignature printBoolSig = new FunctionSignature("printBool", boolParams, VoidType.INSTANCE);
         functionRegistry.put("printBool", java.util.Arrays.asList(printBoolSig));
         
         // Register println(): void
-        FunctionSignature printlnSig = new FunctionSignature("println", emptyParams, new VoidType());
+        FunctionSignature printlnSig = new FunctionSignature("println", emptyParams, VoidType.INSTANCE);
         functionRegistry.put("println", java.util.Arrays.asList(printlnSig));
+
+        for (java.util.List<FunctionSignature> signatures : functionRegistry.values()) {
+            for (FunctionSignature signature : signatures) {
+                index(signature);
+            }
+        }
+    }
+
+    // Name, arity and the compatibility key of every parameter. Two types are
+    // compatible exactly when their keys are equal, so a call matches a
+    // signature exactly when their keys are equal.
+    private static final class SignatureKey {
+        private final String name;
+        private final int[] parameterKeys;
+        private final int hash;
+
+        SignatureKey (String name, java.util.List<Type> types) {
+            this.name = name;
+            this.parameterKeys = new int[types.size()];
+            for (int i = 0; i < parameterKeys.length; i++) {
+                Type type = types.get(i);
+                parameterKeys[i] = type == null ? -1 : type.compatibilityKey();
+            }
+            this.hash = 31 * name.hashCode() + java.util.Arrays.hashCode(parameterKeys);
+        }
+
+        @Override
+        public boolean equals (Object obj) {
+            return obj instanceof SignatureKey other && hash == other.hash
+                    && name.equals(other.name) && java.util.Arrays.equals(parameterKeys, other.parameterKeys);
+        }
+
+        @Override
+        public int hashCode () {
+            return hash;
+        }
+    }
+
+    // overload lists stay in registration order
+    private void index(FunctionSignature signature) {
+        SignatureKey key = new SignatureKey(signature.functionName(), signature.parameterTypes());
+        overloads.computeIfAbsent(key, k -> new java.util.ArrayList<>()).add(signature);
+
+        // names are bucketed by String.hashCode(), which is how a FunctionFingerprint
+        // lists its calls; each signature hashes itself and all before it in the bucket
+        java.util.List<FunctionSignature> bucket =
+                byNameHash.computeIfAbsent(signature.functionName().hashCode(), k -> new java.util.ArrayList<>());
+        long previous = bucket.isEmpty() ? 0 : bucket.get(bucket.size() - 1).chainHash;
+        signature.chainHash = previous * 0x100000001B3L + signature.toString().hashCode();
+        bucket.add(signature);
+    }
+
+    // hash of every signature the called names could resolve to from a body
+    // that sees the functions registered up to serial
+    private long environmentHash(int[] calls, int serial) {
+        long hash = 0;
+        for (int call : calls) {
+            java.util.List<FunctionSignature> bucket = byNameHash.get(call);
+            if (bucket == null) {
+                continue;
+            }
+            // last signature with serial <= serial; serials grow along the bucket
+            int low = 0;
+            int high = bucket.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (bucket.get(mid).serial <= serial) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low > 0) {
+                hash = (hash ^ call) * 0x100000001B3L + bucket.get(low - 1).chainHash;
+            }
+        }
+        return hash;
     }
     
     // Inner class to represent function signatures
@@ -56,31 +160,24 @@ public class TypeChecker implements NodeVisitor {
         private java.util.List<Type> parameterTypes;
         private Type returnType;
         private String functionName;
+        private int serial;     // registration order of user functions, 0 for built-ins
+        private long chainHash; // this and the earlier signatures with the same name hash
         
         public FunctionSignature(String functionName, java.util.List<Type> parameterTypes, Type returnType) {
+            this(functionName, parameterTypes, returnType, 0);
+        }
+
+        public FunctionSignature(String functionName, java.util.List<Type> parameterTypes, Type returnType, int serial) {
             this.functionName = functionName;
             this.parameterTypes = parameterTypes;
             this.returnType = returnType;
+            this.serial = serial;
         }
         
         public java.util.List<Type> parameterTypes() { return parameterTypes; }
         public Type returnType() { return returnType; }
         public String functionName() { return functionName; }
         
-        // Check if this signature matches the given argument types
-        public boolean matches(java.util.List<Type> argTypes, TypeChecker typeChecker) {
-            if (parameterTypes.size() != argTypes.size()) {
-                return false;
-            }
-            
-            for (int i = 0; i < parameterTypes.size(); i++) {
-                if (!typeChecker.areTypesCompatible(parameterTypes.get(i), argTypes.get(i))) {
-                    return false;
-                }
-            }
-            return true;
-        }
-        
         @Override
         public String toString() {
             return functionName + "(" + parameterTypes + ") -> " + returnType;
@@ -101,49 +198,62 @@ public class TypeChecker implements NodeVisitor {
         
         return !hasError();
     }
-    
-    
-    private void checkDuplicateFunctionSignatures(ast.AST ast) {
-        if (ast.computation() != null) {
-            java.util.Map<String, java.util.List<ast.FunctionDeclaration>> functionMap = new java.util.HashMap<>();
-            
-            // Group functions by name
-            for (ast.FunctionDeclaration funcDecl : ast.computation().functions()) {
-                String funcName = funcDecl.function().name();
-                if (!functionMap.containsKey(funcName)) {
-                    functionMap.put(funcName, new java.util.ArrayList<>());
-                }
-                functionMap.get(funcName).add(funcDecl);
-            }
-            
-            // Check for duplicate signatures within each function name
-            for (String funcName : functionMap.keySet()) {
-                java.util.List<ast.FunctionDeclaration> functions = functionMap.get(funcName);
-                for (int i = 0; i < functions.size(); i++) {
-                    for (int j = i + 1; j < functions.size(); j++) {
-                        ast.FunctionDeclaration func1 = functions.get(i);
-                        ast.FunctionDeclaration func2 = functions.get(j);
-                        
-                        // Check if they have the same parameter signature
-                        if (hasSameSignature(func1, func2)) {
-                            reportError(func2.lineNumber(), func2.charPosition(), 
-                                "Function " + funcName + " already defined with same signature.");
-                        }
-                    }
-                }
-            }
+
+    public boolean checkParallel(ast.AST ast) {
+        return checkParallel(ast, java.util.concurrent.ForkJoinPool.commonPool());
+    }
+
+    // same result and error report as check(). Every signature is registered
+    // first; the function bodies are then checked on pool, each by its own
+    // context against the signatures registered up to it, and their errors
+    // are appended in source order.
+    public boolean checkParallel(ast.AST ast, java.util.concurrent.ForkJoinPool pool) {
+        Computation computation = ast.computation();
+        if (computation == null) {
+            return !hasError();
+        }
+        computation.variables().accept(this);
+
+        java.util.List<java.util.concurrent.ForkJoinTask<String>> tasks = new java.util.ArrayList<>();
+        for (FunctionDeclaration funcDecl : computation.functions()) {
+            int serial = register(funcDecl);
+            tasks.add(java.util.concurrent.ForkJoinTask.adapt(() -> {
+                TypeChecker worker = new TypeChecker(this);
+                worker.checkBody(funcDecl, serial);
+                return worker.errorReport();
+            }));
         }
+        for (java.util.concurrent.ForkJoinTask<String> task : tasks) {
+            pool.execute(task);
+        }
+        for (java.util.concurrent.ForkJoinTask<String> task : tasks) {
+            errorBuffer.append(task.join());
+        }
+
+        computation.mainStatementSequence().accept(this);
+        return !hasError();
     }
-    
-    private boolean hasSameSignature(ast.FunctionDeclaration func1, ast.FunctionDeclaration func2) {
-        // This is a simplified check - in a real implementation, we'd need to compare
-        // the actual parameter types from the function signatures
-        // For now, we'll assume they have the same signature if they have the same name
-        // and the same number of parameters (this is a simplified approach)
-        return func1.function().name().equals(func2.function().name());
+
+    // checks globals and main now, and each function body right after it is
+    // parsed (see Compiler.genLazyAST); the body sees the same functions it
+    // would have seen in check()
+    public boolean checkLazily(ast.AST ast) {
+        Computation computation = ast.computation();
+        if (computation != null) {
+            computation.variables().accept(this);
+            for (FunctionDeclaration funcDecl : computation.functions()) {
+                int serial = register(funcDecl);
+                funcDecl.whenParsed(node -> checkBody(node, serial));
+            }
+            computation.mainStatementSequence().accept(this);
+        }
+        return !hasError();
     }
 
     private void reportError (int lineNum, int charPos, String message) {
+        if (recording != null) {
+            recording.add(new CheckCache.Error(lineNum, charPos, message));
+        }
         errorBuffer.append("TypeError(" + lineNum + "," + charPos + ")");
         errorBuffer.append("[" + message + "]" + "\n");
     }
@@ -163,46 +273,10 @@ public class TypeChecker implements NodeVisitor {
         return errorBuffer.length() != 0;
     }
     
+    // AddressOf is unwrapped on both sides; arrays match on dimension count and
+    // element type, anything else on its kind of type. Precomputed per type.
     public boolean areTypesCompatible(Type destination, Type source) {
-        
-        // Handle AddressOf types by unwrapping them for comparison
-        Type destBase = destination instanceof AddressOfType ? ((AddressOfType) destination).baseType() : destination;
-        Type srcBase = source instanceof AddressOfType ? ((AddressOfType) source).baseType() : source;
-        
-        
-        // Array types are compatible only if they have the same dimensions and base type
-        if (destBase instanceof ArrayType && srcBase instanceof ArrayType) {
-            ArrayType destArray = (ArrayType) destBase;
-            ArrayType srcArray = (ArrayType) srcBase;
-            
-            // Check if they have the same number of dimensions
-            int destDims = getArrayDimensions(destArray);
-            int srcDims = getArrayDimensions(srcArray);
-            
-            if (destDims != srcDims) {
-                return false;
-            }
-            
-            // Check if base types are compatible
-            return areTypesCompatible(destArray.baseType(), srcArray.baseType());
-        }
-        
-        // For non-array types, they are compatible if they are exactly the same
-        if (destBase.getClass().equals(srcBase.getClass())) {
-            return true;
-        }
-        
-        return false;
-    }
-    
-    private int getArrayDimensions(ArrayType arrayType) {
-        int dims = 1;
-        Type baseType = arrayType.baseType();
-        while (baseType instanceof ArrayType) {
-            dims++;
-            baseType = ((ArrayType) baseType).baseType();
-        }
-        return dims;
+        return destination.isCompatibleWith(source);
     }
 
     public String errorReport () {
@@ -227,17 +301,17 @@ public class TypeChecker implements NodeVisitor {
 
     @Override
     public void visit(BoolLiteral node) {
-        node.setType(new BoolType());
+        node.setType(BoolType.INSTANCE);
     }
 
     @Override
     public void visit(IntegerLiteral node) {
-        node.setType(new IntType());
+        node.setType(IntType.INSTANCE);
     }
 
     @Override
     public void visit(FloatLiteral node) {
-        node.setType(new FloatType());
+        node.setType(FloatType.INSTANCE);
     }
 
     @Override
@@ -287,7 +361,7 @@ public class TypeChecker implements NodeVisitor {
         } else if (arrayType instanceof ErrorType) {
             node.setType(arrayType);
         } else {
-            node.setType(new ErrorType("Cannot index " +  new AddressOfType(arrayType) + " with " + ((Node)node.index()).type() + "."));
+            node.setType(new ErrorType("Cannot index AddressOf(" + arrayType + ") with " + ((Node)node.index()).type() + "."));
         }
         
         
@@ -516,7 +590,7 @@ public class TypeChecker implements NodeVisitor {
         
         if (destinationType instanceof IntType || destinationType instanceof FloatType || destinationType instanceof BoolType) 
         {
-            ((Node)node.destination()).setType(new AddressOfType(destinationType));
+            ((Node)node.destination()).setType(AddressOfType.of(destinationType));
             destinationType = ((Node)node.destination()).type();
         }
         
@@ -536,7 +610,7 @@ public class TypeChecker implements NodeVisitor {
             node.setType(new ErrorType(errorMessage));
             reportError(node.lineNumber(), node.charPosition(), errorMessage);
         }
-        node.setType(new VoidType());
+        node.setType(VoidType.INSTANCE);
     }
 
     @Override
@@ -685,19 +759,11 @@ public class TypeChecker implements NodeVisitor {
             }
         }
         
-        // Look up function in registry
-        if (!functionRegistry.containsKey(functionName)) {
-            String errorMessage = "Call with args (" + formatArgTypes(argTypes) + ") matches no function signature.";
-            reportError(node.lineNumber(), node.charPosition(), errorMessage);
-            return new ErrorType(errorMessage);
-        }
-        
-        // Find matching signature
-        java.util.List<FunctionSignature> signatures = functionRegistry.get(functionName);
-        for (FunctionSignature signature : signatures) {
-            if (signature.matches(argTypes, this)) {
-                return signature.returnType();
-            }
+        // The first matching signature in registration order is the first one
+        // with the call's key; it only counts if it was registered in time
+        java.util.List<FunctionSignature> signatures = overloads.get(new SignatureKey(functionName, argTypes));
+        if (signatures != null && signatures.get(0).serial <= visibleFunctions) {
+            return signatures.get(0).returnType();
         }
         
         // No matching signature found
@@ -737,13 +803,12 @@ public class TypeChecker implements NodeVisitor {
 
     @Override
     public void visit(FunctionDeclaration node) {
-        // Extract function signature information
+        checkBody(node, register(node));
+    }
+
+    // adds the function to the registry; returns its registration serial
+    private int register(FunctionDeclaration node) {
         String functionName = node.function().name();
-        Type returnType = node.returnType();
-        
-        // Set current function context for return statement checking
-        currentFunctionName = functionName;
-        currentFunctionReturnType = returnType;
         
         // Extract parameter types from the function symbol
         java.util.List<Type> parameterTypes = new java.util.ArrayList<>();
@@ -753,13 +818,37 @@ public class TypeChecker implements NodeVisitor {
         }
         
         // Create function signature
-        FunctionSignature signature = new FunctionSignature(functionName, parameterTypes, returnType);
+        FunctionSignature signature = new FunctionSignature(functionName, parameterTypes, node.returnType(), ++registeredFunctions);
         
         // Store in function registry
         if (!functionRegistry.containsKey(functionName)) {
             functionRegistry.put(functionName, new java.util.ArrayList<>());
         }
         functionRegistry.get(functionName).add(signature);
+        index(signature);
+        return signature.serial;
+    }
+
+    // checks the body with calls resolved against the functions registered up to serial
+    private void checkBody(FunctionDeclaration node, int serial) {
+        FunctionFingerprint fingerprint = cache == null ? null : node.fingerprint();
+        CheckCache.Key key = null;
+        if (fingerprint != null) {
+            key = new CheckCache.Key(fingerprint.hash(), environmentHash(fingerprint.calls(), serial));
+            java.util.List<CheckCache.Error> errors = cache.lookup(key);
+            if (errors != null) {
+                for (CheckCache.Error error : errors) {
+                    reportError(fingerprint.lineNumber() + error.relativeLine(), error.charPos(), error.message());
+                }
+                return;
+            }
+            recording = new java.util.ArrayList<>();
+        }
+
+        // Set current function context for return statement checking
+        currentFunctionName = node.function().name();
+        currentFunctionReturnType = node.returnType();
+        visibleFunctions = serial;
         
         // Visit function body
         node.body().accept(this);
@@ -767,6 +856,16 @@ public class TypeChecker implements NodeVisitor {
         // Clear current function context
         currentFunctionName = null;
         currentFunctionReturnType = null;
+        visibleFunctions = Integer.MAX_VALUE;
+
+        if (key != null) {
+            java.util.List<CheckCache.Error> errors = new java.util.ArrayList<>();
+            for (CheckCache.Error error : recording) {
+                errors.add(new CheckCache.Error(error.relativeLine() - fingerprint.lineNumber(), error.charPos(), error.message()));
+            }
+            recording = null;
+            cache.store(key, errors);
+        }
     }
 
     @Override
@@ -0,0 +1,26 @@
+package types;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Small ints naming the compatibility classes of types, handed out on first use
+final class TypeKeys {
+
+    private static final Map<Object, Integer> keys = new ConcurrentHashMap<>();
+    private static final AtomicInteger next = new AtomicInteger();
+
+    private TypeKeys () {
+    }
+
+    // every type of this class is compatible with every other
+    static int of (Class<? extends Type> type) {
+        return keys.computeIfAbsent(type, k -> next.getAndIncrement());
+    }
+
+    // arrays with this many dimensions over a compatible element type
+    static int ofArray (int dimensions, int elementKey) {
+        return keys.computeIfAbsent(List.of(dimensions, elementKey), k -> next.getAndIncrement());
+    }
+}
@@ -1,19 +1,64 @@
 package types;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 public class TypeList extends Type implements Iterable<Type> {
 
+    private static final Interner<Key, TypeList> canonical = new Interner<>();
+
+    public static final TypeList EMPTY = of();
+
+    // element types compared by identity, as they are canonical themselves
+    private static final class Key {
+        private final Type[] types;
+        private final int hash;
+
+        Key (Type[] types) {
+            this.types = types;
+            int h = 1;
+            for (Type t : types) {
+                h = 31 * h + System.identityHashCode(t);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals (Object obj) {
+            if (!(obj instanceof Key other) || other.types.length != types.length) {
+                return false;
+            }
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] != other.types[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode () {
+            return hash;
+        }
+    }
+
+    private final Key key;      // keeps this list's entry in canonical
     private List<Type> list;
 
-    public TypeList () {
-        list = new ArrayList<>();
+    private TypeList (Key key) {
+        this.key = key;
+        list = Collections.unmodifiableList(Arrays.asList(key.types));
+    }
+
+    // the one TypeList holding exactly these types in order
+    public static TypeList of (Type... types) {
+        return canonical.intern(new Key(types.clone()), TypeList::new);
     }
 
-    public void append (Type type) {
-        list.add(type);
+    public static TypeList of (List<Type> types) {
+        return of(types.toArray(new Type[0]));
     }
 
     public List<Type> getList () {
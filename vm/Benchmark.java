@@ -0,0 +1,80 @@
+package vm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import mocha.Compiler;
+import mocha.Interpreter;
+import mocha.Scanner;
+import types.TypeChecker;
+
+/**
+ * Times the tree-walking Interpreter against the VM on one program.
+ *
+ * usage: java vm.Benchmark source [input] [runs]
+ *
+ * Each engine runs the program runs times (5 by default) on the same input,
+ * printing into a buffer; the time of the fastest run of each, and whether
+ * the two wrote the same output, go to stdout.
+ */
+public final class Benchmark {
+
+    private Benchmark () {
+    }
+
+    public static void main (String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: java vm.Benchmark source [input] [runs]");
+            System.exit(-1);
+        }
+        byte[] input = args.length > 1 ? Files.readAllBytes(Paths.get(args[1])) : new byte[0];
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Compiler compiler = new Compiler(new Scanner(args[0], new FileReader(args[0])), 24);
+        ast.AST ast = compiler.genAST();
+        TypeChecker checker = new TypeChecker();
+        if (compiler.hasError() || !checker.check(ast)) {
+            System.out.println(compiler.hasError() ? compiler.errorReport() : checker.errorReport());
+            System.exit(-4);
+        }
+
+        long compileStart = System.nanoTime();
+        Program program = BytecodeCompiler.compile(ast);
+        long compileTime = System.nanoTime() - compileStart;
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream interpreted = new ByteArrayOutputStream();
+        ByteArrayOutputStream executed = new ByteArrayOutputStream();
+        long interpreterBest = Long.MAX_VALUE;
+        long vmBest = Long.MAX_VALUE;
+        try {
+            for (int run = 0; run < runs; run++) {
+                interpreted.reset();
+                System.setOut(new PrintStream(interpreted));
+                long start = System.nanoTime();
+                new Interpreter(new ByteArrayInputStream(input)).interpret(ast);
+                interpreterBest = Math.min(interpreterBest, System.nanoTime() - start);
+
+                executed.reset();
+                System.setOut(new PrintStream(executed));
+                start = System.nanoTime();
+                VM.run(program, new ByteArrayInputStream(input));
+                vmBest = Math.min(vmBest, System.nanoTime() - start);
+            }
+        } finally {
+            System.out.flush();
+            System.setOut(out);
+        }
+
+        System.out.printf("bytecode:    %d ints, %d functions, compiled in %.2f ms%n",
+                program.size(), program.functionCount(), compileTime / 1e6);
+        System.out.printf("interpreter: %.2f ms%n", interpreterBest / 1e6);
+        System.out.printf("vm:          %.2f ms%n", vmBest / 1e6);
+        System.out.printf("speedup:     %.1fx%n", (double) interpreterBest / vmBest);
+        System.out.println("output:      " + (interpreted.toString().equals(executed.toString()) ? "same" : "DIFFERENT"));
+    }
+}
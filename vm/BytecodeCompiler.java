@@ -0,0 +1,614 @@
+package vm;
+
+import ast.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import mocha.Symbol;
+import types.*;
+
+/**
+ * Compiles a checked ast.AST to a Program. Each expression leaves its value
+ * on the operand stack and each statement leaves the stack as it found it.
+ * Every variable gets a slot when it is first seen: a global slot for the
+ * computation's variables and anything main uses, a frame slot for the
+ * parameters (which come first, in order) and locals of a function.
+ */
+public final class BytecodeCompiler implements NodeVisitor {
+
+    private int[] code = new int[256];
+    private int pc;
+    private final List<Long> constants = new ArrayList<>();
+    private final Map<Long, Integer> constantIndex = new HashMap<>();
+    private final List<int[]> shapes = new ArrayList<>();
+
+    private final Map<Symbol, Integer> globals = new HashMap<>();
+    private Map<Symbol, Integer> locals;        // null while compiling main
+    private int frameSize;
+
+    private CallTargets targets;
+    private final Map<Symbol, Integer> functionIndex = new HashMap<>();     // by function symbol
+    private FunctionDeclaration currentFunction;
+
+    // operand stack depth at pc, and the most it reached in this function
+    private int depth;
+    private int maxDepth;
+
+    private BytecodeCompiler () {
+    }
+
+    public static Program compile (AST ast) {
+        ast.parseFunctionBodies();
+        return new BytecodeCompiler().compileProgram(ast.computation());
+    }
+
+    private Program compileProgram (Computation computation) {
+        List<FunctionDeclaration> functions = computation == null ? List.of() : computation.functions();
+        int count = functions.size() + 1;
+        String[] names = new String[count];
+        int[] entries = new int[count];
+        int[] frameSizes = new int[count];
+        int[] parameterCounts = new int[count];
+        int[] maxStacks = new int[count];
+
+        targets = new CallTargets(computation);
+        for (int i = 0; i < functions.size(); i++) {
+            functionIndex.put(functions.get(i).function(), i + 1);
+        }
+
+        names[0] = "main";
+        if (computation != null) {
+            computation.variables().accept(this);
+            computation.mainStatementSequence().accept(this);
+        }
+        emit(Op.HALT);
+        maxStacks[0] = maxDepth;
+
+        for (int i = 0; i < functions.size(); i++) {
+            FunctionDeclaration function = functions.get(i);
+            names[i + 1] = function.function().name();
+            entries[i + 1] = pc;
+            depth = 0;
+            maxDepth = 0;
+            locals = new HashMap<>();
+            frameSize = 0;
+            currentFunction = function;
+            for (Symbol parameter : function.parameters()) {
+                slot(parameter);
+            }
+            parameterCounts[i + 1] = frameSize;
+            function.body().accept(this);
+            // falling off the end returns nothing, or a zero of the return type
+            if (function.returnType() instanceof VoidType) {
+                emit(Op.RET);
+            } else {
+                emit(Op.ICONST, 0);
+                emit(Op.RETV);
+            }
+            frameSizes[i + 1] = frameSize;
+            maxStacks[i + 1] = maxDepth;
+        }
+
+        long[] pool = new long[constants.size()];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = constants.get(i);
+        }
+        return new Program(Arrays.copyOf(code, pc), pool, shapes.toArray(new int[0][]), globals.size(),
+                names, entries, frameSizes, parameterCounts, maxStacks);
+    }
+
+    // Emitting ==================================================================
+
+    private void emit (int op, int... operands) {
+        if (pc + 1 + operands.length > code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[pc++] = op;
+        for (int operand : operands) {
+            code[pc++] = operand;
+        }
+        depth += stackEffect(op, operands);
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private static int stackEffect (int op, int[] operands) {
+        switch (op) {
+            case Op.ICONST: case Op.DCONST: case Op.LOAD: case Op.GLOAD: case Op.ALOAD: case Op.GALOAD:
+            case Op.READ_INT: case Op.READ_FLOAT: case Op.READ_BOOL:
+                return 1;
+            case Op.STORE: case Op.GSTORE: case Op.POP: case Op.JZ: case Op.JNZ:
+            case Op.PRINT_INT: case Op.PRINT_FLOAT: case Op.PRINT_BOOL: case Op.RETV:
+                return -1;
+            case Op.XLOAD:
+                return -operands[0];
+            case Op.XSTORE:
+                return -operands[0] - 2;
+            case Op.ARRCPY:
+                return -3;
+            case Op.IJEQ: case Op.IJNE: case Op.IJLT: case Op.IJLE: case Op.IJGT: case Op.IJGE:
+                return -2;
+            case Op.NOT: case Op.ANEW: case Op.GANEW: case Op.JMP: case Op.CALL: case Op.RET:
+            case Op.HALT: case Op.PRINTLN: case Op.IADDK: case Op.INC: case Op.GINC:
+                return 0;   // CALL is accounted for in call()
+            default:
+                return -1;  // binary operators
+        }
+    }
+
+    // emits a jump and returns where its target goes
+    private int jump (int op) {
+        emit(op, -1);
+        return pc - 1;
+    }
+
+    private void patch (int operand) {
+        code[operand] = pc;
+    }
+
+    // evaluates condition and jumps to target if it comes out as when;
+    // returns where the target goes. An int or bool relation becomes one
+    // compare-and-jump instead of a compare and a test.
+    private int jumpOn (Expression condition, boolean when, int target) {
+        if (condition instanceof Relation && !(StaticType.of(((Relation) condition).left()) instanceof FloatType)) {
+            Relation relation = (Relation) condition;
+            relation.left().accept(this);
+            relation.right().accept(this);
+            int op;
+            switch (relation.operator().kind()) {
+                case EQUAL_TO:
+                    op = when ? Op.IJEQ : Op.IJNE;
+                    break;
+                case NOT_EQUAL:
+                    op = when ? Op.IJNE : Op.IJEQ;
+                    break;
+                case LESS_THAN:
+                    op = when ? Op.IJLT : Op.IJGE;
+                    break;
+                case LESS_EQUAL:
+                    op = when ? Op.IJLE : Op.IJGT;
+                    break;
+                case GREATER_THAN:
+                    op = when ? Op.IJGT : Op.IJLE;
+                    break;
+                default:
+                    op = when ? Op.IJGE : Op.IJLT;
+                    break;
+            }
+            emit(op, target);
+        } else {
+            condition.accept(this);
+            emit(when ? Op.JNZ : Op.JZ, target);
+        }
+        return pc - 1;
+    }
+
+    private int constant (double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        return constantIndex.computeIfAbsent(bits, b -> {
+            constants.add(b);
+            return constants.size() - 1;
+        });
+    }
+
+    // Variables =================================================================
+
+    // >= 0: a global slot; otherwise ~slot in the current frame
+    private int slot (Symbol symbol) {
+        Integer global = globals.get(symbol);
+        if (global != null) {
+            return global;
+        }
+        if (locals == null) {
+            int slot = globals.size();
+            globals.put(symbol, slot);
+            return slot;
+        }
+        Integer local = locals.get(symbol);
+        if (local == null) {
+            local = frameSize++;
+            locals.put(symbol, local);
+        }
+        return ~local;
+    }
+
+    private void load (Symbol symbol) {
+        int slot = slot(symbol);
+        boolean array = symbol.type() instanceof ArrayType;
+        if (slot >= 0) {
+            emit(array ? Op.GALOAD : Op.GLOAD, slot);
+        } else {
+            emit(array ? Op.ALOAD : Op.LOAD, ~slot);
+        }
+    }
+
+    private void store (Symbol symbol) {
+        int slot = slot(symbol);
+        if (slot >= 0) {
+            emit(Op.GSTORE, slot);
+        } else {
+            emit(Op.STORE, ~slot);
+        }
+    }
+
+    private int shape (ArrayType type) {
+        List<Integer> dimensions = new ArrayList<>();
+        for (Type t = type; t instanceof ArrayType; t = ((ArrayType) t).baseType()) {
+            dimensions.add(((ArrayType) t).size());
+        }
+        shapes.add(dimensions.stream().mapToInt(Integer::intValue).toArray());
+        return shapes.size() - 1;
+    }
+
+    // pushes the array and the indices of a[i][j]...; returns how many indices
+    private int arrayElement (ArrayIndex node) {
+        List<Expression> indices = new ArrayList<>();
+        Expression base = node;
+        while (base instanceof ArrayIndex) {
+            indices.add(0, ((ArrayIndex) base).index());
+            base = ((ArrayIndex) base).array();
+        }
+        base.accept(this);
+        for (Expression index : indices) {
+            index.accept(this);
+        }
+        return indices.size();
+    }
+
+    // Declarations ==============================================================
+
+    @Override
+    public void visit (Computation node) {
+        compileProgram(node);
+    }
+
+    @Override
+    public void visit (DeclarationList node) {
+        for (VariableDeclaration declaration : node.declarations()) {
+            declaration.accept(this);
+        }
+    }
+
+    @Override
+    public void visit (VariableDeclaration node) {
+        for (Symbol variable : node.variables()) {
+            int slot = slot(variable);
+            if (variable.type() instanceof ArrayType) {
+                int shape = shape((ArrayType) variable.type());
+                if (slot >= 0) {
+                    emit(Op.GANEW, slot, shape);
+                } else {
+                    emit(Op.ANEW, ~slot, shape);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void visit (FunctionDeclaration node) {
+        // compiled by compileProgram
+    }
+
+    @Override
+    public void visit (FunctionBody node) {
+        for (VariableDeclaration declaration : node.variables()) {
+            declaration.accept(this);
+        }
+        node.statements().accept(this);
+    }
+
+    // Statements ================================================================
+
+    @Override
+    public void visit (StatementSequence node) {
+        for (Statement statement : node.statements()) {
+            if (statement instanceof FunctionCall) {
+                // a call made for its effect; drop what it returns
+                if (call((FunctionCall) statement)) {
+                    emit(Op.POP);
+                }
+            } else {
+                statement.accept(this);
+            }
+        }
+    }
+
+    @Override
+    public void visit (Assignment node) {
+        Expression destination = node.destination();
+        if (destination instanceof ArrayIndex) {
+            int rank = arrayElement((ArrayIndex) destination);
+            node.source().accept(this);
+            emit(Op.XSTORE, rank);
+        } else if (destination instanceof Designator) {
+            Symbol symbol = ((Designator) destination).symbol();
+            int increment = increment(symbol, node.source());
+            if (increment != 0) {
+                int slot = slot(symbol);
+                if (slot >= 0) {
+                    emit(Op.GINC, slot, increment);
+                } else {
+                    emit(Op.INC, ~slot, increment);
+                }
+                return;
+            }
+            node.source().accept(this);
+            store(symbol);
+        }
+    }
+
+    // k when source is symbol + k or symbol - k for an int symbol and a constant k; otherwise 0
+    private static int increment (Symbol symbol, Expression source) {
+        if (!(symbol.type() instanceof IntType)) {
+            return 0;
+        }
+        Expression left;
+        Expression right;
+        int sign;
+        if (source instanceof Addition) {
+            left = ((Addition) source).left();
+            right = ((Addition) source).right();
+            sign = 1;
+        } else if (source instanceof Subtraction) {
+            left = ((Subtraction) source).left();
+            right = ((Subtraction) source).right();
+            sign = -1;
+        } else {
+            return 0;
+        }
+        if (left instanceof Designator && ((Designator) left).symbol() == symbol && right instanceof IntegerLiteral) {
+            return sign * ((IntegerLiteral) right).value();
+        }
+        return 0;
+    }
+
+    @Override
+    public void visit (IfStatement node) {
+        int toElse = jumpOn(node.condition(), false, -1);
+        node.thenBranch().accept(this);
+        if (node.elseBranch() != null) {
+            int toEnd = jump(Op.JMP);
+            patch(toElse);
+            node.elseBranch().accept(this);
+            patch(toEnd);
+        } else {
+            patch(toElse);
+        }
+    }
+
+    @Override
+    public void visit (WhileStatement node) {
+        int top = pc;
+        int toEnd = jumpOn(node.condition(), false, -1);
+        node.body().accept(this);
+        emit(Op.JMP, top);
+        patch(toEnd);
+    }
+
+    // like the Interpreter: the body runs again while the condition holds
+    @Override
+    public void visit (RepeatStatement node) {
+        int top = pc;
+        node.body().accept(this);
+        jumpOn(node.condition(), true, top);
+    }
+
+    @Override
+    public void visit (ReturnStatement node) {
+        if (currentFunction == null) {
+            if (node.expression() != null) {
+                node.expression().accept(this);
+                emit(Op.POP);
+            }
+            emit(Op.HALT);
+        } else if (node.expression() != null) {
+            node.expression().accept(this);
+            emit(Op.RETV);
+        } else {
+            emit(Op.RET);
+        }
+    }
+
+    // Calls =====================================================================
+
+    @Override
+    public void visit (FunctionCall node) {
+        call(node);
+    }
+
+    @Override
+    public void visit (ArgumentList node) {
+        for (Expression argument : node.arguments()) {
+            argument.accept(this);
+        }
+    }
+
+    // pushes the arguments and calls; returns whether a result was left on the stack
+    private boolean call (FunctionCall node) {
+        FunctionDeclaration target = targets.resolve(node);
+        if (target != null) {
+            node.arguments().accept(this);
+            emit(Op.CALL, functionIndex.get(target.function()));
+            boolean result = !(target.returnType() instanceof VoidType);
+            depth += (result ? 1 : 0) - node.arguments().arguments().size();
+            maxDepth = Math.max(maxDepth, depth);
+            return result;
+        }
+        switch (node.function().name()) {
+            case "readInt":
+                emit(Op.READ_INT);
+                return true;
+            case "readFloat":
+                emit(Op.READ_FLOAT);
+                return true;
+            case "readBool":
+                emit(Op.READ_BOOL);
+                return true;
+            case "println":
+                emit(Op.PRINTLN);
+                return false;
+            default:
+                break;
+        }
+        node.arguments().accept(this);
+        switch (node.function().name()) {
+            case "printInt":
+                emit(Op.PRINT_INT);
+                break;
+            case "printFloat":
+                emit(Op.PRINT_FLOAT);
+                break;
+            case "printBool":
+                emit(Op.PRINT_BOOL);
+                break;
+            case "arrcpy":
+                emit(Op.ARRCPY);
+                break;
+            default:
+                // not a function the checker would have let through
+                for (int i = 0; i < node.arguments().arguments().size(); i++) {
+                    emit(Op.POP);
+                }
+                break;
+        }
+        return false;
+    }
+
+    // Expressions ===============================================================
+
+    @Override
+    public void visit (BoolLiteral node) {
+        emit(Op.ICONST, node.value() ? 1 : 0);
+    }
+
+    @Override
+    public void visit (IntegerLiteral node) {
+        emit(Op.ICONST, node.value());
+    }
+
+    @Override
+    public void visit (FloatLiteral node) {
+        emit(Op.DCONST, constant(node.value()));
+    }
+
+    @Override
+    public void visit (Designator node) {
+        load(node.symbol());
+    }
+
+    @Override
+    public void visit (ArrayIndex node) {
+        emit(Op.XLOAD, arrayElement(node));
+    }
+
+    @Override
+    public void visit (AddressOf node) {
+        node.operand().accept(this);
+    }
+
+    @Override
+    public void visit (Dereference node) {
+        node.operand().accept(this);
+    }
+
+    private void binary (Expression node, Expression left, Expression right, int intOp, int floatOp) {
+        left.accept(this);
+        right.accept(this);
+        emit(StaticType.of(node) instanceof FloatType ? floatOp : intOp);
+    }
+
+    // i + k and i - k add a constant in place
+    private boolean addConstant (Expression node, Expression left, Expression right, int sign) {
+        if (!(right instanceof IntegerLiteral) || StaticType.of(node) instanceof FloatType) {
+            return false;
+        }
+        left.accept(this);
+        emit(Op.IADDK, sign * ((IntegerLiteral) right).value());
+        return true;
+    }
+
+    @Override
+    public void visit (Addition node) {
+        if (!addConstant(node, node.left(), node.right(), 1)) {
+            binary(node, node.left(), node.right(), Op.IADD, Op.DADD);
+        }
+    }
+
+    @Override
+    public void visit (Subtraction node) {
+        if (!addConstant(node, node.left(), node.right(), -1)) {
+            binary(node, node.left(), node.right(), Op.ISUB, Op.DSUB);
+        }
+    }
+
+    @Override
+    public void visit (Multiplication node) {
+        binary(node, node.left(), node.right(), Op.IMUL, Op.DMUL);
+    }
+
+    @Override
+    public void visit (Division node) {
+        binary(node, node.left(), node.right(), Op.IDIV, Op.DDIV);
+    }
+
+    @Override
+    public void visit (Modulo node) {
+        binary(node, node.left(), node.right(), Op.IMOD, Op.DMOD);
+    }
+
+    @Override
+    public void visit (Power node) {
+        binary(node, node.left(), node.right(), Op.IPOW, Op.DPOW);
+    }
+
+    // both sides are evaluated, as in the Interpreter
+    @Override
+    public void visit (LogicalAnd node) {
+        node.left().accept(this);
+        node.right().accept(this);
+        emit(Op.AND);
+    }
+
+    @Override
+    public void visit (LogicalOr node) {
+        node.left().accept(this);
+        node.right().accept(this);
+        emit(Op.OR);
+    }
+
+    @Override
+    public void visit (LogicalNot node) {
+        node.operand().accept(this);
+        emit(Op.NOT);
+    }
+
+    @Override
+    public void visit (Relation node) {
+        node.left().accept(this);
+        node.right().accept(this);
+        boolean real = StaticType.of(node.left()) instanceof FloatType;
+        int op;
+        switch (node.operator().kind()) {
+            case EQUAL_TO:
+                op = real ? Op.DEQ : Op.IEQ;
+                break;
+            case NOT_EQUAL:
+                op = real ? Op.DNE : Op.INE;
+                break;
+            case LESS_THAN:
+                op = real ? Op.DLT : Op.ILT;
+                break;
+            case LESS_EQUAL:
+                op = real ? Op.DLE : Op.ILE;
+                break;
+            case GREATER_THAN:
+                op = real ? Op.DGT : Op.IGT;
+                break;
+            default:
+                op = real ? Op.DGE : Op.IGE;
+                break;
+        }
+        emit(op);
+    }
+}
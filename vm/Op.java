@@ -0,0 +1,117 @@
+package vm;
+
+/**
+ * Opcodes of the mocha bytecode. An instruction is its opcode followed by
+ * its operands, all ints in one int[]. Values on the operand stack and in
+ * variable slots are longs: ints sign-extended, bools 0 or 1, floats as
+ * their raw double bits. Arrays travel in a parallel reference stack.
+ */
+public final class Op {
+
+    private Op () {
+    }
+
+    // constants and variables
+    public static final int ICONST = 0;     // value           push value
+    public static final int DCONST = 1;     // index           push constants[index]
+    public static final int LOAD = 2;       // slot            push frame slot
+    public static final int STORE = 3;      // slot            pop into frame slot
+    public static final int GLOAD = 4;      // slot            push global slot
+    public static final int GSTORE = 5;     // slot            pop into global slot
+    public static final int POP = 6;        //                 drop the top value
+
+    // arrays: a reference, then one index per dimension, on the stack
+    public static final int ALOAD = 7;      // slot            push the array in frame slot
+    public static final int GALOAD = 8;     // slot            push the array in global slot
+    public static final int ANEW = 9;       // slot shape      new zeroed array into frame slot
+    public static final int GANEW = 10;     // slot shape      new zeroed array into global slot
+    public static final int XLOAD = 11;     // rank            pop array and indices, push element
+    public static final int XSTORE = 12;    // rank            pop array, indices and value, store element
+
+    // int and bool arithmetic
+    public static final int IADD = 13;
+    public static final int ISUB = 14;
+    public static final int IMUL = 15;
+    public static final int IDIV = 16;
+    public static final int IMOD = 17;
+    public static final int IPOW = 18;
+    public static final int IEQ = 19;
+    public static final int INE = 20;
+    public static final int ILT = 21;
+    public static final int ILE = 22;
+    public static final int IGT = 23;
+    public static final int IGE = 24;
+    public static final int AND = 25;
+    public static final int OR = 26;
+    public static final int NOT = 27;
+
+    // float arithmetic
+    public static final int DADD = 28;
+    public static final int DSUB = 29;
+    public static final int DMUL = 30;
+    public static final int DDIV = 31;
+    public static final int DMOD = 32;
+    public static final int DPOW = 33;
+    public static final int DEQ = 34;
+    public static final int DNE = 35;
+    public static final int DLT = 36;
+    public static final int DLE = 37;
+    public static final int DGT = 38;
+    public static final int DGE = 39;
+
+    // control
+    public static final int JMP = 40;       // target
+    public static final int JZ = 41;        // target          pop, jump if 0
+    public static final int JNZ = 42;       // target          pop, jump unless 0
+    public static final int CALL = 43;      // function        arguments on the stack become its first slots
+    public static final int RET = 44;       //                 return from a void function
+    public static final int RETV = 45;      //                 pop the result and return it
+    public static final int HALT = 46;
+
+    // predefined functions
+    public static final int READ_INT = 47;
+    public static final int READ_FLOAT = 48;
+    public static final int READ_BOOL = 49;
+    public static final int PRINT_INT = 50;
+    public static final int PRINT_FLOAT = 51;
+    public static final int PRINT_BOOL = 52;
+    public static final int PRINTLN = 53;
+    public static final int ARRCPY = 54;    //                 pop dest, src, count
+
+    // fused forms of common sequences
+    public static final int IADDK = 55;     // value           add value to the top int
+    public static final int IJEQ = 56;      // target          pop two ints, jump if equal
+    public static final int IJNE = 57;      // target
+    public static final int IJLT = 58;      // target
+    public static final int IJLE = 59;      // target
+    public static final int IJGT = 60;      // target
+    public static final int IJGE = 61;      // target
+    public static final int INC = 62;       // slot value      add value to the int in frame slot
+    public static final int GINC = 63;      // slot value      add value to the int in global slot
+
+    static final String[] NAMES = {
+        "ICONST", "DCONST", "LOAD", "STORE", "GLOAD", "GSTORE", "POP",
+        "ALOAD", "GALOAD", "ANEW", "GANEW", "XLOAD", "XSTORE",
+        "IADD", "ISUB", "IMUL", "IDIV", "IMOD", "IPOW",
+        "IEQ", "INE", "ILT", "ILE", "IGT", "IGE", "AND", "OR", "NOT",
+        "DADD", "DSUB", "DMUL", "DDIV", "DMOD", "DPOW",
+        "DEQ", "DNE", "DLT", "DLE", "DGT", "DGE",
+        "JMP", "JZ", "JNZ", "CALL", "RET", "RETV", "HALT",
+        "READ_INT", "READ_FLOAT", "READ_BOOL", "PRINT_INT", "PRINT_FLOAT", "PRINT_BOOL", "PRINTLN", "ARRCPY",
+        "IADDK", "IJEQ", "IJNE", "IJLT", "IJLE", "IJGT", "IJGE", "INC", "GINC",
+    };
+
+    // number of operands that follow each opcode
+    static final int[] OPERANDS = new int[NAMES.length];
+
+    static {
+        for (int op : new int[] {ICONST, DCONST, LOAD, STORE, GLOAD, GSTORE, ALOAD, GALOAD,
+                XLOAD, XSTORE, JMP, JZ, JNZ, CALL, IADDK, IJEQ, IJNE, IJLT, IJLE, IJGT, IJGE}) {
+            OPERANDS[op] = 1;
+        }
+        OPERANDS[ANEW] = 2;
+        OPERANDS[GANEW] = 2;
+        OPERANDS[INC] = 2;
+        OPERANDS[GINC] = 2;
+    }
+}
@@ -0,0 +1,68 @@
+package vm;
+
+/**
+ * A mocha program compiled by BytecodeCompiler: one code array for every
+ * function, a constant pool for float literals, the dimensions of every
+ * declared array, and a table of functions. Function 0 is main.
+ */
+public final class Program {
+
+    final int[] code;
+    final long[] constants;     // raw double bits
+    final int[][] shapes;       // array dimensions, outermost first
+    final int globalCount;
+
+    // by function index
+    final String[] names;
+    final int[] entries;        // code offset
+    final int[] frameSizes;     // parameters first, then locals
+    final int[] parameterCounts;
+    final int[] maxStacks;      // deepest the operand stack gets inside the function
+
+    Program (int[] code, long[] constants, int[][] shapes, int globalCount,
+            String[] names, int[] entries, int[] frameSizes, int[] parameterCounts, int[] maxStacks) {
+        this.code = code;
+        this.constants = constants;
+        this.shapes = shapes;
+        this.globalCount = globalCount;
+        this.names = names;
+        this.entries = entries;
+        this.frameSizes = frameSizes;
+        this.parameterCounts = parameterCounts;
+        this.maxStacks = maxStacks;
+    }
+
+    // number of ints of code
+    public int size () {
+        return code.length;
+    }
+
+    public int functionCount () {
+        return names.length;
+    }
+
+    // one instruction per line, functions labelled
+    public String disassemble () {
+        StringBuilder out = new StringBuilder();
+        int function = 0;
+        for (int pc = 0; pc < code.length; ) {
+            while (function < entries.length && entries[function] == pc) {
+                out.append(names[function]).append(":\n");
+                function++;
+            }
+            int op = code[pc];
+            out.append(String.format("%6d  %s", pc, Op.NAMES[op]));
+            for (int i = 1; i <= Op.OPERANDS[op]; i++) {
+                out.append(' ').append(code[pc + i]);
+            }
+            if (op == Op.DCONST) {
+                out.append("  ; ").append(Double.longBitsToDouble(constants[code[pc + 1]]));
+            } else if (op == Op.CALL) {
+                out.append("  ; ").append(names[code[pc + 1]]);
+            }
+            out.append('\n');
+            pc += 1 + Op.OPERANDS[op];
+        }
+        return out.toString();
+    }
+}
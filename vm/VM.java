@@ -0,0 +1,486 @@
+package vm;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import mocha.DataReader;
+import mocha.DataWriter;
+
+/**
+ * Runs a Program. One operand stack holds every frame: a call's arguments
+ * become the first slots of the callee's frame, its locals follow, and its
+ * operands are pushed above them, the topmost kept in a local of run. Arrays ride in refs, a parallel stack of
+ * references indexed the same way, so no value is ever boxed.
+ *
+ * An array is a long[] holding its rank, then its dimensions, then its
+ * elements in row-major order. As in the Interpreter, an index out
+ * of bounds reads 0 and ignores a write, and dividing an int by 0 gives 0.
+ */
+public final class VM {
+
+    private final Program program;
+    private final DataReader input;
+    private final DataWriter output;
+
+    private long[] stack;
+    private Object[] refs;
+    private final long[] globals;
+    private final Object[] globalRefs;
+
+    // return pc and saved fp of every active call
+    private int[] calls = new int[64];
+
+    public VM (Program program, InputStream in) {
+        this(program, new DataReader(in));
+    }
+
+    public VM (Program program, DataReader input) {
+        this.program = program;
+        this.input = input;
+        this.output = new DataWriter();
+        input.setOutput(output);
+        this.stack = new long[Math.max(program.maxStacks[0] + 2, 16)];
+        this.refs = new Object[stack.length];
+        this.globals = new long[program.globalCount];
+        this.globalRefs = new Object[program.globalCount];
+    }
+
+    public static void run (Program program, InputStream in) {
+        new VM(program, in).run();
+    }
+
+    public static void run (Program program, DataReader input) {
+        new VM(program, input).run();
+    }
+
+    public void run () {
+        try {
+            execute();
+        } finally {
+            output.flush();
+        }
+    }
+
+    private void execute () {
+        final int[] code = program.code;
+        final long[] constants = program.constants;
+        long[] stack = this.stack;
+        Object[] refs = this.refs;
+        final long[] globals = this.globals;
+        final Object[] globalRefs = this.globalRefs;
+        int[] calls = this.calls;
+        int depth = 0;      // ints used in calls
+        int pc = 0;
+        int fp = 0;
+        // the top of the operand stack lives in tos, the rest in stack[base + 1 .. sp]
+        // where base is the first free slot of the frame; refs[sp] goes with tos
+        int sp = 0;
+        long tos = 0;
+
+        while (true) {
+            switch (code[pc]) {
+                case Op.ICONST:
+                    stack[sp++] = tos;
+                    tos = code[pc + 1];
+                    pc += 2;
+                    break;
+                case Op.DCONST:
+                    stack[sp++] = tos;
+                    tos = constants[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case Op.LOAD:
+                    stack[sp++] = tos;
+                    tos = stack[fp + code[pc + 1]];
+                    pc += 2;
+                    break;
+                case Op.STORE:
+                    stack[fp + code[pc + 1]] = tos;
+                    tos = stack[--sp];
+                    pc += 2;
+                    break;
+                case Op.GLOAD:
+                    stack[sp++] = tos;
+                    tos = globals[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case Op.GSTORE:
+                    globals[code[pc + 1]] = tos;
+                    tos = stack[--sp];
+                    pc += 2;
+                    break;
+                case Op.POP:
+                    refs[sp] = null;
+                    tos = stack[--sp];
+                    pc += 1;
+                    break;
+
+                case Op.ALOAD:
+                    stack[sp++] = tos;
+                    refs[sp] = refs[fp + code[pc + 1]];
+                    pc += 2;
+                    break;
+                case Op.GALOAD:
+                    stack[sp++] = tos;
+                    refs[sp] = globalRefs[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case Op.ANEW:
+                    refs[fp + code[pc + 1]] = newArray(program.shapes[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case Op.GANEW:
+                    globalRefs[code[pc + 1]] = newArray(program.shapes[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case Op.XLOAD: {
+                    int rank = code[pc + 1];
+                    stack[sp] = tos;
+                    sp -= rank;
+                    long[] array = (long[]) refs[sp];
+                    refs[sp] = null;
+                    int element = element(array, stack, sp + 1, rank);
+                    tos = element < 0 ? 0 : array[element];
+                    pc += 2;
+                    break;
+                }
+                case Op.XSTORE: {
+                    int rank = code[pc + 1];
+                    sp -= rank + 1;
+                    long[] array = (long[]) refs[sp];
+                    refs[sp] = null;
+                    int element = element(array, stack, sp + 1, rank);
+                    if (element >= 0) {
+                        array[element] = tos;
+                    }
+                    tos = stack[--sp];
+                    pc += 2;
+                    break;
+                }
+
+                case Op.IADD:
+                    tos = (int) stack[--sp] + (int) tos;
+                    pc += 1;
+                    break;
+                case Op.IADDK:
+                    tos = (int) tos + code[pc + 1];
+                    pc += 2;
+                    break;
+                case Op.INC:
+                    stack[fp + code[pc + 1]] = (int) stack[fp + code[pc + 1]] + code[pc + 2];
+                    pc += 3;
+                    break;
+                case Op.GINC:
+                    globals[code[pc + 1]] = (int) globals[code[pc + 1]] + code[pc + 2];
+                    pc += 3;
+                    break;
+                case Op.ISUB:
+                    tos = (int) stack[--sp] - (int) tos;
+                    pc += 1;
+                    break;
+                case Op.IMUL:
+                    tos = (int) stack[--sp] * (int) tos;
+                    pc += 1;
+                    break;
+                case Op.IDIV:
+                    tos = quotient((int) stack[--sp], (int) tos);
+                    pc += 1;
+                    break;
+                case Op.IMOD:
+                    tos = remainder((int) stack[--sp], (int) tos);
+                    pc += 1;
+                    break;
+                case Op.IPOW:
+                    tos = intPower((int) stack[--sp], (int) tos);
+                    pc += 1;
+                    break;
+                case Op.IEQ:
+                    tos = stack[--sp] == tos ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.INE:
+                    tos = stack[--sp] != tos ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.ILT:
+                    tos = stack[--sp] < tos ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.ILE:
+                    tos = stack[--sp] <= tos ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.IGT:
+                    tos = stack[--sp] > tos ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.IGE:
+                    tos = stack[--sp] >= tos ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.AND:
+                    tos &= stack[--sp];
+                    pc += 1;
+                    break;
+                case Op.OR:
+                    tos |= stack[--sp];
+                    pc += 1;
+                    break;
+                case Op.NOT:
+                    tos ^= 1;
+                    pc += 1;
+                    break;
+
+                case Op.DADD:
+                    tos = bits(real(stack[--sp]) + real(tos));
+                    pc += 1;
+                    break;
+                case Op.DSUB:
+                    tos = bits(real(stack[--sp]) - real(tos));
+                    pc += 1;
+                    break;
+                case Op.DMUL:
+                    tos = bits(real(stack[--sp]) * real(tos));
+                    pc += 1;
+                    break;
+                case Op.DDIV:
+                    tos = bits(real(stack[--sp]) / real(tos));
+                    pc += 1;
+                    break;
+                case Op.DMOD:
+                    tos = bits(real(stack[--sp]) % real(tos));
+                    pc += 1;
+                    break;
+                case Op.DPOW:
+                    tos = bits(Math.pow(real(stack[--sp]), real(tos)));
+                    pc += 1;
+                    break;
+                case Op.DEQ:
+                    tos = compare(stack[--sp], tos) == 0 ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.DNE:
+                    tos = compare(stack[--sp], tos) != 0 ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.DLT:
+                    tos = compare(stack[--sp], tos) < 0 ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.DLE:
+                    tos = compare(stack[--sp], tos) <= 0 ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.DGT:
+                    tos = compare(stack[--sp], tos) > 0 ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.DGE:
+                    tos = compare(stack[--sp], tos) >= 0 ? 1 : 0;
+                    pc += 1;
+                    break;
+
+                case Op.JMP:
+                    pc = code[pc + 1];
+                    break;
+                case Op.JZ:
+                    pc = tos == 0 ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.JNZ:
+                    pc = tos != 0 ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.IJEQ:
+                    pc = stack[--sp] == tos ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.IJNE:
+                    pc = stack[--sp] != tos ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.IJLT:
+                    pc = stack[--sp] < tos ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.IJLE:
+                    pc = stack[--sp] <= tos ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.IJGT:
+                    pc = stack[--sp] > tos ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.IJGE:
+                    pc = stack[--sp] >= tos ? code[pc + 1] : pc + 2;
+                    tos = stack[--sp];
+                    break;
+                case Op.CALL: {
+                    // the arguments, tos the last of them, become the first slots of the frame
+                    int function = code[pc + 1];
+                    stack[sp] = tos;
+                    int frameFp = sp + 1 - program.parameterCounts[function];
+                    int frameEnd = frameFp + program.frameSizes[function];
+                    int limit = frameEnd + program.maxStacks[function] + 2;
+                    if (limit > stack.length) {
+                        int length = Math.max(limit, stack.length * 2);
+                        stack = this.stack = Arrays.copyOf(stack, length);
+                        refs = this.refs = Arrays.copyOf(refs, length);
+                    }
+                    if (depth + 2 > calls.length) {
+                        calls = this.calls = Arrays.copyOf(calls, calls.length * 2);
+                    }
+                    calls[depth++] = pc + 2;
+                    calls[depth++] = fp;
+                    for (int slot = sp + 1; slot <= frameEnd; slot++) {
+                        stack[slot] = 0;
+                        refs[slot] = null;
+                    }
+                    fp = frameFp;
+                    sp = frameEnd;
+                    pc = program.entries[function];
+                    break;
+                }
+                case Op.RET:
+                    // the frame goes, and with it the arguments; what was under them is on top
+                    Arrays.fill(refs, fp, sp + 1, null);
+                    sp = fp - 1;
+                    tos = stack[sp];
+                    fp = calls[--depth];
+                    pc = calls[--depth];
+                    break;
+                case Op.RETV:
+                    // as RET, then the result is pushed
+                    Arrays.fill(refs, fp, sp + 1, null);
+                    sp = fp;
+                    fp = calls[--depth];
+                    pc = calls[--depth];
+                    break;
+                case Op.HALT:
+                    return;
+
+                case Op.READ_INT:
+                    stack[sp++] = tos;
+                    tos = input.readInt();
+                    pc += 1;
+                    break;
+                case Op.READ_FLOAT:
+                    stack[sp++] = tos;
+                    tos = bits(input.readFloat());
+                    pc += 1;
+                    break;
+                case Op.READ_BOOL:
+                    stack[sp++] = tos;
+                    tos = input.readBool() ? 1 : 0;
+                    pc += 1;
+                    break;
+                case Op.PRINT_INT:
+                    output.printInt((int) tos);
+                    tos = stack[--sp];
+                    pc += 1;
+                    break;
+                case Op.PRINT_FLOAT:
+                    output.printFloat(real(tos));
+                    tos = stack[--sp];
+                    pc += 1;
+                    break;
+                case Op.PRINT_BOOL:
+                    output.printBool(tos != 0);
+                    tos = stack[--sp];
+                    pc += 1;
+                    break;
+                case Op.PRINTLN:
+                    output.println();
+                    pc += 1;
+                    break;
+                case Op.ARRCPY: {
+                    long[] destination = (long[]) refs[sp - 2];
+                    long[] source = (long[]) refs[sp - 1];
+                    refs[sp - 2] = null;
+                    refs[sp - 1] = null;
+                    arrayCopy(destination, source, (int) tos);
+                    sp -= 3;
+                    tos = stack[sp];
+                    pc += 1;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("bad opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    private static long[] newArray (int[] shape) {
+        int size = 1;
+        for (int dimension : shape) {
+            size *= dimension;
+        }
+        long[] array = new long[1 + shape.length + size];
+        array[0] = shape.length;
+        for (int i = 0; i < shape.length; i++) {
+            array[1 + i] = shape[i];
+        }
+        return array;
+    }
+
+    // offset in array of the element at the rank indices from stack[from], or -1 if out of bounds
+    private static int element (long[] array, long[] stack, int from, int rank) {
+        if (array == null) {
+            return -1;
+        }
+        int offset = 0;
+        for (int k = 0; k < rank; k++) {
+            int index = (int) stack[from + k];
+            int dimension = (int) array[1 + k];
+            if (index < 0 || index >= dimension) {
+                return -1;
+            }
+            offset = offset * dimension + index;
+        }
+        return 1 + rank + offset;
+    }
+
+    private static void arrayCopy (long[] destination, long[] source, int count) {
+        if (destination == null || source == null || count <= 0) {
+            return;
+        }
+        int to = 1 + (int) destination[0];
+        int from = 1 + (int) source[0];
+        count = Math.min(count, Math.min(destination.length - to, source.length - from));
+        System.arraycopy(source, from, destination, to, count);
+    }
+
+    private static double real (long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long bits (double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    private static int compare (long left, long right) {
+        return Double.compare(real(left), real(right));
+    }
+
+    // integer division by zero gives 0, as in the Interpreter, so a dead
+    // division that the optimizer removes could never have trapped
+    private static int quotient (int left, int right) {
+        return right == 0 ? 0 : left / right;
+    }
+
+    private static int remainder (int left, int right) {
+        return right == 0 ? 0 : left % right;
+    }
+
+    // base to the power exp with int wrap-around, by repeated squaring
+    private static int intPower (int base, int exp) {
+        int result = 1;
+        while (exp > 0) {
+            if ((exp & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exp >>= 1;
+        }
+        return result;
+    }
+}